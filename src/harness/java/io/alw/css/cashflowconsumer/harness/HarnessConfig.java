@@ -0,0 +1,81 @@
+package io.alw.css.cashflowconsumer.harness;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/// Configuration of a [PipelineHarness] run, parsed from the program arguments of the form `key=value`.
+///
+/// Ex: `messages=200000 warmup=20000 mix=NEW:50,COR:30,CAN:10,DUP:10 properties=app.cfc.processing.mode=VIRTUAL_THREADS;app.cfc.group-commit.enabled=true`
+///
+/// @param messages       messages measured, after the warmup
+/// @param warmup         messages processed before the measurement starts, so that the JIT, the connection pool and the caches are warmed up
+/// @param mix            share of every [SyntheticFeed.Kind] in the feed, in percent
+/// @param counterparties synthetic counterparties in the reference data. Every counterparty has a primary SSI for every currency and trade type
+/// @param partitions     partitions of the input topic
+/// @param seed           seed of the synthetic feed, so that two runs replay the same messages
+/// @param timeout        maximum time waited for all the messages to be processed
+/// @param properties     application properties overridden for the run, separated by `;`
+record HarnessConfig(
+        int messages,
+        int warmup,
+        Map<SyntheticFeed.Kind, Integer> mix,
+        int counterparties,
+        int partitions,
+        long seed,
+        Duration timeout,
+        Map<String, String> properties
+) {
+    static HarnessConfig parse(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Argument is not of the form key=value: " + arg);
+            }
+            arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        return new HarnessConfig(
+                Integer.parseInt(arguments.getOrDefault("messages", "100000")),
+                Integer.parseInt(arguments.getOrDefault("warmup", "10000")),
+                parseMix(arguments.getOrDefault("mix", "NEW:60,COR:25,CAN:5,DUP:10")),
+                Integer.parseInt(arguments.getOrDefault("counterparties", "500")),
+                Integer.parseInt(arguments.getOrDefault("partitions", "4")),
+                Long.parseLong(arguments.getOrDefault("seed", "20240101")),
+                Duration.parse(arguments.getOrDefault("timeout", "PT10M")),
+                parseProperties(arguments.getOrDefault("properties", "")));
+    }
+
+    /// An [EnumMap], so that the kinds are iterated in the same order in every run. See [#seed()]
+    private static Map<SyntheticFeed.Kind, Integer> parseMix(String mix) {
+        Map<SyntheticFeed.Kind, Integer> shares = new EnumMap<>(SyntheticFeed.Kind.class);
+        int total = 0;
+        for (String share : mix.split(",")) {
+            String[] kindAndPercent = share.trim().split(":");
+            int percent = Integer.parseInt(kindAndPercent[1]);
+            shares.put(SyntheticFeed.Kind.valueOf(kindAndPercent[0]), percent);
+            total += percent;
+        }
+        if (total != 100) {
+            throw new IllegalArgumentException("Shares of the mix must add up to 100: " + mix);
+        }
+        return shares;
+    }
+
+    private static Map<String, String> parseProperties(String properties) {
+        Map<String, String> overrides = new HashMap<>();
+        for (String property : properties.split(";")) {
+            int separator = property.indexOf('=');
+            if (separator > 0) {
+                overrides.put(property.substring(0, separator).trim(), property.substring(separator + 1).trim());
+            }
+        }
+        return overrides;
+    }
+
+    int total() {
+        return warmup + messages;
+    }
+}
@@ -0,0 +1,58 @@
+package io.alw.css.cashflowconsumer.harness;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/// Concurrent histogram of latencies in nanos, with a relative error below 1%.
+///
+/// A value is counted in a bucket of the power of two it falls in, and within that in one of 128 sub-buckets.
+/// Hence, recording is a few bit operations and an atomic increment, and the memory used does not depend on the number of values
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+
+    void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(nanos, 0)));
+    }
+
+    long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /// @param percentile between 0 and 100
+    /// @return lowest value of the bucket the percentile falls in. 0 if nothing is recorded
+    long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return lowestValue(i);
+            }
+        }
+        return lowestValue(counts.length() - 1);
+    }
+
+    /// Values below 2 * [#SUB_BUCKETS] are counted exactly. A larger value is shifted right until it is below that, and the shift selects the power of two
+    private static int index(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1));
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long lowestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        return (long) (index - shift * SUB_BUCKETS) << shift;
+    }
+}
@@ -0,0 +1,95 @@
+package io.alw.css.cashflowconsumer.harness;
+
+import io.alw.css.cashflowconsumer.monitoring.CashflowProcessingObserver;
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/// Records the [CashflowTrace] of every message processed after the warmup, and reports the throughput and the latencies of every [CcpsStep].
+///
+/// A [CashflowTrace.Outcome#PARKED] message is processed again once released, so only its final trace counts as processed
+final class LatencyRecorder implements CashflowProcessingObserver {
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    private final int warmup;
+    private final CountDownLatch processed;
+    private final AtomicLong completed = new AtomicLong();
+    private final Map<CcpsStep, LatencyHistogram> stepLatencies = new EnumMap<>(CcpsStep.class);
+    private final LatencyHistogram endToEndLatency = new LatencyHistogram();
+    private final Map<CashflowTrace.Outcome, AtomicLong> outcomes = new EnumMap<>(CashflowTrace.Outcome.class);
+    private final AtomicLong retries = new AtomicLong();
+    private final LongAccumulator firstReceivedNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator lastEndNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    LatencyRecorder(int warmup, int messages) {
+        this.warmup = warmup;
+        this.processed = new CountDownLatch(warmup + messages);
+        for (CcpsStep step : CcpsStep.values()) {
+            stepLatencies.put(step, new LatencyHistogram());
+        }
+        for (CashflowTrace.Outcome outcome : CashflowTrace.Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    @Override
+    public void onProcessed(CashflowTrace trace) {
+        if (trace.outcome() == CashflowTrace.Outcome.PARKED) {
+            outcomes.get(CashflowTrace.Outcome.PARKED).incrementAndGet();
+            return;
+        }
+        if (completed.incrementAndGet() > warmup) {
+            for (CcpsStep step : CcpsStep.values()) {
+                long nanos = trace.stepNanos(step);
+                if (nanos > 0) {
+                    stepLatencies.get(step).record(nanos);
+                }
+            }
+            endToEndLatency.record(trace.totalNanos());
+            if (trace.outcome() != null) {
+                outcomes.get(trace.outcome()).incrementAndGet();
+            }
+            retries.addAndGet(trace.numOfRetries());
+            firstReceivedNanos.accumulate(trace.receivedNanos());
+            lastEndNanos.accumulate(trace.receivedNanos() + trace.totalNanos());
+        }
+        processed.countDown();
+    }
+
+    /// @return false if the timeout elapsed before every message is processed
+    boolean awaitProcessed(long timeout, TimeUnit unit) throws InterruptedException {
+        return processed.await(timeout, unit);
+    }
+
+    long completed() {
+        return completed.get();
+    }
+
+    /// Throughput is the number of measured messages over the time from the receipt of the first of them to the end of the last of them
+    void report(PrintStream out) {
+        long measured = endToEndLatency.count();
+        double seconds = measured == 0 ? 0 : (lastEndNanos.get() - firstReceivedNanos.get()) / 1e9;
+        out.printf("%nMeasured messages: %d in %.2fs. Sustained throughput: %.0f msgs/s%n", measured, seconds, seconds == 0 ? 0 : measured / seconds);
+        out.printf("Outcomes: %s, retries: %d%n%n", outcomes, retries.get());
+        out.printf("%-20s %10s %12s %12s %12s%n", "Step", "Count", "p50(µs)", "p99(µs)", "p99.9(µs)");
+        for (CcpsStep step : CcpsStep.values()) {
+            print(out, step.name(), stepLatencies.get(step));
+        }
+        print(out, "END_TO_END", endToEndLatency);
+    }
+
+    private static void print(PrintStream out, String name, LatencyHistogram histogram) {
+        out.printf("%-20s %10d", name, histogram.count());
+        for (double percentile : PERCENTILES) {
+            out.printf(" %12.1f", histogram.percentile(percentile) / 1e3);
+        }
+        out.println();
+    }
+}
@@ -0,0 +1,84 @@
+package io.alw.css.cashflowconsumer.harness;
+
+import io.alw.css.cashflowconsumer.CashflowConsumer;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/// Runs the real [io.alw.css.cashflowconsumer.service.KafkaCashflowConsumer] -> [io.alw.css.cashflowconsumer.service.CashflowService] -> [io.alw.css.cashflowconsumer.repository.CashflowStore] path
+/// against local stand-ins, and reports the sustained throughput and the latencies of every CCPS step:
+/// - Kafka: an embedded KRaft broker. The Avro schema registry is a mock registry shared by the producer and the consumer in this JVM
+/// - Oracle: H2 in Oracle mode. See `application-harness.yml`
+/// - Ignite: an embedded server node seeded with synthetic reference data. See [RefDataNode]
+///
+/// The application is started as is, with the `harness` profile and the overrides of [HarnessConfig#properties()]. See README for how to run it
+public class PipelineHarness {
+    private static final Logger log = LoggerFactory.getLogger(PipelineHarness.class);
+    private static final String TOPIC = "cfc-harness-input";
+
+    public static void main(String[] args) throws Exception {
+        HarnessConfig config = HarnessConfig.parse(args);
+        var recorder = new LatencyRecorder(config.warmup(), config.messages());
+
+        try (RefDataNode refDataNode = RefDataNode.start(config.counterparties())) {
+            var broker = new EmbeddedKafkaKraftBroker(1, config.partitions(), TOPIC);
+            broker.afterPropertiesSet();
+            try (ConfigurableApplicationContext _ = startApplication(config, broker.getBrokersAsString(), recorder)) {
+                Map<SyntheticFeed.Kind, Integer> generated = publish(config, broker.getBrokersAsString());
+                log.info("Published {} messages. {}", config.total(), generated);
+
+                if (!recorder.awaitProcessed(config.timeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    log.warn("Timed out after {}. Processed {} of {} messages. The report covers the processed messages only", config.timeout(), recorder.completed(), config.total());
+                }
+                recorder.report(System.out);
+            } finally {
+                broker.destroy();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApplication(HarnessConfig config, String bootstrapServers, LatencyRecorder recorder) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("ignite.hosts", RefDataNode.hosts());
+        properties.put("spring.kafka.bootstrap-servers", bootstrapServers);
+        properties.put("app.kafka.topic.cashflow-input", TOPIC);
+        properties.putAll(config.properties());
+        return new SpringApplicationBuilder(CashflowConsumer.class)
+                .profiles("harness")
+                .properties(properties)
+                .initializers(ctx -> ctx.getBeanFactory().registerSingleton("latencyRecorder", recorder))
+                .run();
+    }
+
+    /// Publishes the warmup messages followed by the measured messages, keyed by foCashflowID
+    private static Map<SyntheticFeed.Kind, Integer> publish(HarnessConfig config, String bootstrapServers) {
+        Map<String, Object> producerProperties = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                "schema.registry.url", "mock://cfc-harness");
+        var feed = new SyntheticFeed(config.mix(), config.counterparties(), config.seed());
+        try (var producer = new KafkaProducer<String, FoCashMessageAvro>(producerProperties)) {
+            for (int i = 0; i < config.total(); i++) {
+                FoCashMessageAvro foMsg = feed.next();
+                producer.send(new ProducerRecord<>(TOPIC, String.valueOf(foMsg.getCashflowID()), foMsg));
+            }
+            producer.flush();
+        }
+        return feed.generated();
+    }
+}
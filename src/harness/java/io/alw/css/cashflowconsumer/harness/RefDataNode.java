@@ -0,0 +1,127 @@
+package io.alw.css.cashflowconsumer.harness;
+
+import io.alw.css.domain.cashflow.TradeType;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
+import org.apache.ignite.configuration.CacheConfiguration;
+import org.apache.ignite.configuration.ClientConnectorConfiguration;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/// Embedded Ignite server node with the reference data SQL tables read by [io.alw.css.cashflowconsumer.service.CacheService], seeded with synthetic data.
+///
+/// The tables are created with the cache names of [io.alw.css.cashflowconsumer.model.properties.RefDataConfig.CacheNames], so that the continuous queries listen to the right caches.
+/// The SSI table is colocated with the COUNTERPARTY table by counterpartyCode, as the SSI lookup relies on a colocated join
+final class RefDataNode implements AutoCloseable {
+    static final int CLIENT_PORT = 10800;
+
+    private final Ignite ignite;
+
+    private RefDataNode(Ignite ignite) {
+        this.ignite = ignite;
+    }
+
+    static RefDataNode start(int counterparties) {
+        var ipFinder = new TcpDiscoveryVmIpFinder().setAddresses(List.of("127.0.0.1:47500..47509"));
+        var cfg = new IgniteConfiguration()
+                .setIgniteInstanceName("cfc-harness-refdata")
+                .setClientMode(false)
+                .setDiscoverySpi(new TcpDiscoverySpi().setLocalAddress("127.0.0.1").setIpFinder(ipFinder))
+                .setClientConnectorConfiguration(new ClientConnectorConfiguration().setHost("127.0.0.1").setPort(CLIENT_PORT).setPortRange(0));
+        var node = new RefDataNode(Ignition.start(cfg));
+        node.createTables();
+        node.seed(counterparties);
+        return node;
+    }
+
+    static String counterpartyCode(int i) {
+        return "CP" + String.format("%06d", i);
+    }
+
+    static String hosts() {
+        return "127.0.0.1:" + CLIENT_PORT;
+    }
+
+    private void createTables() {
+        execute("""
+                create table CURRENCY (currCode varchar primary key, countryCode varchar, pmFlag boolean, cutOffTime time, active boolean, entryTime timestamp)
+                with "CACHE_NAME=CURRENCY,TEMPLATE=REPLICATED"
+                """);
+        execute("""
+                create table ENTITY (entityCode varchar primary key, entityVersion int, entityName varchar, currCode varchar, countryCode varchar, countryName varchar, bicCode varchar, active boolean, entryTime timestamp)
+                with "CACHE_NAME=ENTITY,TEMPLATE=REPLICATED"
+                """);
+        execute("""
+                create table COUNTERPARTY (counterpartyCode varchar primary key, counterpartyVersion int, internal boolean, active boolean)
+                with "CACHE_NAME=COUNTERPARTY"
+                """);
+        execute("""
+                create table SSI (ssiId varchar, counterpartyCode varchar, ssiVersion int, currCode varchar, product varchar, isPrimary boolean, active boolean, primary key (ssiId, counterpartyCode))
+                with "CACHE_NAME=SSI,AFFINITY_KEY=counterpartyCode"
+                """);
+        execute("""
+                create table NOSTRO (nostroId varchar primary key, nostroVersion int, entityCode varchar, currCode varchar, secondaryLedgerAccount varchar, isPrimary boolean, active boolean)
+                with "CACHE_NAME=NOSTRO,TEMPLATE=REPLICATED"
+                """);
+        execute("""
+                create table CounterpartySlaMapping (mappingId bigint primary key, mappingVersion int, entityCode varchar, currCode varchar, secondaryLedgerAccount varchar, counterpartyCode varchar, active boolean)
+                with "CACHE_NAME=CounterpartySlaMapping,TEMPLATE=REPLICATED"
+                """);
+    }
+
+    /// Every entity, currency and counterparty is active. Every (entity, currency) has a primary nostro, and every (counterparty, currency, trade type) has a primary SSI.
+    /// Every tenth counterparty has a secondary nostro mapped for its first currency, so that the overriding nostro is resolved too
+    private void seed(int counterparties) {
+        var entryTime = Timestamp.valueOf(LocalDateTime.now());
+        for (String currCode : SyntheticFeed.CURRENCIES) {
+            execute("insert into CURRENCY values (?, ?, ?, ?, ?, ?)", currCode, currCode.substring(0, 2), false, Time.valueOf(LocalTime.of(16, 0)), true, entryTime);
+        }
+        for (String entityCode : SyntheticFeed.ENTITIES) {
+            execute("insert into ENTITY values (?, ?, ?, ?, ?, ?, ?, ?, ?)", entityCode, 1, "Entity " + entityCode, "USD", entityCode.substring(0, 2), entityCode, entityCode + "XXXXX", true, entryTime);
+            for (String currCode : SyntheticFeed.CURRENCIES) {
+                execute("insert into NOSTRO values (?, ?, ?, ?, ?, ?, ?)", "NOS-" + entityCode + "-" + currCode, 1, entityCode, currCode, "SLA-P-" + entityCode + "-" + currCode, true, true);
+                execute("insert into NOSTRO values (?, ?, ?, ?, ?, ?, ?)", "NOS-" + entityCode + "-" + currCode + "-S", 1, entityCode, currCode, "SLA-S-" + entityCode + "-" + currCode, false, true);
+            }
+        }
+
+        long mappingId = 1;
+        for (int i = 0; i < counterparties; i++) {
+            String counterpartyCode = counterpartyCode(i);
+            execute("insert into COUNTERPARTY values (?, ?, ?, ?)", counterpartyCode, 1, false, true);
+            for (String currCode : SyntheticFeed.CURRENCIES) {
+                for (TradeType tradeType : SyntheticFeed.TRADE_TYPES) {
+                    execute("insert into SSI values (?, ?, ?, ?, ?, ?, ?)", "SSI-" + counterpartyCode + "-" + currCode + "-" + tradeType, counterpartyCode, 1, currCode, tradeType.name(), true, true);
+                }
+            }
+            if (i % 10 == 0) {
+                String currCode = SyntheticFeed.CURRENCIES[0];
+                for (String entityCode : SyntheticFeed.ENTITIES) {
+                    execute("insert into CounterpartySlaMapping values (?, ?, ?, ?, ?, ?, ?)", mappingId++, 1, entityCode, currCode, "SLA-S-" + entityCode + "-" + currCode, counterpartyCode, true);
+                }
+            }
+        }
+    }
+
+    private void execute(String sql, Object... args) {
+        queryCache().query(new SqlFieldsQuery(sql).setSchema("PUBLIC").setArgs(args)).getAll();
+    }
+
+    /// Any cache can run SQL on any table. This one exists only for that
+    private IgniteCache<?, ?> queryCache() {
+        return ignite.getOrCreateCache(new CacheConfiguration<>("cfc-harness-sql"));
+    }
+
+    @Override
+    public void close() {
+        ignite.close();
+    }
+}
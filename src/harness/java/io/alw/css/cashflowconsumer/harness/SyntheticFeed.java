@@ -0,0 +1,125 @@
+package io.alw.css.cashflowconsumer.harness;
+
+import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.domain.cashflow.TransactionType;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import io.alw.css.serialization.cashflow.PayOrReceive;
+import io.alw.css.serialization.cashflow.TradeEventAction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/// Endless feed of synthetic messages of a given mix of [Kind]s, generated from a fixed seed.
+///
+/// Every message refers to the reference data seeded by [RefDataNode]. The versions of a foCashflowID are generated in order and
+/// are published keyed by foCashflowID, so that they are consumed in order, as in production
+final class SyntheticFeed {
+    enum Kind {
+        /// First version of a new foCashflowID
+        NEW,
+        /// Next version of a live foCashflowID, with a changed amount
+        COR,
+        /// Next version of a live foCashflowID, cancelling it. No further version of it is generated
+        CAN,
+        /// Last version of a live foCashflowID, sent again
+        DUP
+    }
+
+    static final String[] CURRENCIES = {"USD", "EUR", "GBP", "INR"};
+    static final String[] ENTITIES = {"LON", "NYC", "DEL", "SIN"};
+    static final TradeType[] TRADE_TYPES = {TradeType.FX, TradeType.PAYMENT};
+    static final String[] BOOKS = {"FXSPOT", "PAYMT1", "RATES1"};
+
+    private final SplittableRandom random;
+    private final Kind[] kinds = new Kind[100];
+    private final int counterparties;
+    /// Last message of every foCashflowID that is not cancelled
+    private final List<FoCashMessageAvro> live = new ArrayList<>();
+    private final Map<Kind, Integer> generated = new EnumMap<>(Kind.class);
+    private long nextFoCashflowID = 1;
+
+    SyntheticFeed(Map<Kind, Integer> mix, int counterparties, long seed) {
+        this.random = new SplittableRandom(seed);
+        this.counterparties = counterparties;
+        int slot = 0;
+        for (Map.Entry<Kind, Integer> share : mix.entrySet()) {
+            for (int i = 0; i < share.getValue(); i++) {
+                kinds[slot++] = share.getKey();
+            }
+        }
+    }
+
+    /// A kind other than [Kind#NEW] is generated as [Kind#NEW] while there is no live foCashflowID
+    FoCashMessageAvro next() {
+        Kind kind = live.isEmpty() ? Kind.NEW : kinds[random.nextInt(kinds.length)];
+        generated.merge(kind, 1, Integer::sum);
+        return switch (kind) {
+            case NEW -> {
+                FoCashMessageAvro foMsg = newTrade(nextFoCashflowID++);
+                live.add(foMsg);
+                yield foMsg;
+            }
+            case COR -> {
+                int index = random.nextInt(live.size());
+                FoCashMessageAvro foMsg = nextVersion(live.get(index), "AMEND", TradeEventAction.MODIFY);
+                foMsg.setAmount(amount());
+                live.set(index, foMsg);
+                yield foMsg;
+            }
+            case CAN -> {
+                int index = random.nextInt(live.size());
+                FoCashMessageAvro foMsg = nextVersion(live.get(index), "CANCEL", TradeEventAction.ADD);
+                // Removed without shifting the remaining elements
+                live.set(index, live.getLast());
+                live.removeLast();
+                yield foMsg;
+            }
+            case DUP -> live.get(random.nextInt(live.size()));
+        };
+    }
+
+    Map<Kind, Integer> generated() {
+        return generated;
+    }
+
+    private FoCashMessageAvro newTrade(long foCashflowID) {
+        var foMsg = new FoCashMessageAvro();
+        foMsg.setCashflowID(foCashflowID);
+        foMsg.setCashflowVersion(1);
+        foMsg.setTradeID(foCashflowID);
+        foMsg.setTradeVersion(1);
+        foMsg.setTradeType(TRADE_TYPES[random.nextInt(TRADE_TYPES.length)].name());
+        foMsg.setBookCode(BOOKS[random.nextInt(BOOKS.length)]);
+        foMsg.setCounterBookCode(null);
+        foMsg.setTransactionType(TransactionType.MARKET.name());
+        foMsg.setRate(BigDecimal.valueOf(random.nextLong(5_000_000, 2_000_000_000), 9));
+        foMsg.setValueDate(LocalDate.now().plusDays(random.nextInt(1, 365)).toString());
+        foMsg.setEntityCode(ENTITIES[random.nextInt(ENTITIES.length)]);
+        foMsg.setCounterpartyCode(RefDataNode.counterpartyCode(random.nextInt(counterparties)));
+        foMsg.setAmount(amount());
+        foMsg.setCurrCode(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+        foMsg.setPayOrReceive(random.nextBoolean() ? PayOrReceive.PAY : PayOrReceive.RECEIVE);
+        foMsg.setTradeEventType("NEW_TRADE");
+        foMsg.setTradeEventAction(TradeEventAction.ADD);
+        return foMsg;
+    }
+
+    private static FoCashMessageAvro nextVersion(FoCashMessageAvro last, String tradeEventType, TradeEventAction tradeEventAction) {
+        return FoCashMessageAvro.newBuilder(last)
+                .setCashflowVersion(last.getCashflowVersion() + 1)
+                .setTradeVersion(last.getTradeVersion() + 1)
+                .setTradeEventType(tradeEventType)
+                .setTradeEventAction(tradeEventAction)
+                .build();
+    }
+
+    /// Above the suppression amounts, so that the cashflows are not suppressed
+    private BigDecimal amount() {
+        return BigDecimal.valueOf(random.nextLong(10_000, 10_000_000_000L), 2);
+    }
+}
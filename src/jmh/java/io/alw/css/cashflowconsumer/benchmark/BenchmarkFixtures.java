@@ -0,0 +1,129 @@
+package io.alw.css.cashflowconsumer.benchmark;
+
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeLink;
+import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.domain.cashflow.TransactionType;
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.domain.common.PaymentConstants;
+import io.alw.css.domain.common.PaymentSuppressionCategory;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import io.alw.css.serialization.cashflow.PayOrReceive;
+import io.alw.css.serialization.cashflow.TradeEventAction;
+import io.alw.css.serialization.cashflow.TradeLinkAvro;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/// Synthetic, but realistic messages and cashflows for the benchmarks.
+///
+/// A fixture is an array of [#SIZE] distinct values generated from a fixed seed, so that every run measures the same data.
+/// A benchmark cycles through the array, so that a single value does not train the branch predictor and the JIT on one path only
+public final class BenchmarkFixtures {
+    public static final int SIZE = 1024;
+    public static final int MASK = SIZE - 1;
+
+    private static final long SEED = 20240101L;
+    private static final TradeType[] TRADE_TYPES = TradeType.values();
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "INR", "JPY", "CHF", "SGD", "AUD"};
+    private static final String[] ENTITIES = {"LON", "NYC", "DEL", "SIN"};
+    private static final String[] BOOKS = {"FXSPOT", "RATES1", "BONDS2", "REPO01", "OPTNY1", "PAYMT1"};
+
+    private BenchmarkFixtures() {
+    }
+
+    /// First version messages of new trades. Roughly 1 in 10 is an inter-book transaction and 1 in 4 has a trade link
+    public static FoCashMessageAvro[] firstVersionMessages() {
+        var random = new SplittableRandom(SEED);
+        var foMsgs = new FoCashMessageAvro[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            foMsgs[i] = foMsg(random, 1_000_000L + i, 1, "NEW_TRADE", TradeEventAction.ADD);
+        }
+        return foMsgs;
+    }
+
+    /// Amendments(version 2) of the messages of [#firstVersionMessages()]
+    public static FoCashMessageAvro[] amendmentMessages() {
+        var random = new SplittableRandom(SEED);
+        var foMsgs = new FoCashMessageAvro[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            foMsgs[i] = foMsg(random, 1_000_000L + i, 2, "AMEND", TradeEventAction.MODIFY);
+        }
+        return foMsgs;
+    }
+
+    /// Live cashflows as persisted for the messages of [#firstVersionMessages()]
+    public static Cashflow[] lastProcessedCashflows() {
+        var random = new SplittableRandom(SEED);
+        var cashflows = new Cashflow[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            FoCashMessageAvro foMsg = foMsg(random, 1_000_000L + i, 1, "NEW_TRADE", TradeEventAction.ADD);
+            BigDecimal amount = foMsg.getAmount().setScale(PaymentConstants.AMOUNT_SCALE, RoundingMode.HALF_DOWN);
+            cashflows[i] = CashflowBuilder.builder()
+                    .cashflowID(5_000_000L + i)
+                    .cashflowVersion(1)
+                    .latest(true)
+                    .revisionType(RevisionType.NEW)
+                    .foCashflowID(foMsg.getCashflowID())
+                    .foCashflowVersion(foMsg.getCashflowVersion())
+                    .tradeID(foMsg.getTradeID())
+                    .tradeVersion(foMsg.getTradeVersion())
+                    .tradeType(TradeType.valueOf(foMsg.getTradeType()))
+                    .bookCode(foMsg.getBookCode())
+                    .counterBookCode(foMsg.getCounterBookCode())
+                    .transactionType(TransactionType.valueOf(foMsg.getTransactionType()))
+                    .rate(foMsg.getRate().setScale(PaymentConstants.RATE_SCALE, RoundingMode.HALF_DOWN))
+                    .valueDate(LocalDate.parse(foMsg.getValueDate()))
+                    .tradeLinks(foMsg.getTradeLinks() == null ? null : foMsg.getTradeLinks().stream().map(tla -> new TradeLink(tla.getLinkType(), tla.getRelatedReference())).toList())
+                    .entityCode(foMsg.getEntityCode())
+                    .counterpartyCode(foMsg.getCounterpartyCode())
+                    .amount(foMsg.getPayOrReceive() == PayOrReceive.PAY ? amount.negate() : amount)
+                    .currCode(foMsg.getCurrCode().toUpperCase())
+                    .internal(false)
+                    .nostroID("NOS" + (i % 50))
+                    .ssiID("SSI" + (i % 500))
+                    .paymentSuppressionCategory(PaymentSuppressionCategory.NONE)
+                    .inputBy(InputBy.CSS_SYS)
+                    .inputByUserID(null)
+                    .inputDateTime(LocalDateTime.now())
+                    .build();
+        }
+        return cashflows;
+    }
+
+    private static FoCashMessageAvro foMsg(SplittableRandom random, long foCashflowID, int foCashflowVersion, String tradeEventType, TradeEventAction tradeEventAction) {
+        boolean interBook = random.nextInt(10) == 0;
+        var foMsg = new FoCashMessageAvro();
+        foMsg.setCashflowID(foCashflowID);
+        foMsg.setCashflowVersion(foCashflowVersion);
+        foMsg.setTradeID(foCashflowID / 2);
+        foMsg.setTradeVersion(foCashflowVersion);
+        foMsg.setTradeType(TRADE_TYPES[random.nextInt(TRADE_TYPES.length)].name());
+        foMsg.setBookCode(BOOKS[random.nextInt(BOOKS.length)]);
+        foMsg.setCounterBookCode(interBook ? BOOKS[random.nextInt(BOOKS.length)] : null);
+        foMsg.setTransactionType(interBook ? TransactionType.INTER_BOOK.name() : TransactionType.MARKET.name());
+        foMsg.setRate(BigDecimal.valueOf(random.nextLong(5_000_000, 2_000_000_000), 9));
+        foMsg.setValueDate(LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)).toString());
+        foMsg.setEntityCode(ENTITIES[random.nextInt(ENTITIES.length)]);
+        foMsg.setCounterpartyCode("CP" + String.format("%06d", random.nextInt(20_000)));
+        // Amounts spread over several orders of magnitude, a few of them small enough to be suppressed
+        foMsg.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000_000L), 2 + random.nextInt(4)));
+        foMsg.setCurrCode(CURRENCIES[random.nextInt(CURRENCIES.length)].toLowerCase());
+        foMsg.setPayOrReceive(random.nextBoolean() ? PayOrReceive.PAY : PayOrReceive.RECEIVE);
+        foMsg.setTradeEventType(tradeEventType);
+        foMsg.setTradeEventAction(tradeEventAction);
+        if (random.nextInt(4) == 0) {
+            var tradeLink = new TradeLinkAvro();
+            tradeLink.setLinkType("ORIGINAL_TRADE");
+            tradeLink.setRelatedReference("T" + random.nextInt(1_000_000));
+            foMsg.setTradeLinks(List.of(tradeLink));
+        }
+        return foMsg;
+    }
+}
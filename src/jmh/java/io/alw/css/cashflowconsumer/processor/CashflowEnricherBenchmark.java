@@ -0,0 +1,40 @@
+package io.alw.css.cashflowconsumer.processor;
+
+import io.alw.css.cashflowconsumer.benchmark.BenchmarkFixtures;
+import io.alw.css.cashflowconsumer.model.properties.SuppressionConfig;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/// Only the payment suppression of the enrichment is measured. The rest of the enrichment is a lookup on the Ignite cluster
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CashflowEnricherBenchmark {
+    private CashflowEnricher cashflowEnricher;
+    private CashflowBuilder[] builders;
+    private int next;
+
+    @Setup
+    public void setup() {
+        var suppressionConfig = new SuppressionConfig("{ USD:'1000.0', EUR:'1000.0', GBP:'800.0', INR:'75000.0', JPY:'150000.0' }", true);
+        cashflowEnricher = new CashflowEnricher(suppressionConfig, null);
+        var foMsgs = BenchmarkFixtures.firstVersionMessages();
+        builders = new CashflowBuilder[foMsgs.length];
+        for (int i = 0; i < foMsgs.length; i++) {
+            builders[i] = FoCashMessageMapper.mapToDomain(foMsgs[i]).cashflowBuilder();
+        }
+    }
+
+    /// The suppression category of a builder is overwritten by every invocation. Hence, the builders are reused
+    @Benchmark
+    public CashflowBuilder setPaymentSuppressionValue() {
+        CashflowBuilder builder = builders[next++ & BenchmarkFixtures.MASK];
+        cashflowEnricher.setPaymentSuppressionValue(builder);
+        return builder;
+    }
+}
@@ -0,0 +1,46 @@
+package io.alw.css.cashflowconsumer.processor;
+
+import io.alw.css.cashflowconsumer.benchmark.BenchmarkFixtures;
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/// Amendments of live cashflows, each creating a COR cashflow and the CAN cashflow offsetting the live cashflow.
+/// [CashflowVersionManager#createNonFirstVersionCF] does not access the DB. Hence, the version manager is created without a store
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CashflowVersionManagerBenchmark {
+    private CashflowVersionManager cashflowVersionManager;
+    private CashflowBuilder[] builders;
+    private Cashflow[] lastProcessedCashflows;
+    private int next;
+
+    @Setup
+    public void setup() {
+        cashflowVersionManager = new CashflowVersionManager(null, null, null);
+        FoCashMessageAvro[] foMsgs = BenchmarkFixtures.amendmentMessages();
+        builders = new CashflowBuilder[foMsgs.length];
+        for (int i = 0; i < foMsgs.length; i++) {
+            MappingResult mappingResult = FoCashMessageMapper.mapToDomain(foMsgs[i]);
+            cashflowVersionManager.computeAndSetRevisionType(mappingResult.cashflowBuilder(), mappingResult.tradeEventType(), mappingResult.tradeEventAction());
+            builders[i] = mappingResult.cashflowBuilder();
+        }
+        lastProcessedCashflows = BenchmarkFixtures.lastProcessedCashflows();
+    }
+
+    /// The builder is completed with the same values by every invocation. Hence, the builders are reused
+    @Benchmark
+    public Map<RevisionType, Cashflow> createNonFirstVersionCF() {
+        int i = next++ & BenchmarkFixtures.MASK;
+        return cashflowVersionManager.createNonFirstVersionCF(lastProcessedCashflows[i], builders[i]);
+    }
+}
@@ -0,0 +1,28 @@
+package io.alw.css.cashflowconsumer.processor;
+
+import io.alw.css.cashflowconsumer.benchmark.BenchmarkFixtures;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FoCashMessageMapperBenchmark {
+    private FoCashMessageAvro[] foMsgs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        foMsgs = BenchmarkFixtures.firstVersionMessages();
+    }
+
+    @Benchmark
+    public MappingResult mapToDomain() {
+        return FoCashMessageMapper.mapToDomain(foMsgs[next++ & BenchmarkFixtures.MASK]);
+    }
+}
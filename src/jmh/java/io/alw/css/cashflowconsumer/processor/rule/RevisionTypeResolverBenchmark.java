@@ -0,0 +1,46 @@
+package io.alw.css.cashflowconsumer.processor.rule;
+
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeEventAction;
+import io.alw.css.domain.cashflow.TradeEventType;
+import io.alw.css.domain.cashflow.TradeType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/// Cycles through the combinations of inputs that resolve to a RevisionType, for every TradeType and both first and non-first cashflows
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RevisionTypeResolverBenchmark {
+    private record Inputs(boolean firstCashflow, TradeType tradeType, TradeEventType tradeEventType, TradeEventAction tradeEventAction) {
+    }
+
+    private static final TradeEventType[] FIRST_EVENTS = {TradeEventType.NEW_TRADE, TradeEventType.REBOOK, TradeEventType.AMEND, TradeEventType.CORRECTION};
+    private static final TradeEventType[] NON_FIRST_EVENTS = {TradeEventType.AMEND, TradeEventType.BOOK_MOVE, TradeEventType.CORRECTION, TradeEventType.CANCEL};
+
+    private Inputs[] inputs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        inputs = new Inputs[64];
+        TradeType[] tradeTypes = TradeType.values();
+        for (int i = 0; i < inputs.length; i++) {
+            boolean firstCashflow = (i & 1) == 0;
+            TradeEventType tradeEventType = firstCashflow ? FIRST_EVENTS[(i >> 1) % FIRST_EVENTS.length] : NON_FIRST_EVENTS[(i >> 1) % NON_FIRST_EVENTS.length];
+            TradeEventAction tradeEventAction = tradeEventType == TradeEventType.CANCEL || tradeEventType == TradeEventType.NEW_TRADE || tradeEventType == TradeEventType.REBOOK
+                    ? TradeEventAction.ADD : TradeEventAction.MODIFY;
+            inputs[i] = new Inputs(firstCashflow, tradeTypes[(i >> 3) % tradeTypes.length], tradeEventType, tradeEventAction);
+        }
+    }
+
+    @Benchmark
+    public RevisionType resolve() {
+        Inputs in = inputs[next++ & 63];
+        return RevisionTypeResolver.resolve(in.firstCashflow(), in.tradeType(), in.tradeEventType(), in.tradeEventAction());
+    }
+}
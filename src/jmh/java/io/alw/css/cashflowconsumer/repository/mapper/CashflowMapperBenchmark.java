@@ -0,0 +1,29 @@
+package io.alw.css.cashflowconsumer.repository.mapper;
+
+import io.alw.css.cashflowconsumer.benchmark.BenchmarkFixtures;
+import io.alw.css.cashflowconsumer.model.jpa.CashflowEntity;
+import io.alw.css.domain.cashflow.Cashflow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CashflowMapperBenchmark {
+    private Cashflow[] cashflows;
+    private int next;
+
+    @Setup
+    public void setup() {
+        cashflows = BenchmarkFixtures.lastProcessedCashflows();
+    }
+
+    @Benchmark
+    public CashflowEntity mapToEntity() {
+        return CashflowMapper.mapToEntity(cashflows[next++ & BenchmarkFixtures.MASK]);
+    }
+}
@@ -2,19 +2,55 @@ package io.alw.css.cashflowconsumer.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.alw.css.cashflowconsumer.dispatcher.CashflowDispatcher;
+import io.alw.css.cashflowconsumer.dispatcher.KeyOrderedWorkerDispatcher;
+import io.alw.css.cashflowconsumer.dispatcher.SequentialDispatcher;
+import io.alw.css.cashflowconsumer.dispatcher.VirtualThreadDispatcher;
+import io.alw.css.cashflowconsumer.dispatcher.VirtualThreadPinningCheck;
+import io.alw.css.cashflowconsumer.model.properties.AuditConfig;
+import io.alw.css.cashflowconsumer.model.properties.GroupCommitConfig;
+import io.alw.css.cashflowconsumer.model.properties.IdAllocationConfig;
+import io.alw.css.cashflowconsumer.model.properties.JfrConfig;
+import io.alw.css.cashflowconsumer.model.properties.LastProcessedCashflowCacheConfig;
+import io.alw.css.cashflowconsumer.model.properties.ParkingConfig;
+import io.alw.css.cashflowconsumer.model.properties.PersistenceConfig;
+import io.alw.css.cashflowconsumer.model.properties.ProcessingConfig;
+import io.alw.css.cashflowconsumer.model.properties.ReplayConfig;
+import io.alw.css.cashflowconsumer.model.properties.RetryConfig;
+import io.alw.css.cashflowconsumer.model.properties.RefDataConfig;
+import io.alw.css.cashflowconsumer.model.properties.RejectionWriteConfig;
+import io.alw.css.cashflowconsumer.model.properties.SlowCashflowConfig;
 import io.alw.css.cashflowconsumer.model.properties.SuppressionConfig;
+import io.alw.css.cashflowconsumer.monitoring.CashflowAuditLog;
+import io.alw.css.cashflowconsumer.monitoring.FlightRecorderControl;
+import io.alw.css.cashflowconsumer.monitoring.MicrometerCashflowObserver;
+import io.alw.css.cashflowconsumer.monitoring.SlowCashflowRecorder;
 import io.alw.css.cashflowconsumer.processor.CashflowEnricher;
 import io.alw.css.cashflowconsumer.processor.CashflowVersionManager;
+import io.alw.css.cashflowconsumer.processor.pipeline.CashflowPipeline;
+import io.alw.css.cashflowconsumer.repository.CashflowJdbcBatchWriter;
+import io.alw.css.cashflowconsumer.repository.CashflowRejectionJdbcBatchWriter;
 import io.alw.css.cashflowconsumer.repository.CashflowRejectionRepository;
 import io.alw.css.cashflowconsumer.repository.CashflowRepository;
 import io.alw.css.cashflowconsumer.repository.CashflowStore;
+import io.alw.css.cashflowconsumer.repository.LastProcessedCashflowCache;
+import io.alw.css.cashflowconsumer.repository.ParkedCashflowStore;
+import io.alw.css.cashflowconsumer.repository.SequenceBlockAllocator;
 import io.alw.css.cashflowconsumer.service.CacheService;
+import io.alw.css.cashflowconsumer.service.CashflowService;
+import io.alw.css.cashflowconsumer.service.GroupCommitter;
+import io.alw.css.cashflowconsumer.service.RejectionReplayer;
+import io.alw.css.cashflowconsumer.service.RejectionWriter;
+import io.alw.css.cashflowconsumer.service.RetryPolicy;
+import io.alw.css.cashflowconsumer.service.VersionParkingBuffer;
 import io.alw.css.dbshared.tx.TXRO;
 import io.alw.css.dbshared.tx.TXRW;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.ignite.configuration.ClientConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -24,6 +60,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.client.RestTemplate;
 
@@ -33,6 +70,7 @@ import org.springframework.web.client.RestTemplate;
 @EntityScan(basePackages = "io.alw.css.cashflowconsumer.model.jpa")
 // no @EnableTransactionManagement. Declarative tx is not used. Programmatic tx is used instead
 public class AppConfig {
+    private final static Logger log = LoggerFactory.getLogger(AppConfig.class);
 
     @Bean
     public ObjectMapper objectMapper() {
@@ -65,13 +103,18 @@ public class AppConfig {
     }
 
     @Bean
-    public CacheService cacheService(ClientConfiguration clientConfiguration) {
-        return new CacheService(clientConfiguration);
+    public CacheService cacheService(ClientConfiguration clientConfiguration, RefDataConfig refDataConfig) {
+        return new CacheService(clientConfiguration, refDataConfig);
     }
 
     @Bean
-    public CashflowVersionManager cashflowVersionManager(CashflowStore cashflowStore, TXRW txrw, TXRO txro) {
-        return new CashflowVersionManager(cashflowStore, txrw, txro);
+    public CashflowVersionManager cashflowVersionManager(CashflowStore cashflowStore, @Qualifier("cashflowIdAllocator") SequenceBlockAllocator cashflowIdAllocator, TXRO txro) {
+        return new CashflowVersionManager(cashflowStore, cashflowIdAllocator, txro);
+    }
+
+    @Bean
+    public SequenceBlockAllocator cashflowIdAllocator(CashflowStore cashflowStore, TXRW txrw, IdAllocationConfig idAllocationConfig) {
+        return new SequenceBlockAllocator("cashflowID", () -> txrw.execute(_ -> cashflowStore.getNewCashflowID()), idAllocationConfig.cashflowId());
     }
 
     @Bean
@@ -79,8 +122,106 @@ public class AppConfig {
         return new CashflowEnricher(suppressionConfig, cacheService);
     }
 
+    /// Stages can be added, removed or reordered here. See [CashflowPipeline#standard]
+    @Bean
+    public CashflowPipeline cashflowPipeline(CashflowVersionManager cashflowVersionManager, CashflowEnricher cashflowEnricher) {
+        return new CashflowPipeline(CashflowPipeline.standard(cashflowVersionManager, cashflowEnricher));
+    }
+
+    /// [ProcessingConfig.Mode#VIRTUAL_THREADS] falls back to [ProcessingConfig.Mode#KEY_ORDERED_WORKERS] if the processing path has synchronized sections and the JDK pins virtual threads in them
+    @Bean
+    public CashflowDispatcher cashflowDispatcher(ProcessingConfig processingConfig) {
+        return switch (processingConfig.mode()) {
+            case SEQUENTIAL -> new SequentialDispatcher();
+            case KEY_ORDERED_WORKERS -> new KeyOrderedWorkerDispatcher(processingConfig.effectiveWorkers(), processingConfig.workerQueueCapacity());
+            case VIRTUAL_THREADS -> {
+                boolean pinningFree = VirtualThreadPinningCheck.check(CacheService.class, CashflowStore.class, CashflowEnricher.class, CashflowVersionManager.class);
+                if (!pinningFree && Runtime.version().feature() < 24) {
+                    log.warn("Processing with {} instead of {}, as the synchronized sections logged would pin the carrier threads of the virtual threads on JDK {}",
+                            ProcessingConfig.Mode.KEY_ORDERED_WORKERS, ProcessingConfig.Mode.VIRTUAL_THREADS, Runtime.version().feature());
+                    yield new KeyOrderedWorkerDispatcher(processingConfig.effectiveWorkers(), processingConfig.workerQueueCapacity());
+                }
+                yield new VirtualThreadDispatcher(processingConfig.maxInFlight());
+            }
+        };
+    }
+
+    @Bean
+    public GroupCommitter groupCommitter(TXRW txrw, GroupCommitConfig groupCommitConfig, ProcessingConfig processingConfig) {
+        return new GroupCommitter(txrw, groupCommitConfig, processingConfig.mode());
+    }
+
+    @Bean
+    public CashflowStore cashflowStore(CashflowRepository cashflowRepository, CashflowRejectionRepository cashflowRejectionRepository, LastProcessedCashflowCache lastProcessedCashflowCache,
+                                       CashflowJdbcBatchWriter cashflowJdbcBatchWriter, CashflowRejectionJdbcBatchWriter cashflowRejectionJdbcBatchWriter,
+                                       PersistenceConfig persistenceConfig) {
+        return new CashflowStore(cashflowRepository, cashflowRejectionRepository, lastProcessedCashflowCache, cashflowJdbcBatchWriter, cashflowRejectionJdbcBatchWriter, persistenceConfig);
+    }
+
+    @Bean
+    public CashflowJdbcBatchWriter cashflowJdbcBatchWriter(JdbcTemplate jdbcTemplate, @Qualifier("tradeLinkIdAllocator") SequenceBlockAllocator tradeLinkIdAllocator) {
+        return new CashflowJdbcBatchWriter(jdbcTemplate, tradeLinkIdAllocator);
+    }
+
+    /// Rejection IDs are taken from the same sequence as trade link IDs. Hence, the same allocator is used
+    @Bean
+    public CashflowRejectionJdbcBatchWriter cashflowRejectionJdbcBatchWriter(JdbcTemplate jdbcTemplate, @Qualifier("tradeLinkIdAllocator") SequenceBlockAllocator tradeLinkIdAllocator) {
+        return new CashflowRejectionJdbcBatchWriter(jdbcTemplate, tradeLinkIdAllocator);
+    }
+
+    /// Same sequence as used by [io.alw.css.cashflowconsumer.model.jpa.TradeLinkEntity]. Selected using [JdbcTemplate] and not [CashflowStore], as [CashflowStore] depends on this allocator
+    @Bean
+    public SequenceBlockAllocator tradeLinkIdAllocator(JdbcTemplate jdbcTemplate, IdAllocationConfig idAllocationConfig) {
+        return new SequenceBlockAllocator("tradeLinkID", () -> jdbcTemplate.queryForObject("select CSS.css_common_seq.nextval from dual", Long.class), idAllocationConfig.tradeLinkId());
+    }
+
+    @Bean
+    public RetryPolicy retryPolicy(RetryConfig retryConfig) {
+        return new RetryPolicy(retryConfig);
+    }
+
+    @Bean
+    public RejectionReplayer rejectionReplayer(CashflowService cashflowService, RejectionWriter rejectionWriter, CashflowStore cashflowStore, TXRO txro, TXRW txrw, ReplayConfig replayConfig) {
+        return new RejectionReplayer(cashflowService, rejectionWriter, cashflowStore, txro, txrw, replayConfig);
+    }
+
+    @Bean
+    public RejectionWriter rejectionWriter(CashflowStore cashflowStore, TXRW txrw, RejectionWriteConfig rejectionWriteConfig) {
+        return new RejectionWriter(cashflowStore, txrw, rejectionWriteConfig);
+    }
+
+    @Bean
+    public VersionParkingBuffer versionParkingBuffer(ParkingConfig parkingConfig, ParkedCashflowStore parkedCashflowStore) {
+        return new VersionParkingBuffer(parkingConfig, parkedCashflowStore);
+    }
+
+    @Bean
+    public ParkedCashflowStore parkedCashflowStore(JdbcTemplate jdbcTemplate, TXRW txrw) {
+        return new ParkedCashflowStore(jdbcTemplate, txrw);
+    }
+
+    @Bean
+    public LastProcessedCashflowCache lastProcessedCashflowCache(LastProcessedCashflowCacheConfig lastProcessedCashflowCacheConfig) {
+        return new LastProcessedCashflowCache(lastProcessedCashflowCacheConfig);
+    }
+
+    @Bean
+    public MicrometerCashflowObserver micrometerCashflowObserver(MeterRegistry meterRegistry) {
+        return new MicrometerCashflowObserver(meterRegistry);
+    }
+
+    @Bean
+    public FlightRecorderControl flightRecorderControl(JfrConfig jfrConfig) {
+        return new FlightRecorderControl(jfrConfig);
+    }
+
+    @Bean
+    public SlowCashflowRecorder slowCashflowRecorder(SlowCashflowConfig slowCashflowConfig) {
+        return new SlowCashflowRecorder(slowCashflowConfig);
+    }
+
     @Bean
-    public CashflowStore cashflowStore(CashflowRepository cashflowRepository, CashflowRejectionRepository cashflowRejectionRepository) {
-        return new CashflowStore(cashflowRepository, cashflowRejectionRepository);
+    public CashflowAuditLog cashflowAuditLog(AuditConfig auditConfig) {
+        return new CashflowAuditLog(auditConfig);
     }
 }
@@ -1,26 +1,57 @@
 package io.alw.css.cashflowconsumer.config;
 
+import io.alw.css.cashflowconsumer.model.properties.ParkingConfig;
+import io.alw.css.cashflowconsumer.repository.LastProcessedCashflowCache;
 import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
 
+import java.util.Collection;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
 public class KafkaConfig {
 
+    /// When enabled, the listener receives all the records of a poll as one batch(upto 'spring.kafka.consumer.max-poll-records') and [io.alw.css.cashflowconsumer.service.KafkaBatchCashflowConsumer] is used instead of [io.alw.css.cashflowconsumer.service.KafkaCashflowConsumer]
+    @Value("${app.kafka.listener.batch-enabled:false}")
+    boolean batchListenerEnabled;
+
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, FoCashMessageAvro> foCashMessageListenerContainerFactory(KafkaProperties kafkaProperties) {
+    public ConcurrentKafkaListenerContainerFactory<String, FoCashMessageAvro> foCashMessageListenerContainerFactory(KafkaProperties kafkaProperties, LastProcessedCashflowCache lastProcessedCashflowCache,
+                                                                                                                   ParkingConfig parkingConfig) {
         Map<String, Object> consumerProperties = kafkaProperties.buildConsumerProperties(null);
         DefaultKafkaConsumerFactory<String, FoCashMessageAvro> consumerFactory = new DefaultKafkaConsumerFactory<>(consumerProperties);
 
         ConcurrentKafkaListenerContainerFactory<String, FoCashMessageAvro> listenerContainerFactory = new ConcurrentKafkaListenerContainerFactory<>();
         listenerContainerFactory.setConsumerFactory(consumerFactory);
+        listenerContainerFactory.setBatchListener(batchListenerEnabled);
+        if (!batchListenerEnabled) {
+            // Records may be processed concurrently. They are acknowledged by the listener once processed. See 'OffsetTracker'
+            listenerContainerFactory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        }
+        if (parkingConfig.enabled()) {
+            // The expired parked messages are processed by the listener, also when no records are received. See 'VersionParkingBuffer#takeExpired'
+            listenerContainerFactory.getContainerProperties().setIdleEventInterval(parkingConfig.sweepInterval().toMillis());
+        }
+        // An assigned partition may have been processed by another instance since its last processed cashflows were cached
+        listenerContainerFactory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (!partitions.isEmpty()) {
+                    lastProcessedCashflowCache.invalidateAll();
+                }
+            }
+        });
         return listenerContainerFactory;
     }
 }
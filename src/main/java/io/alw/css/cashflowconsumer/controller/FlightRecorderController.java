@@ -0,0 +1,61 @@
+package io.alw.css.cashflowconsumer.controller;
+
+import io.alw.css.cashflowconsumer.model.FlightRecordingStatus;
+import io.alw.css.cashflowconsumer.monitoring.FlightRecorderControl;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/// Controls the JFR recording of the cashflow consumer events at runtime. The thresholds are durations, eg: `50ms`, and default to the configured ones
+@RestController
+@RequestMapping(path = "jfr", produces = MediaType.APPLICATION_JSON_VALUE)
+public class FlightRecorderController {
+    private final FlightRecorderControl flightRecorderControl;
+
+    public FlightRecorderController(FlightRecorderControl flightRecorderControl) {
+        this.flightRecorderControl = flightRecorderControl;
+    }
+
+    @PostMapping
+    public ResponseEntity<FlightRecordingStatus> start(@RequestParam(required = false) String cashflowProcessedThreshold,
+                                                       @RequestParam(required = false) String refDataQueryThreshold,
+                                                       @RequestParam(required = false) String cashflowWriteThreshold) {
+        FlightRecordingStatus status = flightRecorderControl.start(duration(cashflowProcessedThreshold), duration(refDataQueryThreshold), duration(cashflowWriteThreshold));
+        return status == null
+                ? ResponseEntity.status(HttpStatus.CONFLICT).body(flightRecorderControl.status())
+                : ResponseEntity.ok(status);
+    }
+
+    @GetMapping
+    public ResponseEntity<FlightRecordingStatus> status() {
+        FlightRecordingStatus status = flightRecorderControl.status();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    /// Dumps the recording so far to a file, without stopping it
+    @PostMapping("dump")
+    public ResponseEntity<FlightRecordingStatus> dump() {
+        FlightRecordingStatus status = flightRecorderControl.dump();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    /// Stops the recording and dumps it to a file
+    @DeleteMapping
+    public ResponseEntity<FlightRecordingStatus> stop() {
+        FlightRecordingStatus status = flightRecorderControl.stop();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    private static Duration duration(String value) {
+        return value == null ? null : DurationStyle.detectAndParse(value);
+    }
+}
@@ -0,0 +1,44 @@
+package io.alw.css.cashflowconsumer.controller;
+
+import io.alw.css.cashflowconsumer.model.ReplayProgress;
+import io.alw.css.cashflowconsumer.service.RejectionReplayer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/// Replays the replayable rejections of an exception sub category. Only one replay runs at a time
+@RestController
+@RequestMapping(path = "replay", produces = MediaType.APPLICATION_JSON_VALUE)
+public class RejectionReplayController {
+    private final RejectionReplayer rejectionReplayer;
+
+    public RejectionReplayController(RejectionReplayer rejectionReplayer) {
+        this.rejectionReplayer = rejectionReplayer;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReplayProgress> start(@RequestParam String exceptionSubCategory) {
+        ReplayProgress progress = rejectionReplayer.start(exceptionSubCategory);
+        return progress == null
+                ? ResponseEntity.status(HttpStatus.CONFLICT).body(rejectionReplayer.progress())
+                : ResponseEntity.accepted().body(progress);
+    }
+
+    @GetMapping
+    public ResponseEntity<ReplayProgress> progress() {
+        ReplayProgress progress = rejectionReplayer.progress();
+        return progress == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(progress);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ReplayProgress> cancel() {
+        ReplayProgress progress = rejectionReplayer.cancel();
+        return progress == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(progress);
+    }
+}
@@ -0,0 +1,32 @@
+package io.alw.css.cashflowconsumer.controller;
+
+import io.alw.css.cashflowconsumer.model.SlowCashflow;
+import io.alw.css.cashflowconsumer.monitoring.SlowCashflowRecorder;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/// The slowest cashflows processed recently, with the time spent in every CCPS step and the Ignite and DB calls made for them
+@RestController
+@RequestMapping(path = "slow-cashflows", produces = MediaType.APPLICATION_JSON_VALUE)
+public class SlowCashflowController {
+    private final SlowCashflowRecorder slowCashflowRecorder;
+
+    public SlowCashflowController(SlowCashflowRecorder slowCashflowRecorder) {
+        this.slowCashflowRecorder = slowCashflowRecorder;
+    }
+
+    /// @param limit when absent, all the cashflows kept are returned. Must not be negative
+    @GetMapping
+    public ResponseEntity<List<SlowCashflow>> slowest(@RequestParam(required = false) Integer limit) {
+        if (limit != null && limit < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(slowCashflowRecorder.slowest(limit == null ? Integer.MAX_VALUE : limit));
+    }
+}
@@ -0,0 +1,51 @@
+package io.alw.css.cashflowconsumer.controller;
+
+import io.alw.css.cashflowconsumer.model.properties.SuppressionConfig;
+import io.alw.css.cashflowconsumer.processor.CashflowEnricher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/// Reloads the payment suppression configuration(`app.cfc.suppress`) without a restart.
+/// The configuration is bound again from the current [Environment], hence picks up changes of any property source that is refreshed at runtime
+@RestController
+@RequestMapping(path = "suppression", produces = MediaType.APPLICATION_JSON_VALUE)
+public class SuppressionConfigController {
+    private record Response(String message, int suppressibleCurrencies) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SuppressionConfigController.class);
+    private static final String PREFIX = "app.cfc.suppress";
+
+    private final Environment environment;
+    private final CashflowEnricher cashflowEnricher;
+
+    public SuppressionConfigController(Environment environment, CashflowEnricher cashflowEnricher) {
+        this.environment = environment;
+        this.cashflowEnricher = cashflowEnricher;
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<Response> reload() {
+        SuppressionConfig suppressionConfig;
+        try {
+            suppressionConfig = Binder.get(environment).bind(PREFIX, SuppressionConfig.class).orElse(null);
+        } catch (Exception e) {
+            log.error("Failed to bind the payment suppression configuration. The current configuration is kept", e);
+            return ResponseEntity.badRequest().body(new Response("Configuration is invalid. The current configuration is kept: " + e.getMessage(), -1));
+        }
+
+        if (suppressionConfig == null) {
+            return ResponseEntity.badRequest().body(new Response("Configuration '" + PREFIX + "' does not exist. The current configuration is kept", -1));
+        }
+
+        int suppressibleCurrencies = cashflowEnricher.reloadSuppressionConfig(suppressionConfig);
+        return ResponseEntity.ok(new Response("Reloaded", suppressibleCurrencies));
+    }
+}
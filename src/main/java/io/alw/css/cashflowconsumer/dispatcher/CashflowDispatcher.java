@@ -0,0 +1,17 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+/// Hands over the processing of a message to the thread(s) that process it.
+///
+/// Versions of the same FO cashflow must be processed in order(see [io.alw.css.cashflowconsumer.processor.CashflowVersionManager]), but messages of unrelated foCashflowIDs need not be.
+/// Hence, the tasks dispatched for the same foCashflowID run one after the other in the order of dispatch, while tasks of different foCashflowIDs may run concurrently.
+///
+/// A task must handle its own failures, Ex: by seeking back to its record. See [OffsetTracker]. A failure escaping the task is only logged
+public interface CashflowDispatcher extends AutoCloseable {
+
+    /// Blocks the caller when the dispatcher cannot accept more tasks
+    void dispatch(long foCashflowID, Runnable task);
+
+    /// Stops accepting tasks and waits for the dispatched tasks to complete
+    @Override
+    void close();
+}
@@ -0,0 +1,69 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/// Fans out the tasks to a fixed number of single threaded workers. The worker is chosen by the foCashflowID, so all the tasks of a foCashflowID run on the same worker, in the order of dispatch.
+///
+/// Every worker has a bounded queue. When the queue of a worker is full, the caller(listener thread) blocks until there is space in the queue
+public final class KeyOrderedWorkerDispatcher implements CashflowDispatcher {
+    private final static Logger log = LoggerFactory.getLogger(KeyOrderedWorkerDispatcher.class);
+
+    private final ThreadPoolExecutor[] workers;
+
+    public KeyOrderedWorkerDispatcher(int numOfWorkers, int queueCapacity) {
+        this.workers = new ThreadPoolExecutor[numOfWorkers];
+        for (int i = 0; i < numOfWorkers; i++) {
+            String threadName = "cf-worker-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    r -> new Thread(r, threadName),
+                    KeyOrderedWorkerDispatcher::waitForSpaceInQueue);
+        }
+        log.info("Started {} key ordered workers with a queue capacity of {}", numOfWorkers, queueCapacity);
+    }
+
+    @Override
+    public void dispatch(long foCashflowID, Runnable task) {
+        workers[Math.floorMod(Long.hashCode(foCashflowID), workers.length)].execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Unexpected failure when processing the message of foCashflowID: {}", foCashflowID, e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        for (ThreadPoolExecutor worker : workers) {
+            try {
+                if (!worker.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Worker did not complete the dispatched tasks in 30 seconds. Remaining tasks: {}", worker.getQueue().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void waitForSpaceInQueue(Runnable task, ThreadPoolExecutor worker) {
+        if (worker.isShutdown()) {
+            throw new RejectedExecutionException("Worker is shut down");
+        }
+        try {
+            worker.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for space in the worker queue", e);
+        }
+    }
+}
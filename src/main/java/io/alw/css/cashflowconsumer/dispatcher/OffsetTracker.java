@@ -0,0 +1,173 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/// Acknowledges the records of a partition only up to the lowest offset that is fully processed.
+///
+/// When the records of a partition are processed concurrently, a record can complete before a record with a lower offset.
+/// Acknowledging such a record would commit the offset past the record that is still being processed, which is then lost if the consumer stops.
+/// Therefore, the acknowledgement of a completed record is held back until all the records with a lower offset are completed as well.
+///
+/// A record that fails to be processed is never acknowledged. Instead, the partition is sought back to it, so that it is consumed again along with the records after it.
+/// The records after it that are in progress or are already received are not acknowledged, and are processed again once consumed again.
+/// The ones not started yet are discarded, see [TrackedRecord#discarded()], so that a later version of a cashflow is not processed before the failed version is consumed again.
+///
+/// NOTE: Records that are in progress during a rebalance are consumed again by the new owner of the partition. They are then detected as duplicates by [io.alw.css.cashflowconsumer.processor.CashflowVersionManager]
+public final class OffsetTracker {
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final BiConsumer<TopicPartition, Long> seekBack;
+
+    /// @param seekBack seeks the consumer of the partition to the offset, so that the records from the offset are consumed again. Called from any thread
+    public OffsetTracker(BiConsumer<TopicPartition, Long> seekBack) {
+        this.seekBack = seekBack;
+    }
+
+    /// Must be called by the listener thread, in the order the records are received and before the record is dispatched
+    ///
+    /// @return null if the record must not be processed, because the partition is sought back to a failed record with a lower offset. The record is consumed again after the seek
+    public TrackedRecord track(String topic, int partition, long offset, Acknowledgment ack) {
+        var topicPartition = new TopicPartition(topic, partition);
+        PartitionOffsets partitionOffsets = partitions.computeIfAbsent(topicPartition, _ -> new PartitionOffsets(topicPartition, seekBack));
+        return partitionOffsets.add(offset, ack);
+    }
+
+    /// Forgets the records of the partitions. The records in progress are neither acknowledged nor sought back to, as they are consumed again by the new owner of the partition
+    public void revoke(Collection<TopicPartition> revokedPartitions) {
+        revokedPartitions.forEach(topicPartition -> {
+            PartitionOffsets partitionOffsets = partitions.remove(topicPartition);
+            if (partitionOffsets != null) {
+                partitionOffsets.revoke();
+            }
+        });
+    }
+
+    public interface TrackedRecord {
+        /// The record is fully processed. It is acknowledged once the records with a lower offset are processed as well
+        void processed();
+
+        /// The record failed to be processed. The partition is sought back to it
+        void failed();
+
+        /// @return true if the record must not be processed, as it is consumed again after a seek back to a failed record with a lower or same offset, or after a rebalance
+        boolean discarded();
+    }
+
+    private static final class PartitionOffsets {
+        private final TopicPartition topicPartition;
+        private final BiConsumer<TopicPartition, Long> seekBack;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TreeMap<Long, PendingRecord> pendingRecords = new TreeMap<>();
+        /// Offset the partition is sought back to, -1 if none. The records with a higher offset received until the record at this offset is received again are the ones received before the seek
+        private long seekOffset = -1;
+        private boolean revoked;
+
+        PartitionOffsets(TopicPartition topicPartition, BiConsumer<TopicPartition, Long> seekBack) {
+            this.topicPartition = topicPartition;
+            this.seekBack = seekBack;
+        }
+
+        PendingRecord add(long offset, Acknowledgment ack) {
+            lock.lock();
+            try {
+                if (seekOffset >= 0) {
+                    if (offset > seekOffset) {
+                        return null;
+                    }
+                    seekOffset = -1;
+                }
+                var pendingRecord = new PendingRecord(this, offset, ack);
+                pendingRecords.put(offset, pendingRecord);
+                return pendingRecord;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /// The acknowledgement is done while holding the lock, so that the committed offset of a partition never goes backwards.
+        /// Acknowledging from a thread other than the listener thread only queues the ack, which is committed by the listener thread
+        void complete(PendingRecord completedRecord) {
+            lock.lock();
+            try {
+                if (revoked || pendingRecords.get(completedRecord.offset) != completedRecord) {
+                    return; // Consumed again after a seek or a rebalance
+                }
+                completedRecord.completed = true;
+
+                Acknowledgment highestContiguousAck = null;
+                while (!pendingRecords.isEmpty() && pendingRecords.firstEntry().getValue().completed) {
+                    highestContiguousAck = pendingRecords.pollFirstEntry().getValue().ack;
+                }
+                if (highestContiguousAck != null) {
+                    highestContiguousAck.acknowledge();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /// Forgets the failed record and the records after it, as all of them are consumed again after the seek
+        void fail(PendingRecord failedRecord) {
+            lock.lock();
+            try {
+                if (revoked || pendingRecords.get(failedRecord.offset) != failedRecord) {
+                    return; // Consumed again after a seek or a rebalance
+                }
+                Map<Long, PendingRecord> consumedAgain = pendingRecords.tailMap(failedRecord.offset, true);
+                consumedAgain.values().forEach(pendingRecord -> pendingRecord.discarded = true);
+                consumedAgain.clear();
+                seekOffset = failedRecord.offset;
+                seekBack.accept(topicPartition, failedRecord.offset);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void revoke() {
+            lock.lock();
+            try {
+                revoked = true;
+                pendingRecords.values().forEach(pendingRecord -> pendingRecord.discarded = true);
+                pendingRecords.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class PendingRecord implements TrackedRecord {
+        private final PartitionOffsets partitionOffsets;
+        private final long offset;
+        private final Acknowledgment ack;
+        private boolean completed;
+        private volatile boolean discarded;
+
+        PendingRecord(PartitionOffsets partitionOffsets, long offset, Acknowledgment ack) {
+            this.partitionOffsets = partitionOffsets;
+            this.offset = offset;
+            this.ack = ack;
+        }
+
+        @Override
+        public void processed() {
+            partitionOffsets.complete(this);
+        }
+
+        @Override
+        public void failed() {
+            partitionOffsets.fail(this);
+        }
+
+        @Override
+        public boolean discarded() {
+            return discarded;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+/// Runs the task on the caller thread, which is the listener thread
+public final class SequentialDispatcher implements CashflowDispatcher {
+
+    @Override
+    public void dispatch(long foCashflowID, Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,84 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/// Runs every task on its own virtual thread. Processing a cashflow is mostly waiting for the DB and Ignite, so a virtual thread per message
+/// permits thousands of messages in progress without sizing a platform thread pool.
+///
+/// - Ordering: a task is chained to the last dispatched task of the same foCashflowID and starts only after that task completes
+/// - Bounded: at most `maxInFlight` tasks, including the chained ones, are in progress. The caller(listener thread) blocks when the limit is reached
+///
+/// NOTE: A virtual thread that blocks inside a synchronized section pins its carrier thread. See [VirtualThreadPinningCheck]
+public final class VirtualThreadDispatcher implements CashflowDispatcher {
+    private final static Logger log = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Semaphore inFlightPermits;
+    private final Map<Long, CompletableFuture<Void>> lastTaskPerFoCashflowID;
+    private volatile boolean closed;
+
+    public VirtualThreadDispatcher(int maxInFlight) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cf-vt-", 0).factory());
+        this.maxInFlight = maxInFlight;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.lastTaskPerFoCashflowID = new ConcurrentHashMap<>();
+        log.info("Processing messages on virtual threads with at most {} messages in flight", maxInFlight);
+    }
+
+    @Override
+    public void dispatch(long foCashflowID, Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("Dispatcher is closed");
+        }
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for an in-flight permit", e);
+        }
+
+        Runnable guardedTask = () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Unexpected failure when processing the message of foCashflowID: {}", foCashflowID, e);
+            } finally {
+                inFlightPermits.release();
+            }
+        };
+
+        // The guarded task never completes exceptionally, hence the chained task always runs
+        CompletableFuture<Void> dispatchedTask = lastTaskPerFoCashflowID.compute(foCashflowID, (_, lastTask) -> lastTask == null
+                ? CompletableFuture.runAsync(guardedTask, executor)
+                : lastTask.thenRunAsync(guardedTask, executor));
+        dispatchedTask.whenComplete((_, _) -> lastTaskPerFoCashflowID.remove(foCashflowID, dispatchedTask));
+    }
+
+    /// A chained task is submitted to the executor only once its preceding task completes. Hence, the executor is shut down only after every dispatched task has completed,
+    /// which is when every in-flight permit is released. Otherwise, the chained tasks still to be submitted would be rejected by the executor and never run
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (inFlightPermits.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+                inFlightPermits.release(maxInFlight);
+            } else {
+                log.warn("Virtual threads did not complete the dispatched tasks in 30 seconds. Messages in flight: {}", maxInFlight - inFlightPermits.availablePermits());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+    }
+}
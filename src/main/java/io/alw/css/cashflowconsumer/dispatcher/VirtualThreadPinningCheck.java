@@ -0,0 +1,75 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.SpringAsmInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/// Until JDK 24(JEP 491), a virtual thread that blocks inside a synchronized method or block pins its carrier thread.
+/// When the processing path blocks on the DB or Ignite inside a synchronized section, the carrier threads are exhausted and virtual threads stop scaling.
+///
+/// This check inspects the bytecode of the given classes for synchronized methods and synchronized blocks(monitorenter).
+/// It does not inspect the libraries(JDBC driver, Ignite client). Use the JFR event 'jdk.VirtualThreadPinned' to find pinning in them.
+public final class VirtualThreadPinningCheck {
+    private final static Logger log = LoggerFactory.getLogger(VirtualThreadPinningCheck.class);
+
+    /// Logs a warning for every synchronized section found in the given classes
+    ///
+    /// @return true if no synchronized section is found
+    public static boolean check(Class<?>... classes) {
+        boolean pinningFree = true;
+        for (Class<?> clazz : classes) {
+            List<String> synchronizedSections = findSynchronizedSections(clazz);
+            if (!synchronizedSections.isEmpty()) {
+                pinningFree = false;
+                log.warn("Synchronized sections found in {}, which may pin carrier threads of virtual threads: {}", clazz.getName(), synchronizedSections);
+            }
+        }
+        if (Runtime.version().feature() < 24) {
+            log.info("Running on JDK {}. Virtual threads are pinned when blocked inside synchronized sections. Record the JFR event 'jdk.VirtualThreadPinned' to detect pinning in libraries", Runtime.version().feature());
+        }
+        return pinningFree;
+    }
+
+    /// @return 'ClassName#methodName' of every method that is synchronized or has a synchronized block
+    public static List<String> findSynchronizedSections(Class<?> clazz) {
+        String classFile = clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = clazz.getClassLoader().getResourceAsStream(classFile)) {
+            if (in == null) {
+                throw new IllegalStateException("Unable to read class file: " + classFile);
+            }
+
+            Set<String> synchronizedSections = new LinkedHashSet<>();
+            new ClassReader(in).accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    String method = clazz.getSimpleName() + "#" + name;
+                    if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+                        synchronizedSections.add(method);
+                    }
+                    return new MethodVisitor(SpringAsmInfo.ASM_VERSION) {
+                        @Override
+                        public void visitInsn(int opcode) {
+                            if (opcode == Opcodes.MONITORENTER) {
+                                synchronizedSections.add(method);
+                            }
+                        }
+                    };
+                }
+            }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return List.copyOf(synchronizedSections);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
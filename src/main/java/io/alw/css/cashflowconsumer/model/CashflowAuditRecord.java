@@ -0,0 +1,42 @@
+package io.alw.css.cashflowconsumer.model;
+
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.domain.common.PaymentSuppressionCategory;
+
+import java.time.Instant;
+
+/// An audit record of a processed message, as read by [io.alw.css.cashflowconsumer.monitoring.CashflowAuditReader]
+///
+/// @param processedAt                when the processing ended
+/// @param tradeType                  null if the message has an invalid trade type
+/// @param outcome                    null if the processing failed unexpectedly, before an outcome was decided
+/// @param checkOutcome               simple name of the [io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome], null if the version is not checked
+/// @param revisionType               null if not resolved
+/// @param cashflowID                 0 unless [CashflowTrace.Outcome#PERSISTED]. For a non-first version, of the COR cashflow, or of the CAN cashflow if there is no COR cashflow
+/// @param nostroID                   null if not enriched
+/// @param nostroOverridden           true if the primary nostro is overridden by the secondary nostro configured in the counterparty profile
+/// @param paymentSuppressionCategory null if not set
+/// @param rejectionSubCategory       null unless [CashflowTrace.Outcome#REJECTED]
+/// @param totalMillis                time from the receipt of the message to the end of its processing
+public record CashflowAuditRecord(
+        Instant processedAt,
+        long foCashflowID,
+        int foCashflowVersion,
+        long tradeID,
+        int tradeVersion,
+        TradeType tradeType,
+        CashflowTrace.Outcome outcome,
+        String checkOutcome,
+        RevisionType revisionType,
+        long cashflowID,
+        int cashflowVersion,
+        String nostroID,
+        boolean nostroOverridden,
+        PaymentSuppressionCategory paymentSuppressionCategory,
+        String rejectionSubCategory,
+        int numOfRetries,
+        double totalMillis
+) {
+}
@@ -0,0 +1,11 @@
+package io.alw.css.cashflowconsumer.model;
+
+/// An invalid field of a [io.alw.css.serialization.cashflow.FoCashMessageAvro]
+///
+/// @param exceptionSubCategory one of [io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType]
+public record FieldError(
+        String field,
+        String exceptionSubCategory,
+        String msg
+) {
+}
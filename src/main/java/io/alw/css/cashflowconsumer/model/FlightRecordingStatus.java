@@ -0,0 +1,20 @@
+package io.alw.css.cashflowconsumer.model;
+
+import jdk.jfr.RecordingState;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/// @param startTime    null if not started yet
+/// @param lastDumpPath path of the last dump of the recording, null if never dumped
+public record FlightRecordingStatus(
+        String name,
+        RecordingState state,
+        Instant startTime,
+        String settings,
+        Duration cashflowProcessedThreshold,
+        Duration refDataQueryThreshold,
+        Duration cashflowWriteThreshold,
+        String lastDumpPath
+) {
+}
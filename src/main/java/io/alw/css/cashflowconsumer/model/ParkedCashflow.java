@@ -0,0 +1,18 @@
+package io.alw.css.cashflowconsumer.model;
+
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+
+import java.time.LocalDateTime;
+
+/// A message parked until the preceding version of the cashflow is processed
+///
+/// @param foMsg   null in the in-memory index of [io.alw.css.cashflowconsumer.service.VersionParkingBuffer] when spilled
+/// @param spilled true if the message is held in the CSS.PARKED_CASHFLOW table
+public record ParkedCashflow(
+        FoCashMessageAvro foMsg,
+        InputBy inputBy,
+        LocalDateTime parkedDateTime,
+        boolean spilled
+) {
+}
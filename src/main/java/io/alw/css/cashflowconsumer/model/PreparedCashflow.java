@@ -0,0 +1,21 @@
+package io.alw.css.cashflowconsumer.model;
+
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+
+import java.util.Map;
+
+/// A cashflow that is validated, enriched and created from a [FoCashMessageAvro], but not yet persisted
+///
+/// @param cashflows             NEW cashflow for a first version. COR+CAN or CAN cashflows for a non-first version
+/// @param lastProcessedCashflow null for a first version
+public record PreparedCashflow(
+        FoCashMessageAvro foMsg,
+        Map<RevisionType, Cashflow> cashflows,
+        Cashflow lastProcessedCashflow
+) {
+    public boolean firstVersion() {
+        return lastProcessedCashflow == null;
+    }
+}
@@ -0,0 +1,34 @@
+package io.alw.css.cashflowconsumer.model;
+
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.domain.exception.ExceptionCategory;
+import io.alw.css.domain.exception.ExceptionType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType.INVALID_MESSAGE;
+
+/// Reason of a rejection that is decided without throwing a [io.alw.css.domain.exception.CategorizedRuntimeException]
+///
+/// rejectedBy is the [InputBy] recorded on the rejection. If null, the rejection is recorded with the InputBy of the message being processed
+public record RejectionReason(
+        ExceptionType exceptionType,
+        ExceptionCategory exceptionCategory,
+        String exceptionSubCategory,
+        String msg,
+        boolean replayable,
+        InputBy rejectedBy
+) {
+
+    public RejectionReason(ExceptionType exceptionType, ExceptionCategory exceptionCategory, String exceptionSubCategory, String msg, boolean replayable) {
+        this(exceptionType, exceptionCategory, exceptionSubCategory, msg, replayable, null);
+    }
+
+    /// All invalid fields are reported in the msg. The exceptionSubCategory is the one of the field if only one field is invalid, otherwise INVALID_MESSAGE
+    public static RejectionReason ofFieldErrors(List<FieldError> fieldErrors) {
+        String exceptionSubCategory = fieldErrors.size() == 1 ? fieldErrors.getFirst().exceptionSubCategory() : INVALID_MESSAGE;
+        String msg = fieldErrors.stream().map(FieldError::msg).collect(Collectors.joining("; "));
+        return new RejectionReason(ExceptionType.TECHNICAL, ExceptionCategory.UNRECOVERABLE, exceptionSubCategory, msg, false);
+    }
+}
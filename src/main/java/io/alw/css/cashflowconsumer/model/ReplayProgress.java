@@ -0,0 +1,25 @@
+package io.alw.css.cashflowconsumer.model;
+
+import java.time.LocalDateTime;
+
+/// Progress of a replay of the rejections of one exception sub category
+///
+/// @param read     rejections read from the DB
+/// @param replayed rejections processed again. A replayed message that fails again is rejected anew
+/// @param failed   rejections that could not be processed again. Ex: the stored message cannot be decoded
+public record ReplayProgress(
+        String exceptionSubCategory,
+        State state,
+        long read,
+        long replayed,
+        long failed,
+        LocalDateTime startedDateTime,
+        LocalDateTime endedDateTime
+) {
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+}
@@ -0,0 +1,15 @@
+package io.alw.css.cashflowconsumer.model;
+
+import io.alw.css.domain.common.InputBy;
+
+/// A replayable [io.alw.css.cashflowconsumer.model.jpa.CashflowRejectionEntity] with only the fields needed to replay it
+///
+/// @param numOfRetries null if the message has not been retried
+/// @param foMessage    the rejected message, Avro encoded
+public record ReplayableRejection(
+        Long id,
+        InputBy inputBy,
+        Integer numOfRetries,
+        byte[] foMessage
+) {
+}
@@ -0,0 +1,31 @@
+package io.alw.css.cashflowconsumer.model;
+
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/// A cashflow kept by [io.alw.css.cashflowconsumer.monitoring.SlowCashflowRecorder]. All times are in millis
+///
+/// @param processedAt when the processing ended
+/// @param stepMillis  time spent in every [CcpsStep] the message went through
+/// @param calls       the Ignite and DB calls made for the message, in the order they were made
+public record SlowCashflow(
+        long foCashflowID,
+        int foCashflowVersion,
+        String tradeType,
+        CashflowTrace.Outcome outcome,
+        String checkOutcome,
+        String revisionType,
+        String rejectionSubCategory,
+        int numOfRetries,
+        Instant processedAt,
+        double totalMillis,
+        Map<CcpsStep, Double> stepMillis,
+        List<Call> calls
+) {
+    public record Call(String name, double millis) {
+    }
+}
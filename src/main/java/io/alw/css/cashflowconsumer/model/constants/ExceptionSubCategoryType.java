@@ -26,4 +26,5 @@ public interface ExceptionSubCategoryType {
     String INACTIVE_CURRENCY = "INACTIVE_CURRENCY";
 
     String CF_PERSISTENCE_FAILURE = "CASHFLOW_PERSISTENCE_FAILURE";
+    String MULTIPLE_LATEST_CASHFLOWS = "MULTIPLE_LATEST_CASHFLOWS";
 }
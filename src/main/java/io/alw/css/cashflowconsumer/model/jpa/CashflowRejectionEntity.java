@@ -80,6 +80,11 @@ public class CashflowRejectionEntity {
     @Column(name = "UPDATED_DATE_TIME")
     LocalDateTime updatedDateTime;
 
+    /// The rejected message, Avro encoded. See [io.alw.css.cashflowconsumer.util.FoCashMessageCodec]. Needed to replay the rejection
+    @Lob
+    @Column(name = "FO_MESSAGE")
+    byte[] foMessage;
+
     public Long getId() {
         return id;
     }
@@ -260,6 +265,15 @@ public class CashflowRejectionEntity {
         return this;
     }
 
+    public byte[] getFoMessage() {
+        return foMessage;
+    }
+
+    public CashflowRejectionEntity setFoMessage(byte[] foMessage) {
+        this.foMessage = foMessage;
+        return this;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
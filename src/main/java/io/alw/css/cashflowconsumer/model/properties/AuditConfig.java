@@ -0,0 +1,20 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/// Configuration of [io.alw.css.cashflowconsumer.monitoring.CashflowAuditLog]
+///
+/// @param enabled     writes one audit record per processed message
+/// @param directory   directory of the audit files
+/// @param segmentSize size of an audit file. A new file is started once the current one is full. At most 1GB
+/// @param maxSegments number of audit files kept. The oldest file is deleted once a new file is started beyond this number
+@ConfigurationProperties("app.cfc.audit")
+public record AuditConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("audit") String directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("32") int maxSegments
+) {
+}
@@ -0,0 +1,18 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/// Configuration of [io.alw.css.cashflowconsumer.service.GroupCommitter]
+///
+/// @param maxGroupSize maximum number of cashflows persisted in one transaction
+/// @param maxWait      maximum time the first cashflow of a group waits for more cashflows to join the group
+@ConfigurationProperties("app.cfc.group-commit")
+public record GroupCommitConfig(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("50") int maxGroupSize,
+        @DefaultValue("5ms") Duration maxWait
+) {
+}
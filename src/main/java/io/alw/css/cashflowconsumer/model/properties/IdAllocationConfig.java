@@ -0,0 +1,34 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/// Configuration of the IDs reserved in blocks from DB sequences. See [io.alw.css.cashflowconsumer.repository.SequenceBlockAllocator]
+///
+/// **NOTE**: All the instances of cashflow-consumer must use the same strategy and block size for a sequence
+///
+/// @param tradeLinkId used only by [PersistenceConfig.Mode#JDBC_BATCH], for the IDs of CSS.TRADE_LINK and CSS.CASHFLOW_REJECTION, both taken from CSS.css_common_seq.
+///                    A block size greater than 1 with [Strategy#HILO] must not be used while any other writer of these tables takes IDs from the sequence one at a time(Ex: an instance using [PersistenceConfig.Mode#JPA]),
+///                    as such an ID falls within a block already reserved
+@ConfigurationProperties("app.cfc.id-allocation")
+public record IdAllocationConfig(
+        @DefaultValue BlockConfig cashflowId,
+        @DefaultValue BlockConfig tradeLinkId
+) {
+
+    /// @param blockSize              number of IDs reserved per sequence round-trip. A block size of 1 reserves one ID per round-trip, synchronously
+    /// @param refillThresholdPercent percentage of the block to be used before the next block is reserved asynchronously
+    public record BlockConfig(
+            @DefaultValue("POOLED") Strategy strategy,
+            @DefaultValue("1") int blockSize,
+            @DefaultValue("50") int refillThresholdPercent
+    ) {
+    }
+
+    public enum Strategy {
+        /// The DB sequence is incremented by the block size(INCREMENT BY must be equal to the block size). nextval N reserves the IDs N to N+blockSize-1
+        POOLED,
+        /// The DB sequence is incremented by 1. nextval N reserves the IDs N*blockSize to N*blockSize+blockSize-1. Does not need a change of the DB sequence
+        HILO
+    }
+}
@@ -0,0 +1,30 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/// Configuration of the JFR recording controlled by [io.alw.css.cashflowconsumer.monitoring.FlightRecorderControl]
+///
+/// @param startOnStartup             starts the recording once the application is started. Otherwise, it is started by `POST /jfr`
+/// @param settings                   JFR settings the recording is based on. `default` is meant to be always on. `profile` records more, at a higher overhead
+/// @param cashflowProcessedThreshold only the messages processed in longer than this are recorded
+/// @param refDataQueryThreshold      only the Ignite queries longer than this are recorded
+/// @param cashflowWriteThreshold     only the DB writes longer than this are recorded
+/// @param maxAge                     data older than this is discarded from the recording
+/// @param maxSize                    data beyond this size is discarded from the recording, oldest first
+/// @param dumpDirectory              directory the recording is dumped to
+@ConfigurationProperties("app.cfc.jfr")
+public record JfrConfig(
+        @DefaultValue("false") boolean startOnStartup,
+        @DefaultValue("default") String settings,
+        @DefaultValue("50ms") Duration cashflowProcessedThreshold,
+        @DefaultValue("10ms") Duration refDataQueryThreshold,
+        @DefaultValue("20ms") Duration cashflowWriteThreshold,
+        @DefaultValue("6h") Duration maxAge,
+        @DefaultValue("256MB") DataSize maxSize,
+        @DefaultValue(".") String dumpDirectory
+) {
+}
@@ -0,0 +1,18 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/// Configuration of [io.alw.css.cashflowconsumer.repository.LastProcessedCashflowCache]
+///
+/// @param maximumSize      maximum number of foCashflowIDs cached. Least recently used entries are evicted beyond this size
+/// @param expireAfterWrite an entry is evicted once this duration elapses after it is cached. Bounds how long an entry can be stale
+@ConfigurationProperties("app.cfc.last-processed-cashflow-cache")
+public record LastProcessedCashflowCacheConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("10m") Duration expireAfterWrite
+) {
+}
@@ -0,0 +1,23 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/// Configuration of [io.alw.css.cashflowconsumer.service.VersionParkingBuffer]
+///
+/// @param maxInMemory   number of parked messages held in memory. Any more are spilled to the CSS.PARKED_CASHFLOW table. Zero, the default, spills every parked message before it is acknowledged.
+///                      A message held in memory is acknowledged too, hence it is lost if the process dies
+/// @param maxParked     number of parked messages, in memory and spilled. Once reached, a message is processed as is instead of being parked
+/// @param timeout       time a message stays parked. Once elapsed, the message is processed as is, which rejects it if the preceding version is still not processed
+/// @param sweepInterval interval at which the parked messages are checked for the timeout. Also the idle event interval of the listener container, so that the expired messages are processed when no records are received
+@ConfigurationProperties("app.cfc.parking")
+public record ParkingConfig(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0") int maxInMemory,
+        @DefaultValue("100000") int maxParked,
+        @DefaultValue("5m") Duration timeout,
+        @DefaultValue("10s") Duration sweepInterval
+) {
+}
@@ -0,0 +1,18 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/// Configuration of how the cashflows and their trade links are inserted into the DB
+@ConfigurationProperties("app.cfc.persistence")
+public record PersistenceConfig(
+        @DefaultValue("JPA") Mode mode
+) {
+
+    public enum Mode {
+        /// One `CashflowRepository.save` per cashflow. Hibernate fetches a trade link ID from the DB sequence per trade link
+        JPA,
+        /// Cashflows and trade links are inserted as JDBC batches. Trade link IDs are reserved in blocks, configured by `app.cfc.id-allocation.trade-link-id`. See [io.alw.css.cashflowconsumer.repository.CashflowJdbcBatchWriter]
+        JDBC_BATCH
+    }
+}
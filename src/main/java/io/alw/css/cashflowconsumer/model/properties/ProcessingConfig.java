@@ -0,0 +1,29 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/// @param mode                how the consumed messages are handed over to [io.alw.css.cashflowconsumer.service.CashflowService]
+/// @param workers             number of worker threads for [Mode#KEY_ORDERED_WORKERS]. When zero or negative, the number of available processors is used
+/// @param workerQueueCapacity number of messages that can wait for a worker. The listener thread blocks when the queue of a worker is full
+/// @param maxInFlight         number of messages that can be in progress at any time for [Mode#VIRTUAL_THREADS]. The listener thread blocks when the limit is reached
+@ConfigurationProperties("app.cfc.processing")
+public record ProcessingConfig(
+        @DefaultValue("SEQUENTIAL") Mode mode,
+        @DefaultValue("0") int workers,
+        @DefaultValue("256") int workerQueueCapacity,
+        @DefaultValue("2000") int maxInFlight
+) {
+    public enum Mode {
+        /// Messages are processed one after the other on the listener thread
+        SEQUENTIAL,
+        /// Messages are fanned out to a fixed number of worker threads keyed by foCashflowID
+        KEY_ORDERED_WORKERS,
+        /// Every message is processed on its own virtual thread. Messages of the same foCashflowID are chained one after the other
+        VIRTUAL_THREADS
+    }
+
+    public int effectiveWorkers() {
+        return workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,58 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/// Configuration of the reference data held locally by [io.alw.css.cashflowconsumer.service.CacheService]
+///
+/// @param cacheNames names of the Ignite caches of the reference data SQL tables. Used to listen to the changes of the reference data using continuous queries
+@ConfigurationProperties("app.cfc.refdata")
+public record RefDataConfig(
+        @DefaultValue LocalCacheConfig localCache,
+        @DefaultValue SsiNearCacheConfig ssiNearCache,
+        @DefaultValue NostroIndexConfig nostroIndex,
+        @DefaultValue CacheNames cacheNames
+) {
+
+    /// Currency and entity data held locally in full
+    ///
+    /// @param liveRefresh         applies the changes of the currency and entity caches as they happen. When false, the data is loaded only once at startup
+    /// @param resubscribeInterval interval at which listening to the changes is attempted again, after listening failed. The data is reloaded in full once listening succeeds again
+    public record LocalCacheConfig(
+            @DefaultValue("true") boolean liveRefresh,
+            @DefaultValue("30s") Duration resubscribeInterval
+    ) {
+    }
+
+    /// @param maximumSize         maximum number of (counterpartyCode, currCode, tradeType, primary) lookups cached
+    /// @param expireAfterWrite    an entry is evicted once this duration elapses after it is cached, irrespective of change notifications
+    /// @param resubscribeInterval minimum interval between attempts to listen again to the reference data changes, after listening failed. The near cache is bypassed meanwhile
+    public record SsiNearCacheConfig(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("10000") long maximumSize,
+            @DefaultValue("1h") Duration expireAfterWrite,
+            @DefaultValue("30s") Duration resubscribeInterval
+    ) {
+    }
+
+    /// @param rebuildDelay        delay before the index is rebuilt after a change. Changes within the delay are applied by the same rebuild
+    /// @param resubscribeInterval same as [SsiNearCacheConfig#resubscribeInterval()]
+    public record NostroIndexConfig(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("500ms") Duration rebuildDelay,
+            @DefaultValue("30s") Duration resubscribeInterval
+    ) {
+    }
+
+    public record CacheNames(
+            @DefaultValue("COUNTERPARTY") String counterparty,
+            @DefaultValue("SSI") String ssi,
+            @DefaultValue("NOSTRO") String nostro,
+            @DefaultValue("CounterpartySlaMapping") String counterpartySlaMapping,
+            @DefaultValue("CURRENCY") String currency,
+            @DefaultValue("ENTITY") String entity
+    ) {
+    }
+}
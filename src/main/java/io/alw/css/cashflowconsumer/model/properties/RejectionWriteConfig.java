@@ -0,0 +1,23 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/// Configuration of [io.alw.css.cashflowconsumer.service.RejectionWriter]
+///
+/// @param enabled       when false, every rejection is saved in its own transaction by the thread rejecting the message
+/// @param maxBatchSize  maximum number of rejections inserted in one transaction
+/// @param maxWait       maximum time the first rejection of a batch waits for more rejections to join the batch
+/// @param queueCapacity number of rejections that can wait to be written. A thread rejecting a message blocks when the queue is full
+/// @param maxRetries    times a rejection failing to be written in its own transaction is written again, before it is given up and its message is consumed again
+@ConfigurationProperties("app.cfc.rejection-write")
+public record RejectionWriteConfig(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("200") int maxBatchSize,
+        @DefaultValue("10ms") Duration maxWait,
+        @DefaultValue("2000") int queueCapacity,
+        @DefaultValue("3") int maxRetries
+) {
+}
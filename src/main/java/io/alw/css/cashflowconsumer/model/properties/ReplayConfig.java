@@ -0,0 +1,19 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/// Configuration of [io.alw.css.cashflowconsumer.service.RejectionReplayer]
+///
+/// @param concurrency      number of rejections replayed at the same time
+/// @param maxRatePerSecond number of rejections replayed per second, at most. Zero or negative for no limit
+/// @param pageSize         number of rejections read from the DB in one query
+/// @param updateBatchSize  number of replayed rejections updated in the DB in one transaction
+@ConfigurationProperties("app.cfc.replay")
+public record ReplayConfig(
+        @DefaultValue("8") int concurrency,
+        @DefaultValue("100") int maxRatePerSecond,
+        @DefaultValue("500") int pageSize,
+        @DefaultValue("500") int updateBatchSize
+) {
+}
@@ -0,0 +1,23 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Set;
+
+/// Configuration of [io.alw.css.cashflowconsumer.service.RetryPolicy]
+///
+/// @param maxRetries             number of times a message is processed again before it is rejected. Zero disables the retries.
+///                               In batch mode, a message of a batch failing before it is persisted is taken out of the batch and retried on its own
+/// @param initialBackoff         backoff before the first retry. Doubled for every further retry
+/// @param maxBackoff             upper bound of the backoff
+/// @param retryableSubCategories exception sub categories of RECOVERABLE exceptions that are retried. See [io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType]
+@ConfigurationProperties("app.cfc.retry")
+public record RetryConfig(
+        @DefaultValue("3") int maxRetries,
+        @DefaultValue("20ms") Duration initialBackoff,
+        @DefaultValue("500ms") Duration maxBackoff,
+        @DefaultValue("CASHFLOW_PERSISTENCE_FAILURE") Set<String> retryableSubCategories
+) {
+}
@@ -0,0 +1,20 @@
+package io.alw.css.cashflowconsumer.model.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/// Configuration of [io.alw.css.cashflowconsumer.monitoring.SlowCashflowRecorder]
+///
+/// @param topN    number of slowest cashflows kept per bucket, and returned at most
+/// @param window  how far back the slowest cashflows are kept
+/// @param buckets number of buckets the window is split into. The window slides by one bucket at a time
+@ConfigurationProperties("app.cfc.slow-cashflow")
+public record SlowCashflowConfig(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int topN,
+        @DefaultValue("5m") Duration window,
+        @DefaultValue("10") int buckets
+) {
+}
@@ -15,24 +15,16 @@ public class SuppressionConfig {
     //    @Value("#{${app.cfc.suppress.uptoAmount}}")
     private final Map<String, BigDecimal> suppressibleCurrToAmountMap;
     private final boolean suppressInterbookTX;
-    private final BigDecimal highestSuppressibleAmount;
 
     @ConstructorBinding
     public SuppressionConfig(String uptoAmount, Boolean interbookTx) {
         this.suppressibleCurrToAmountMap = new HashMap<>();
         this.suppressInterbookTX = interbookTx;
 
-        BigDecimal[] highestAmount = new BigDecimal[]{new BigDecimal("0.0")};
-
         getUptoAmountAsMap(uptoAmount).forEach((curr, amountStr) -> {
             BigDecimal amount = new BigDecimal(amountStr).abs(); // BigDecimal is created by passing a String, which is correct
-            if (amount.compareTo(highestAmount[0]) > 0) {
-                highestAmount[0] = amount;
-            }
             this.suppressibleCurrToAmountMap.put(curr.toUpperCase(Locale.ROOT), amount);
         });
-
-        this.highestSuppressibleAmount = highestAmount[0];
     }
 
     private Map<String, String> getUptoAmountAsMap(String uptoAmount) {
@@ -61,9 +53,4 @@ public class SuppressionConfig {
     public boolean suppressInterbookTX() {
         return suppressInterbookTX;
     }
-
-    /// highest suppressible amount irrespective of currCode
-    public BigDecimal highestSuppressibleAmount() {
-        return highestSuppressibleAmount;
-    }
 }
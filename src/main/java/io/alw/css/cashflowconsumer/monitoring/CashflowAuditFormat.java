@@ -0,0 +1,175 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.CashflowAuditRecord;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.domain.common.PaymentSuppressionCategory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/// Binary format of the audit files written by [CashflowAuditLog] and read by [CashflowAuditReader]. All values are little-endian.
+///
+/// A file starts with a header of [#HEADER_SIZE] bytes, followed by records of [#RECORD_SIZE] bytes:
+///
+/// | Offset | Size | Header field                         | Record field                                     |
+/// |--------|------|--------------------------------------|--------------------------------------------------|
+/// | 0      | 4    | [#FILE_MAGIC]                        | [#RECORD_MARKER], written last                   |
+/// | 4      | 1    |                                      | outcome, ordinal + 1. 0 if none                  |
+/// | 5      | 1    |                                      | revisionType, ordinal + 1. 0 if none             |
+/// | 6      | 1    |                                      | tradeType, ordinal + 1. 0 if invalid             |
+/// | 7      | 1    |                                      | paymentSuppressionCategory, ordinal + 1. 0 if none |
+/// | 8      | 8    | [#FORMAT_VERSION], [#RECORD_SIZE]    | processedAt, epoch millis                        |
+/// | 16     | 8    | file creation time, epoch millis     | foCashflowID                                     |
+/// | 24     | 4    |                                      | foCashflowVersion                                |
+/// | 28     | 4    |                                      | tradeVersion                                     |
+/// | 32     | 8    |                                      | tradeID                                          |
+/// | 40     | 8    |                                      | cashflowID                                       |
+/// | 48     | 4    |                                      | cashflowVersion                                  |
+/// | 52     | 2    |                                      | numOfRetries                                     |
+/// | 54     | 1    |                                      | nostroOverridden, 0 or 1                         |
+/// | 56     | 8    |                                      | total processing time, nanos                     |
+/// | 64     | 16   |                                      | nostroID, ASCII, zero padded                     |
+/// | 80     | 24   |                                      | checkOutcome, ASCII, zero padded                 |
+/// | 104    | 36   |                                      | rejectionSubCategory, ASCII, zero padded         |
+/// | 140    | 4    |                                      | checksum of the bytes 4 to 140                   |
+///
+/// A record is read only if both its marker and its checksum are written. The marker alone is not enough: the Java memory model does not
+/// order the writes for a reader in another process, and after a crash of the OS the pages of a record spanning two pages may be written to disk in any order.
+///
+/// The enums are stored by ordinal. Hence, [#FORMAT_VERSION] must be incremented when the order of their constants changes
+final class CashflowAuditFormat {
+    static final int FILE_MAGIC = 0x41464343; // "CCFA"
+    static final int FORMAT_VERSION = 2;
+    static final int RECORD_MARKER = 0x31524643; // "CFR1"
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 144;
+    static final String FILE_PREFIX = "cashflow-audit-";
+    static final String FILE_SUFFIX = ".cfa";
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final CashflowTrace.Outcome[] OUTCOMES = CashflowTrace.Outcome.values();
+    private static final RevisionType[] REVISION_TYPES = RevisionType.values();
+    private static final TradeType[] TRADE_TYPES = TradeType.values();
+    private static final PaymentSuppressionCategory[] PAYMENT_SUPPRESSION_CATEGORIES = PaymentSuppressionCategory.values();
+
+    private CashflowAuditFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer, long createdAtMillis) {
+        buffer.putInt(0, FILE_MAGIC);
+        buffer.putInt(8, FORMAT_VERSION);
+        buffer.putInt(12, RECORD_SIZE);
+        buffer.putLong(16, createdAtMillis);
+    }
+
+    /// @return null if the header is valid, else the reason why not
+    static String validateHeader(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != FILE_MAGIC) {
+            return "not an audit file";
+        } else if (buffer.getInt(8) != FORMAT_VERSION || buffer.getInt(12) != RECORD_SIZE) {
+            return "unsupported format version " + buffer.getInt(8);
+        }
+        return null;
+    }
+
+    /// Writes the record without allocating. The checksum and then the marker are written last, so that a partially written record is never read,
+    /// even by another process
+    ///
+    /// @param tradeType null if invalid
+    static void write(ByteBuffer buffer, int offset, CashflowTrace trace, TradeType tradeType, long processedAtMillis) {
+        buffer.put(offset + 4, ordinal(trace.outcome()));
+        buffer.put(offset + 5, ordinal(trace.revisionType()));
+        buffer.put(offset + 6, ordinal(tradeType));
+        buffer.put(offset + 7, ordinal(trace.paymentSuppressionCategory()));
+        buffer.putLong(offset + 8, processedAtMillis);
+        buffer.putLong(offset + 16, trace.foCashflowID());
+        buffer.putInt(offset + 24, trace.foCashflowVersion());
+        buffer.putInt(offset + 28, trace.tradeVersion());
+        buffer.putLong(offset + 32, trace.tradeID());
+        buffer.putLong(offset + 40, trace.cashflowID());
+        buffer.putInt(offset + 48, trace.cashflowVersion());
+        buffer.putShort(offset + 52, (short) Math.min(trace.numOfRetries(), Short.MAX_VALUE));
+        buffer.put(offset + 54, (byte) (trace.nostroOverridden() ? 1 : 0));
+        buffer.putLong(offset + 56, trace.totalNanos());
+        putAscii(buffer, offset + 64, 16, trace.nostroID());
+        putAscii(buffer, offset + 80, 24, trace.checkOutcome());
+        putAscii(buffer, offset + 104, 36, trace.rejectionSubCategory());
+        buffer.putInt(offset + 140, checksum(buffer, offset));
+        INT.setRelease(buffer, offset, RECORD_MARKER);
+    }
+
+    /// @return false if no record is written at the offset yet, or it is partially written
+    static boolean isWritten(ByteBuffer buffer, int offset) {
+        return (int) INT.getAcquire(buffer, offset) == RECORD_MARKER && buffer.getInt(offset + 140) == checksum(buffer, offset);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        long hash = 0;
+        for (int i = 4; i < 140; i += 8) {
+            hash = (hash ^ buffer.getLong(offset + i)) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    static CashflowAuditRecord read(ByteBuffer buffer, int offset) {
+        return new CashflowAuditRecord(
+                Instant.ofEpochMilli(buffer.getLong(offset + 8)),
+                buffer.getLong(offset + 16),
+                buffer.getInt(offset + 24),
+                buffer.getLong(offset + 32),
+                buffer.getInt(offset + 28),
+                constant(TRADE_TYPES, buffer.get(offset + 6)),
+                constant(OUTCOMES, buffer.get(offset + 4)),
+                getAscii(buffer, offset + 80, 24),
+                constant(REVISION_TYPES, buffer.get(offset + 5)),
+                buffer.getLong(offset + 40),
+                buffer.getInt(offset + 48),
+                getAscii(buffer, offset + 64, 16),
+                buffer.get(offset + 54) == 1,
+                constant(PAYMENT_SUPPRESSION_CATEGORIES, buffer.get(offset + 7)),
+                getAscii(buffer, offset + 104, 36),
+                buffer.getShort(offset + 52),
+                buffer.getLong(offset + 56) / 1_000_000.0
+        );
+    }
+
+    private static byte ordinal(Enum<?> constant) {
+        return (byte) (constant == null ? 0 : constant.ordinal() + 1);
+    }
+
+    private static <E> E constant(E[] constants, byte ordinal) {
+        int index = (ordinal & 0xFF) - 1;
+        return index >= 0 && index < constants.length ? constants[index] : null;
+    }
+
+    /// Truncated to the length of the field. A non-ASCII char is written as '?'
+    private static void putAscii(ByteBuffer buffer, int offset, int length, String value) {
+        int numOfChars = value == null ? 0 : Math.min(value.length(), length);
+        for (int i = 0; i < numOfChars; i++) {
+            char c = value.charAt(i);
+            buffer.put(offset + i, (byte) (c < 128 ? c : '?'));
+        }
+        for (int i = numOfChars; i < length; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    /// @return null if empty
+    private static String getAscii(ByteBuffer buffer, int offset, int length) {
+        int numOfChars = 0;
+        while (numOfChars < length && buffer.get(offset + numOfChars) != 0) {
+            numOfChars++;
+        }
+        if (numOfChars == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[numOfChars];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,157 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.properties.AuditConfig;
+import io.alw.css.cashflowconsumer.util.EnumLookup;
+import io.alw.css.domain.cashflow.TradeType;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Audits every processed message as one fixed size binary record, in memory-mapped files rolled by size. See [CashflowAuditFormat] for the format and [CashflowAuditReader] to query the records.
+///
+/// It replaces the per message info logging: a record is written by the processing thread in place, without formatting, boxing or a system call, and without allocating.
+/// The writing of the mapped pages to disk is left to the OS, asynchronously. Hence, the records written are not lost when the application crashes, though they are when the OS crashes.
+///
+/// Concurrent processing threads claim their records in the current file with a CAS, so they do not wait for each other.
+/// The lock is taken only to start a new file once the current one is full
+public final class CashflowAuditLog implements CashflowProcessingObserver, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CashflowAuditLog.class);
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    private static final EnumLookup<TradeType> tradeTypes = EnumLookup.of(TradeType.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Segment segment; // null until initialized, or once closed or failed
+    private long lastSegmentMillis;
+
+    public CashflowAuditLog(AuditConfig auditConfig) {
+        this.enabled = auditConfig.enabled();
+        this.directory = Path.of(auditConfig.directory()).toAbsolutePath();
+        long recordsPerSegment = (Math.min(auditConfig.segmentSize().toBytes(), MAX_SEGMENT_SIZE) - CashflowAuditFormat.HEADER_SIZE) / CashflowAuditFormat.RECORD_SIZE;
+        this.segmentSize = CashflowAuditFormat.HEADER_SIZE + (int) Math.max(1, recordsPerSegment) * CashflowAuditFormat.RECORD_SIZE;
+        this.maxSegments = Math.max(1, auditConfig.maxSegments());
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            log.info("Cashflow audit is disabled");
+            return;
+        }
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            segment = newSegment();
+            log.info("Cashflow audit directory: {}, segmentSize: {}, maxSegments: {}", directory, segmentSize, maxSegments);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Unable to start the cashflow audit in directory {}. Processed messages are not audited. Msg: {}", directory, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onProcessed(CashflowTrace trace) {
+        long processedAtMillis = System.currentTimeMillis();
+        Segment current = segment;
+        while (current != null) {
+            int offset = current.claim();
+            if (offset >= 0) {
+                CashflowAuditFormat.write(current.buffer, offset, trace, tradeTypes.get(trace.tradeType()), processedAtMillis);
+                return;
+            }
+            current = roll(current);
+        }
+    }
+
+    /// Flushes the current file to disk. Records written afterwards are not audited
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.buffer.force();
+                segment = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// Starts a new file unless another thread already did, and deletes the oldest files beyond [AuditConfig#maxSegments()]
+    ///
+    /// @return the current segment, null if a new file cannot be started
+    private Segment roll(Segment full) {
+        lock.lock();
+        try {
+            if (segment != full) {
+                return segment;
+            }
+            try {
+                segment = newSegment();
+                deleteOldSegments();
+            } catch (IOException | UncheckedIOException e) {
+                segment = null;
+                log.error("Unable to start a new cashflow audit file in directory {}. Processed messages are not audited anymore. Msg: {}", directory, e.getMessage());
+            }
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// The file is named by its creation time, so that the files sort by name in the order they are written
+    private Segment newSegment() throws IOException {
+        long createdAtMillis = Math.max(System.currentTimeMillis(), lastSegmentMillis + 1);
+        lastSegmentMillis = createdAtMillis;
+        Path path = directory.resolve(CashflowAuditFormat.FILE_PREFIX + createdAtMillis + CashflowAuditFormat.FILE_SUFFIX);
+        // The mapping remains valid after the channel is closed. It is released once the buffer is garbage collected
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            CashflowAuditFormat.writeHeader(buffer, createdAtMillis);
+            return new Segment(buffer);
+        }
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = CashflowAuditReader.segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            try {
+                Files.deleteIfExists(segments.get(i));
+            } catch (IOException e) {
+                log.warn("Unable to delete old cashflow audit file {}. Msg: {}", segments.get(i), e.getMessage());
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger nextOffset = new AtomicInteger(CashflowAuditFormat.HEADER_SIZE);
+
+        private Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /// @return offset of the record claimed, -1 if the segment is full
+        private int claim() {
+            int offset = nextOffset.getAndAdd(CashflowAuditFormat.RECORD_SIZE);
+            return offset >= 0 && offset <= buffer.capacity() - CashflowAuditFormat.RECORD_SIZE ? offset : -1;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.CashflowAuditRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/// Queries the audit files written by [CashflowAuditLog]. The files can be read while they are being written, by the application itself or by another process.
+///
+/// Also a command line tool printing the matching records as CSV. Ex:
+/// ```
+/// java -cp cashflow-consumer.jar -Dloader.main=io.alw.css.cashflowconsumer.monitoring.CashflowAuditReader org.springframework.boot.loader.launch.PropertiesLauncher \
+///     --dir=audit --fo-cashflow-id=1001 --from=2026-10-18T09:00:00Z --outcome=REJECTED
+/// ```
+///
+/// A file that cannot be read, Ex: written by a version of the application with another [CashflowAuditFormat#FORMAT_VERSION], is skipped and reported, so that the other files are still read
+public final class CashflowAuditReader {
+    private static final Logger log = LoggerFactory.getLogger(CashflowAuditReader.class);
+    private static final String CSV_HEADER = "processedAt,foCashflowID,foCashflowVersion,tradeID,tradeVersion,tradeType,outcome,checkOutcome,revisionType,cashflowID,cashflowVersion,nostroID,nostroOverridden,paymentSuppressionCategory,rejectionSubCategory,numOfRetries,totalMillis";
+
+    private final Path directory;
+    private final Consumer<String> skippedSegmentReporter;
+
+    public CashflowAuditReader(Path directory) {
+        this(directory, log::warn);
+    }
+
+    /// @param skippedSegmentReporter reports a skipped file, with the reason why it is skipped
+    public CashflowAuditReader(Path directory, Consumer<String> skippedSegmentReporter) {
+        this.directory = directory;
+        this.skippedSegmentReporter = skippedSegmentReporter;
+    }
+
+    /// Passes the records matching the filter to the consumer, oldest file first and in the order they are written within a file
+    ///
+    /// @return number of records passed to the consumer
+    public long read(Predicate<CashflowAuditRecord> filter, Consumer<CashflowAuditRecord> consumer) throws IOException {
+        long numOfRecords = 0;
+        for (Path segment : segments(directory)) {
+            numOfRecords += read(segment, filter, consumer);
+        }
+        return numOfRecords;
+    }
+
+    /// @return the audit files of the directory sorted by name, which is the order they are written. Empty if the directory does not exist
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(CashflowAuditFormat.FILE_PREFIX) && name.endsWith(CashflowAuditFormat.FILE_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /// A file deleted by [CashflowAuditLog] while it is being read is skipped
+    private long read(Path segment, Predicate<CashflowAuditRecord> filter, Consumer<CashflowAuditRecord> consumer) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException _) {
+            return 0;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        String invalidHeader = CashflowAuditFormat.validateHeader(buffer);
+        if (invalidHeader != null) {
+            skippedSegmentReporter.accept("Skipping " + segment + ": " + invalidHeader);
+            return 0;
+        }
+
+        long numOfRecords = 0;
+        for (int offset = CashflowAuditFormat.HEADER_SIZE; offset <= buffer.capacity() - CashflowAuditFormat.RECORD_SIZE; offset += CashflowAuditFormat.RECORD_SIZE) {
+            // Records are claimed in order, but a record can be written after the next one. Hence, the records after an unwritten one are read as well
+            if (CashflowAuditFormat.isWritten(buffer, offset)) {
+                CashflowAuditRecord record = CashflowAuditFormat.read(buffer, offset);
+                if (filter.test(record)) {
+                    consumer.accept(record);
+                    numOfRecords++;
+                }
+            }
+        }
+        return numOfRecords;
+    }
+
+    /// Options, all optional:
+    /// - `--dir`: directory of the audit files. Default: `audit`
+    /// - `--fo-cashflow-id`, `--fo-cashflow-version`, `--trade-id`, `--cashflow-id`: exact match
+    /// - `--outcome`: one of [CashflowTrace.Outcome]
+    /// - `--rejection-sub-category`: exact match
+    /// - `--from`, `--to`: ISO-8601 instants. Records processed from, inclusive, and to, exclusive
+    /// - `--min-millis`: records processed in at least this many millis
+    /// - `--limit`: at most this many records are printed
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                System.err.println("Invalid option: " + arg + ". Expected --name=value");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        Predicate<CashflowAuditRecord> filter = filter(options);
+        long limit = options.containsKey("limit") ? Long.parseLong(options.get("limit")) : Long.MAX_VALUE;
+        PrintStream out = System.out;
+        out.println(CSV_HEADER);
+        long[] numOfPrinted = {0};
+        // Not logged, so that the CSV printed to stdout is not mixed with the log
+        new CashflowAuditReader(Path.of(options.getOrDefault("dir", "audit")), System.err::println).read(filter.and(_ -> numOfPrinted[0] < limit), record -> {
+            out.println(toCsv(record));
+            numOfPrinted[0]++;
+        });
+        out.flush();
+    }
+
+    private static Predicate<CashflowAuditRecord> filter(Map<String, String> options) {
+        Predicate<CashflowAuditRecord> filter = _ -> true;
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            filter = filter.and(switch (option.getKey()) {
+                case "dir", "limit" -> _ -> true;
+                case "fo-cashflow-id" -> {
+                    long foCashflowID = Long.parseLong(value);
+                    yield record -> record.foCashflowID() == foCashflowID;
+                }
+                case "fo-cashflow-version" -> {
+                    int foCashflowVersion = Integer.parseInt(value);
+                    yield record -> record.foCashflowVersion() == foCashflowVersion;
+                }
+                case "trade-id" -> {
+                    long tradeID = Long.parseLong(value);
+                    yield record -> record.tradeID() == tradeID;
+                }
+                case "cashflow-id" -> {
+                    long cashflowID = Long.parseLong(value);
+                    yield record -> record.cashflowID() == cashflowID;
+                }
+                case "outcome" -> {
+                    CashflowTrace.Outcome outcome = CashflowTrace.Outcome.valueOf(value);
+                    yield record -> record.outcome() == outcome;
+                }
+                case "rejection-sub-category" -> record -> value.equals(record.rejectionSubCategory());
+                case "from" -> {
+                    Instant from = Instant.parse(value);
+                    yield record -> !record.processedAt().isBefore(from);
+                }
+                case "to" -> {
+                    Instant to = Instant.parse(value);
+                    yield record -> record.processedAt().isBefore(to);
+                }
+                case "min-millis" -> {
+                    double minMillis = Double.parseDouble(value);
+                    yield record -> record.totalMillis() >= minMillis;
+                }
+                default -> throw new IllegalArgumentException("Unknown option: --" + option.getKey());
+            });
+        }
+        return filter;
+    }
+
+    private static String toCsv(CashflowAuditRecord r) {
+        return r.processedAt() + "," + r.foCashflowID() + "," + r.foCashflowVersion() + "," + r.tradeID() + "," + r.tradeVersion() + "," + csv(r.tradeType()) + "," + csv(r.outcome()) + "," +
+                csv(r.checkOutcome()) + "," + csv(r.revisionType()) + "," + r.cashflowID() + "," + r.cashflowVersion() + "," + csv(r.nostroID()) + "," + r.nostroOverridden() + "," +
+                csv(r.paymentSuppressionCategory()) + "," + csv(r.rejectionSubCategory()) + "," + r.numOfRetries() + "," + String.format(Locale.ROOT, "%.3f", r.totalMillis());
+    }
+
+    private static String csv(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
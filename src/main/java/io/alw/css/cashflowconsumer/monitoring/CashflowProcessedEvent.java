@@ -0,0 +1,101 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/// JFR event of a message processed by [io.alw.css.cashflowconsumer.service.CashflowService], with the time spent in every [CcpsStep].
+///
+/// The event spans the processing of the message, from the start of its [CashflowTrace] to its end. [CcpsStep#CONSUME] is before that, and is a field only.
+/// Begun only while a recording enables it, so that no event is allocated otherwise. See [FlightRecorderControl]
+@Name(CashflowProcessedEvent.NAME)
+@Label("Cashflow Processed")
+@Description("A message processed by the cashflow consumer")
+@Category({"CSS", "Cashflow Consumer"})
+@Threshold("50 ms")
+@StackTrace(false)
+public final class CashflowProcessedEvent extends jdk.jfr.Event {
+    public static final String NAME = "io.alw.css.cfc.CashflowProcessed";
+    private static final EventType TYPE = EventType.getEventType(CashflowProcessedEvent.class);
+
+    @Label("FO Cashflow ID")
+    long foCashflowID;
+    @Label("FO Cashflow Version")
+    int foCashflowVersion;
+    @Label("Trade Type")
+    String tradeType;
+    @Label("Outcome")
+    String outcome;
+    @Label("Version Check Outcome")
+    String checkOutcome;
+    @Label("Revision Type")
+    String revisionType;
+    @Label("Rejection Sub Category")
+    String rejectionSubCategory;
+    @Label("Retries")
+    int numOfRetries;
+    @Label("Consume")
+    @Timespan(Timespan.NANOSECONDS)
+    long consume;
+    @Label("Map")
+    @Timespan(Timespan.NANOSECONDS)
+    long map;
+    @Label("Determine Version")
+    @Timespan(Timespan.NANOSECONDS)
+    long determineVersion;
+    @Label("Reference Data Validation")
+    @Timespan(Timespan.NANOSECONDS)
+    long refDataValidation;
+    @Label("Enrich And Create")
+    @Timespan(Timespan.NANOSECONDS)
+    long enrichAndCreate;
+    @Label("ID Allocation")
+    @Timespan(Timespan.NANOSECONDS)
+    long idAllocation;
+    @Label("Persist")
+    @Timespan(Timespan.NANOSECONDS)
+    long persist;
+    @Label("Reject")
+    @Timespan(Timespan.NANOSECONDS)
+    long reject;
+
+    /// @return null if no recording enables this event
+    static CashflowProcessedEvent beginIfEnabled() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        var event = new CashflowProcessedEvent();
+        event.begin();
+        return event;
+    }
+
+    /// Commits the event if it lasted longer than the threshold of the recording
+    void commit(CashflowTrace trace) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        foCashflowID = trace.foCashflowID();
+        foCashflowVersion = trace.foCashflowVersion();
+        tradeType = trace.tradeType();
+        outcome = trace.outcome() == null ? null : trace.outcome().name();
+        checkOutcome = trace.checkOutcome();
+        revisionType = trace.revisionType() == null ? null : trace.revisionType().name();
+        rejectionSubCategory = trace.rejectionSubCategory();
+        numOfRetries = trace.numOfRetries();
+        consume = trace.stepNanos(CcpsStep.CONSUME);
+        map = trace.stepNanos(CcpsStep.MAP);
+        determineVersion = trace.stepNanos(CcpsStep.DETERMINE_VERSION);
+        refDataValidation = trace.stepNanos(CcpsStep.REF_DATA_VALIDATION);
+        enrichAndCreate = trace.stepNanos(CcpsStep.ENRICH_AND_CREATE);
+        idAllocation = trace.stepNanos(CcpsStep.ID_ALLOCATION);
+        persist = trace.stepNanos(CcpsStep.PERSIST);
+        reject = trace.stepNanos(CcpsStep.REJECT);
+        commit();
+    }
+}
@@ -0,0 +1,36 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/// Notified of every message processed by [io.alw.css.cashflowconsumer.service.CashflowService], with the [CashflowTrace] of the message.
+///
+/// Called on the thread processing the message, after the outcome is decided. Hence, an observer must be cheap and must not block.
+/// Every bean of this type is notified. See [#of(List)]
+@FunctionalInterface
+public interface CashflowProcessingObserver {
+    CashflowProcessingObserver NONE = _ -> {
+    };
+
+    void onProcessed(CashflowTrace trace);
+
+    /// A failing observer is logged and does not affect the processing of the message or the other observers
+    static CashflowProcessingObserver of(List<CashflowProcessingObserver> observers) {
+        if (observers.isEmpty()) {
+            return NONE;
+        }
+        List<CashflowProcessingObserver> all = List.copyOf(observers);
+        Logger log = LoggerFactory.getLogger(CashflowProcessingObserver.class);
+        return trace -> {
+            for (CashflowProcessingObserver observer : all) {
+                try {
+                    observer.onProcessed(trace);
+                } catch (Exception e) {
+                    log.warn("CashflowProcessingObserver {} failed. FoCashflowID-Ver: {}-{}. Msg: {}", observer.getClass().getSimpleName(), trace.foCashflowID(), trace.foCashflowVersion(), e.getMessage());
+                }
+            }
+        };
+    }
+}
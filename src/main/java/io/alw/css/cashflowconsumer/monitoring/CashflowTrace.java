@@ -0,0 +1,275 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.common.PaymentSuppressionCategory;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/// Time spent by one message in every [CcpsStep], and the outcome of its processing.
+///
+/// A trace is used by one thread at a time: the thread processing the message. Retries of the message add to the same trace.
+/// A [CashflowProcessedEvent] spans the trace while a JFR recording enables it
+///
+/// The Ignite and DB calls made for the message are recorded by the code making them, to the trace that is current for the thread. See [#recordCall(String, long)].
+/// A call can be made on another thread, such as an async lookup. Such a call is recorded concurrently, and is visible once the processing thread joins it
+///
+/// The decisions of the processing, such as the nostro enriched and the cashflow persisted, are kept for [CashflowAuditLog]
+public final class CashflowTrace {
+    private static final int MAX_CALLS = 16;
+    private static final ThreadLocal<CashflowTrace> CURRENT = new ThreadLocal<>();
+
+    public enum Outcome {
+        PERSISTED,
+        /// Duplicate or already superseded. Nothing is persisted
+        SKIPPED,
+        /// Parked until its preceding version is persisted. The released message is traced on its own
+        PARKED,
+        REJECTED
+    }
+
+    /// @param name  what is called. Ex: `Ignite: SSI query`
+    /// @param nanos time taken by the call
+    public record Call(String name, long nanos) {
+    }
+
+    private final long foCashflowID;
+    private final int foCashflowVersion;
+    private final String tradeType;
+    private final long tradeID;
+    private final int tradeVersion;
+    private final long receivedNanos;
+    private final long[] stepNanos = new long[CcpsStep.all().length];
+    private final CashflowProcessedEvent event; // null unless enabled
+    private final Call[] calls = new Call[MAX_CALLS];
+    private final AtomicInteger numOfCalls = new AtomicInteger();
+    private long endNanos;
+    private int numOfRetries;
+    private Outcome outcome;
+    private String rejectionSubCategory;
+    private String checkOutcome;
+    private RevisionType revisionType;
+    private String nostroID;
+    private boolean nostroOverridden;
+    private PaymentSuppressionCategory paymentSuppressionCategory;
+    private long cashflowID;
+    private int cashflowVersion;
+
+    private CashflowTrace(long foCashflowID, int foCashflowVersion, String tradeType, long tradeID, int tradeVersion, long receivedNanos) {
+        this.foCashflowID = foCashflowID;
+        this.foCashflowVersion = foCashflowVersion;
+        this.tradeType = tradeType;
+        this.tradeID = tradeID;
+        this.tradeVersion = tradeVersion;
+        this.receivedNanos = receivedNanos;
+        this.event = CashflowProcessedEvent.beginIfEnabled();
+    }
+
+    /// Starts the trace of a message whose processing starts now
+    ///
+    /// @param receivedNanos [System#nanoTime()] at which the message was received. The time since then is accounted to [CcpsStep#CONSUME]
+    public static CashflowTrace start(FoCashMessageAvro foMsg, long receivedNanos) {
+        var trace = new CashflowTrace(foMsg.getCashflowID(), foMsg.getCashflowVersion(), foMsg.getTradeType(), foMsg.getTradeID(), foMsg.getTradeVersion(), receivedNanos);
+        trace.stepNanos[CcpsStep.CONSUME.ordinal()] = System.nanoTime() - receivedNanos;
+        return trace;
+    }
+
+    /// @return trace of the message being processed by the current thread, null if none
+    public static CashflowTrace current() {
+        return CURRENT.get();
+    }
+
+    /// Records a call made since `startNanos` to the current trace, if any. Only the first calls of a message are recorded
+    public static void recordCall(String name, long startNanos) {
+        CashflowTrace trace = CURRENT.get();
+        if (trace != null) {
+            int index = trace.numOfCalls.getAndIncrement();
+            if (index < MAX_CALLS) {
+                trace.calls[index] = new Call(name, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /// Records the nostro enriched to the current trace, if any
+    ///
+    /// @param overridden true if the primary nostro is overridden by the secondary nostro configured in the counterparty profile
+    public static void recordNostro(String nostroID, boolean overridden) {
+        CashflowTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.nostroID = nostroID;
+            trace.nostroOverridden = overridden;
+        }
+    }
+
+    /// Records the payment suppression category set to the current trace, if any
+    public static void recordPaymentSuppression(PaymentSuppressionCategory paymentSuppressionCategory) {
+        CashflowTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.paymentSuppressionCategory = paymentSuppressionCategory;
+        }
+    }
+
+    /// Runs the action with this trace as the current trace of the thread. The previous current trace, if any, is restored afterwards
+    public void runAsCurrent(Runnable action) {
+        callAsCurrent(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /// Same as [#runAsCurrent(Runnable)], for an action returning a result
+    public <T> T callAsCurrent(Supplier<T> action) {
+        CashflowTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /// Adds the time elapsed since `startNanos` to the step
+    public void add(CcpsStep step, long startNanos) {
+        stepNanos[step.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    /// Sum of the time added to all the steps so far
+    public long tracedNanos() {
+        long tracedNanos = 0;
+        for (long nanos : stepNanos) {
+            tracedNanos += nanos;
+        }
+        return tracedNanos;
+    }
+
+    /// @param checkOutcome simple name of the [io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome], null if the version is not checked
+    /// @param revisionType null if not resolved
+    public void classify(String checkOutcome, RevisionType revisionType) {
+        this.checkOutcome = checkOutcome;
+        this.revisionType = revisionType;
+    }
+
+    public void retried() {
+        numOfRetries++;
+    }
+
+    public void outcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    /// @param cashflowID      of the cashflow persisted. For a non-first version, of the COR cashflow, or of the CAN cashflow if there is no COR cashflow
+    /// @param cashflowVersion same as `cashflowID`
+    public void persisted(long cashflowID, int cashflowVersion) {
+        this.outcome = Outcome.PERSISTED;
+        this.cashflowID = cashflowID;
+        this.cashflowVersion = cashflowVersion;
+    }
+
+    public void rejected(String exceptionSubCategory) {
+        this.outcome = Outcome.REJECTED;
+        this.rejectionSubCategory = exceptionSubCategory;
+    }
+
+    public void end() {
+        endNanos = System.nanoTime();
+        if (event != null) {
+            event.commit(this);
+        }
+    }
+
+    public long foCashflowID() {
+        return foCashflowID;
+    }
+
+    public int foCashflowVersion() {
+        return foCashflowVersion;
+    }
+
+    /// As in the message, hence not necessarily a valid TradeType
+    public String tradeType() {
+        return tradeType;
+    }
+
+    public long tradeID() {
+        return tradeID;
+    }
+
+    public int tradeVersion() {
+        return tradeVersion;
+    }
+
+    /// null if the version is not checked. Ex: the message is rejected before
+    public String checkOutcome() {
+        return checkOutcome;
+    }
+
+    /// null if not resolved
+    public RevisionType revisionType() {
+        return revisionType;
+    }
+
+    /// null if not enriched
+    public String nostroID() {
+        return nostroID;
+    }
+
+    public boolean nostroOverridden() {
+        return nostroOverridden;
+    }
+
+    /// null if not set
+    public PaymentSuppressionCategory paymentSuppressionCategory() {
+        return paymentSuppressionCategory;
+    }
+
+    /// 0 unless [Outcome#PERSISTED]
+    public long cashflowID() {
+        return cashflowID;
+    }
+
+    /// 0 unless [Outcome#PERSISTED]
+    public int cashflowVersion() {
+        return cashflowVersion;
+    }
+
+    /// The Ignite and DB calls recorded so far, in the order they were made
+    public List<Call> calls() {
+        int count = Math.min(numOfCalls.get(), MAX_CALLS);
+        return Arrays.stream(calls, 0, count).filter(Objects::nonNull).toList();
+    }
+
+    public long stepNanos(CcpsStep step) {
+        return stepNanos[step.ordinal()];
+    }
+
+    /// From the receipt of the message to the end of its processing
+    public long totalNanos() {
+        return endNanos - receivedNanos;
+    }
+
+    public long receivedNanos() {
+        return receivedNanos;
+    }
+
+    public int numOfRetries() {
+        return numOfRetries;
+    }
+
+    /// null if the processing failed unexpectedly, before an outcome was decided
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    /// null unless [Outcome#REJECTED]
+    public String rejectionSubCategory() {
+        return rejectionSubCategory;
+    }
+}
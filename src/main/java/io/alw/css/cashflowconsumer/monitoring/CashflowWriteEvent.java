@@ -0,0 +1,44 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/// JFR event of a write to the DB by [io.alw.css.cashflowconsumer.repository.CashflowStore]. The commit of the enclosing transaction is not part of it
+///
+/// Usage: `new` and [#begin()] before the write, [#commit(String, long, int, int)] after it. Both are no-ops unless a recording enables the event
+@Name(CashflowWriteEvent.NAME)
+@Label("Cashflow Write")
+@Description("Cashflows or rejections written to the DB")
+@Category({"CSS", "Cashflow Consumer"})
+@Threshold("20 ms")
+@StackTrace(false)
+public final class CashflowWriteEvent extends jdk.jfr.Event {
+    public static final String NAME = "io.alw.css.cfc.CashflowWrite";
+
+    @Label("Operation")
+    String operation;
+    @Label("FO Cashflow ID")
+    long foCashflowID;
+    @Label("FO Cashflow Version")
+    int foCashflowVersion;
+    @Label("Rows")
+    int rows;
+
+    /// Commits the event if it lasted longer than the threshold of the recording
+    ///
+    /// @param foCashflowID 0 for a write of many cashflows. Ex: a batch of rejections
+    public void commit(String operation, long foCashflowID, int foCashflowVersion, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.foCashflowID = foCashflowID;
+            this.foCashflowVersion = foCashflowVersion;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
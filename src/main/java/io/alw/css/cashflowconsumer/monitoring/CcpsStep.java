@@ -0,0 +1,29 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+/// Steps of the Cashflow Consumer Processing Sequence(CCPS) that are timed for every message. See README.
+/// The stages of [io.alw.css.cashflowconsumer.processor.pipeline.CashflowPipeline] declare the step they belong to
+public enum CcpsStep {
+    /// CCPS#1: from the receipt of the message by the listener to the start of its processing. Ex: the wait for a worker
+    CONSUME,
+    /// CCPS#2: validation and mapping of the fields of the message
+    MAP,
+    /// CCPS#3: check against the last processed cashflow
+    DETERMINE_VERSION,
+    /// CCPS#4: validation of the entity and currency
+    REF_DATA_VALIDATION,
+    /// CCPS#5 and CCPS#6: enrichment using the reference data on Ignite and creation of the cashflows
+    ENRICH_AND_CREATE,
+    /// Allocation of the cashflowID of a first version. Happens within [#ENRICH_AND_CREATE], but is not counted in it. A DB round-trip only when the reserved block of IDs is used up
+    ID_ALLOCATION,
+    /// CCPS#7: persisting the cashflows, including the wait for the group commit if enabled
+    PERSIST,
+    /// Saving the rejection, when the message is rejected at any step
+    REJECT;
+
+    private static final CcpsStep[] VALUES = values();
+
+    /// Same as [#values()], without a copy of the array
+    static CcpsStep[] all() {
+        return VALUES;
+    }
+}
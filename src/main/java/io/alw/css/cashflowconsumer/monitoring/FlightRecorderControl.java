@@ -0,0 +1,165 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.FlightRecordingStatus;
+import io.alw.css.cashflowconsumer.model.properties.JfrConfig;
+import jakarta.annotation.PostConstruct;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Starts, dumps and stops a JFR recording of the cashflow consumer events at runtime: [CashflowProcessedEvent], [RefDataQueryEvent] and [CashflowWriteEvent],
+/// together with the JVM events of the configured settings. Ex: GC, safepoints, lock contention.
+/// Only one recording is controlled at a time. A recording started otherwise, such as by `jcmd JFR.start`, is not affected
+///
+/// The thresholds of the events are set per recording, so that only the slow ones are recorded in production
+public final class FlightRecorderControl implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderControl.class);
+    private static final String RECORDING_NAME = "cashflow-consumer";
+    private static final DateTimeFormatter DUMP_FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final JfrConfig jfrConfig;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Recording recording; // null if not started or stopped
+    private FlightRecordingStatus status; // of the current or the last recording. null if never started
+
+    public FlightRecorderControl(JfrConfig jfrConfig) {
+        this.jfrConfig = jfrConfig;
+    }
+
+    @PostConstruct
+    private void init() {
+        if (jfrConfig.startOnStartup()) {
+            start(null, null, null);
+        }
+    }
+
+    /// @param cashflowProcessedThreshold null for [JfrConfig#cashflowProcessedThreshold()]. Same for the other thresholds
+    /// @return null if a recording is already running
+    public FlightRecordingStatus start(Duration cashflowProcessedThreshold, Duration refDataQueryThreshold, Duration cashflowWriteThreshold) {
+        lock.lock();
+        try {
+            if (recording != null) {
+                return null;
+            }
+
+            Duration cashflowProcessed = cashflowProcessedThreshold == null ? jfrConfig.cashflowProcessedThreshold() : cashflowProcessedThreshold;
+            Duration refDataQuery = refDataQueryThreshold == null ? jfrConfig.refDataQueryThreshold() : refDataQueryThreshold;
+            Duration cashflowWrite = cashflowWriteThreshold == null ? jfrConfig.cashflowWriteThreshold() : cashflowWriteThreshold;
+            Recording newRecording;
+            try {
+                newRecording = new Recording(Configuration.getConfiguration(jfrConfig.settings()));
+            } catch (IOException | ParseException e) {
+                throw new IllegalArgumentException("Unable to read the JFR settings: " + jfrConfig.settings(), e);
+            }
+            newRecording.setName(RECORDING_NAME);
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(jfrConfig.maxAge());
+            newRecording.setMaxSize(jfrConfig.maxSize().toBytes());
+            newRecording.enable(CashflowProcessedEvent.NAME).withThreshold(cashflowProcessed).withoutStackTrace();
+            newRecording.enable(RefDataQueryEvent.NAME).withThreshold(refDataQuery).withoutStackTrace();
+            newRecording.enable(CashflowWriteEvent.NAME).withThreshold(cashflowWrite).withoutStackTrace();
+            newRecording.start();
+
+            recording = newRecording;
+            status = new FlightRecordingStatus(RECORDING_NAME, newRecording.getState(), newRecording.getStartTime(), jfrConfig.settings(), cashflowProcessed, refDataQuery, cashflowWrite, null);
+            log.info("Started JFR recording. {}", status);
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// @return null if never started
+    public FlightRecordingStatus status() {
+        lock.lock();
+        try {
+            return status == null ? null : withState(status.lastDumpPath());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// Writes the data recorded so far to a new file in [JfrConfig#dumpDirectory()]. The recording continues
+    ///
+    /// @return null if no recording is running
+    public FlightRecordingStatus dump() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                return null;
+            }
+            status = withState(dumpToFile());
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// Stops the recording and writes it to a new file in [JfrConfig#dumpDirectory()]. The recording is closed even if it fails to be written, so that a new one can be started
+    ///
+    /// @return null if no recording is running
+    /// @throws UncheckedIOException if the recording fails to be written
+    public FlightRecordingStatus stop() {
+        lock.lock();
+        try {
+            if (recording == null) {
+                return null;
+            }
+            recording.stop();
+            String dumpPath = null;
+            try {
+                dumpPath = dumpToFile();
+            } finally {
+                Recording stoppedRecording = recording;
+                recording = null;
+                status = withState(dumpPath == null ? status.lastDumpPath() : dumpPath);
+                stoppedRecording.close();
+                log.info("Stopped JFR recording. {}", status);
+            }
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// The recording is discarded without a dump
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (recording != null) {
+                recording.close();
+                recording = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String dumpToFile() {
+        Path path = Path.of(jfrConfig.dumpDirectory(), RECORDING_NAME + "-" + LocalDateTime.now().format(DUMP_FILE_TIMESTAMP) + ".jfr").toAbsolutePath();
+        try {
+            recording.dump(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to dump the JFR recording to " + path, e);
+        }
+        log.info("Dumped JFR recording to {}", path);
+        return path.toString();
+    }
+
+    private FlightRecordingStatus withState(String lastDumpPath) {
+        return new FlightRecordingStatus(status.name(), recording == null ? RecordingState.CLOSED : recording.getState(), status.startTime(), status.settings(),
+                status.cashflowProcessedThreshold(), status.refDataQueryThreshold(), status.cashflowWriteThreshold(), lastDumpPath);
+    }
+}
@@ -0,0 +1,99 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.util.EnumLookup;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/// Publishes the [CashflowTrace] of every message as Micrometer meters:
+/// - `cfc.ccps.step`: timer per [CcpsStep], tagged by `step`. A step a message did not go through is not recorded
+/// - `cfc.ccps.end.to.end`: timer from the receipt of the message to the end of its processing
+/// - `cfc.ccps.processed`: counter of messages, tagged by `result`, the [CashflowTrace.Outcome]
+/// - `cfc.ccps.retries`: counter of the retries of the messages
+///
+/// All the meters are tagged by `tradeType`, `revisionType` and `outcome`, the outcome of the check against the last processed cashflow. Ex: `FirstVersion`, `AlreadyProcessed`.
+/// `NONE` when the message is rejected before the value is known. A tradeType that is not a [TradeType] is tagged `INVALID`, so that malformed messages do not create new meters.
+/// Only the end-to-end timer publishes a percentile histogram, so that its percentiles can be aggregated across instances. The step timers publish only count, sum and max,
+/// as a histogram of every step for every combination of tags is too many time series.
+///
+/// The meters of a combination of tags are registered once and cached
+public final class MicrometerCashflowObserver implements CashflowProcessingObserver {
+    private static final String NONE = "NONE";
+    private static final String INVALID = "INVALID";
+    private static final EnumLookup<TradeType> tradeTypes = EnumLookup.of(TradeType.class);
+    private static final CcpsStep[] STEPS = CcpsStep.all();
+    private static final CashflowTrace.Outcome[] RESULTS = CashflowTrace.Outcome.values();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+
+    public MicrometerCashflowObserver(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onProcessed(CashflowTrace trace) {
+        TradeType tradeType = tradeTypes.get(trace.tradeType());
+        var key = new MeterKey(tradeType == null ? (trace.tradeType() == null ? NONE : INVALID) : tradeType.name(), trace.revisionType(), trace.checkOutcome());
+        Meters m = meters.computeIfAbsent(key, this::register);
+        for (CcpsStep step : STEPS) {
+            long nanos = trace.stepNanos(step);
+            if (nanos > 0) {
+                m.steps[step.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        m.endToEnd.record(trace.totalNanos(), TimeUnit.NANOSECONDS);
+        m.processed[trace.outcome() == null ? RESULTS.length : trace.outcome().ordinal()].increment();
+        if (trace.numOfRetries() > 0) {
+            m.retries.increment(trace.numOfRetries());
+        }
+    }
+
+    private Meters register(MeterKey key) {
+        Tags tags = Tags.of("tradeType", key.tradeType(), "revisionType", key.revisionType() == null ? NONE : key.revisionType().name(), "outcome", tagValue(key.checkOutcome()));
+
+        var steps = new Timer[STEPS.length];
+        for (CcpsStep step : STEPS) {
+            steps[step.ordinal()] = Timer.builder("cfc.ccps.step")
+                    .description("Time spent by a message in a CCPS step")
+                    .tags(tags).tag("step", step.name())
+                    .register(meterRegistry);
+        }
+        Timer endToEnd = Timer.builder("cfc.ccps.end.to.end")
+                .description("Time from the receipt of a message to the end of its processing")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        // The last one counts the messages whose processing failed unexpectedly, before an outcome was decided
+        var processed = new Counter[RESULTS.length + 1];
+        for (int i = 0; i < processed.length; i++) {
+            processed[i] = Counter.builder("cfc.ccps.processed")
+                    .description("Messages processed")
+                    .tags(tags).tag("result", i < RESULTS.length ? RESULTS[i].name() : NONE)
+                    .register(meterRegistry);
+        }
+        Counter retries = Counter.builder("cfc.ccps.retries")
+                .description("Retries of the messages")
+                .tags(tags)
+                .register(meterRegistry);
+        return new Meters(steps, endToEnd, processed, retries);
+    }
+
+    private static String tagValue(String value) {
+        return value == null ? NONE : value;
+    }
+
+    private record MeterKey(String tradeType, RevisionType revisionType, String checkOutcome) {
+    }
+
+    private record Meters(Timer[] steps, Timer endToEnd, Counter[] processed, Counter retries) {
+    }
+}
@@ -0,0 +1,48 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/// JFR event of a reference data query run on the Ignite cluster by [io.alw.css.cashflowconsumer.service.CacheService].
+/// Lookups served by the near cache or the nostro index are not queries, and are not recorded
+///
+/// Usage: `new` and [#begin()] before the query, [#commit(String, String, String, String, int)] after it. Both are no-ops unless a recording enables the event
+@Name(RefDataQueryEvent.NAME)
+@Label("Reference Data Query")
+@Description("A reference data query run on the Ignite cluster")
+@Category({"CSS", "Cashflow Consumer"})
+@Threshold("10 ms")
+@StackTrace(false)
+public final class RefDataQueryEvent extends jdk.jfr.Event {
+    public static final String NAME = "io.alw.css.cfc.RefDataQuery";
+
+    @Label("Query")
+    String query;
+    @Label("Entity Code")
+    String entityCode;
+    @Label("Currency Code")
+    String currCode;
+    @Label("Counterparty Code")
+    String counterpartyCode;
+    @Label("Rows")
+    int rows;
+
+    /// Commits the event if it lasted longer than the threshold of the recording
+    ///
+    /// @param query name of the query. Ex: SSI, NOSTRO
+    public void commit(String query, String entityCode, String currCode, String counterpartyCode, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.query = query;
+            this.entityCode = entityCode;
+            this.currCode = currCode;
+            this.counterpartyCode = counterpartyCode;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
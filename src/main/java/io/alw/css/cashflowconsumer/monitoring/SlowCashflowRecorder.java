@@ -0,0 +1,159 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.SlowCashflow;
+import io.alw.css.cashflowconsumer.model.properties.SlowCashflowConfig;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/// Keeps the slowest cashflows of the last [SlowCashflowConfig#window()], with the time spent in every [CcpsStep] and the Ignite and DB calls made for them.
+///
+/// The window is a ring of buckets, each keeping the [SlowCashflowConfig#topN()] slowest cashflows processed within its time slot.
+/// A bucket is replaced by a new one once its slot is out of the window. Recording is lock-free: a cashflow takes the place of the fastest one kept by its bucket using a CAS.
+/// A cashflow not slower than the fastest one kept, which is most of them once the bucket is full, is dropped after reading a single value.
+/// Hence, the processing threads are not made to wait, and no debug logging is needed to find out what was slow.
+///
+/// A cashflow is counted by the time from its receipt to the end of its processing. A [CashflowTrace.Outcome#PARKED] message is not kept, as it is processed again once released
+public final class SlowCashflowRecorder implements CashflowProcessingObserver {
+    private final boolean enabled;
+    private final int topN;
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    public SlowCashflowRecorder(SlowCashflowConfig slowCashflowConfig) {
+        this.enabled = slowCashflowConfig.enabled();
+        this.topN = Math.max(1, slowCashflowConfig.topN());
+        int numOfBuckets = Math.max(1, slowCashflowConfig.buckets());
+        this.bucketMillis = Math.max(1, slowCashflowConfig.window().toMillis() / numOfBuckets);
+        this.buckets = new AtomicReferenceArray<>(numOfBuckets);
+    }
+
+    @Override
+    public void onProcessed(CashflowTrace trace) {
+        if (!enabled || trace.outcome() == CashflowTrace.Outcome.PARKED) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        bucket(nowMillis / bucketMillis).offer(trace, nowMillis);
+    }
+
+    /// @return up to `limit` slowest cashflows of the window, the slowest first. At most [SlowCashflowConfig#topN()]. None if `limit` is negative
+    public List<SlowCashflow> slowest(int limit) {
+        long oldestSlot = System.currentTimeMillis() / bucketMillis - (buckets.length() - 1);
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.slot >= oldestSlot) {
+                bucket.collect(entries);
+            }
+        }
+        return entries.stream()
+                .sorted(Comparator.comparingLong(Entry::totalNanos).reversed())
+                .limit(Math.max(0, Math.min(limit, topN)))
+                .map(Entry::slowCashflow)
+                .toList();
+    }
+
+    /// @return the bucket of the time slot, replacing the bucket of an older slot in its place in the ring
+    private Bucket bucket(long slot) {
+        int index = (int) Math.floorMod(slot, (long) buckets.length());
+        Bucket bucket = buckets.get(index);
+        while (bucket == null || bucket.slot < slot) {
+            var newBucket = new Bucket(slot, topN);
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                return newBucket;
+            }
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+
+    private record Entry(long totalNanos, SlowCashflow slowCashflow) {
+    }
+
+    private static final class Bucket {
+        private final long slot;
+        private final AtomicReferenceArray<Entry> entries;
+        /// Not greater than the fastest of the entries once all of them are taken. The fastest kept only gets slower, as it is only replaced by a slower one
+        private final AtomicLong floorNanos = new AtomicLong();
+
+        private Bucket(long slot, int topN) {
+            this.slot = slot;
+            this.entries = new AtomicReferenceArray<>(topN);
+        }
+
+        private void offer(CashflowTrace trace, long nowMillis) {
+            long totalNanos = trace.totalNanos();
+            if (totalNanos <= floorNanos.get()) {
+                return;
+            }
+
+            Entry entry = null;
+            while (true) {
+                int fastestIndex = 0;
+                Entry fastest = null;
+                long fastestNanos = Long.MAX_VALUE;
+                for (int i = 0; i < entries.length(); i++) {
+                    Entry e = entries.get(i);
+                    if (e == null) {
+                        fastestIndex = i;
+                        fastest = null;
+                        fastestNanos = -1;
+                        break;
+                    }
+                    if (e.totalNanos() < fastestNanos) {
+                        fastestIndex = i;
+                        fastest = e;
+                        fastestNanos = e.totalNanos();
+                    }
+                }
+
+                if (totalNanos <= fastestNanos) {
+                    floorNanos.accumulateAndGet(fastestNanos, Math::max);
+                    return;
+                }
+                if (entry == null) {
+                    entry = new Entry(totalNanos, slowCashflow(trace, nowMillis));
+                }
+                if (entries.compareAndSet(fastestIndex, fastest, entry)) {
+                    return;
+                }
+            }
+        }
+
+        private void collect(List<Entry> collected) {
+            for (int i = 0; i < entries.length(); i++) {
+                Entry e = entries.get(i);
+                if (e != null) {
+                    collected.add(e);
+                }
+            }
+        }
+    }
+
+    private static SlowCashflow slowCashflow(CashflowTrace trace, long nowMillis) {
+        Map<CcpsStep, Double> stepMillis = new EnumMap<>(CcpsStep.class);
+        for (CcpsStep step : CcpsStep.all()) {
+            long nanos = trace.stepNanos(step);
+            if (nanos > 0) {
+                stepMillis.put(step, millis(nanos));
+            }
+        }
+        List<SlowCashflow.Call> calls = trace.calls().stream()
+                .map(call -> new SlowCashflow.Call(call.name(), millis(call.nanos())))
+                .toList();
+        return new SlowCashflow(trace.foCashflowID(), trace.foCashflowVersion(), trace.tradeType(), trace.outcome(), trace.checkOutcome(),
+                trace.revisionType() == null ? null : trace.revisionType().name(), trace.rejectionSubCategory(), trace.numOfRetries(),
+                Instant.ofEpochMilli(nowMillis), millis(trace.totalNanos()), stepMillis, calls);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -17,4 +17,10 @@ public sealed interface CFProcessedCheckOutcome {
 
     record LastCashflowIsCancelled() implements CFProcessedCheckOutcome {
     }
+
+    /// The preceding foCashflowVersion is not processed yet. Ex: version N+1 is consumed before version N after a rebalance or an upstream replay
+    ///
+    /// @param lastProcessedCashflow null if no version of the cashflow is processed yet
+    record PredecessorNotProcessed(Cashflow lastProcessedCashflow) implements CFProcessedCheckOutcome {
+    }
 }
@@ -4,6 +4,7 @@ import io.alw.css.cashflowconsumer.model.SsiWithCounterpartyData;
 import io.alw.css.cashflowconsumer.model.NostroDetails;
 import io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType;
 import io.alw.css.cashflowconsumer.model.properties.SuppressionConfig;
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
 import io.alw.css.cashflowconsumer.service.CacheService;
 import io.alw.css.domain.exception.CategorizedRuntimeException;
 import io.alw.css.domain.cashflow.CashflowBuilder;
@@ -13,8 +14,8 @@ import io.alw.css.domain.exception.ExceptionSubCategory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static io.alw.css.domain.cashflow.TransactionType.*;
 
@@ -23,33 +24,60 @@ import static io.alw.css.domain.cashflow.TransactionType.*;
 /// @see
 public class CashflowEnricher {
     private final static Logger log = LoggerFactory.getLogger(CashflowEnricher.class);
-    private final SuppressionConfig suppressionConfig;
     private final CacheService cacheService;
+    private volatile PaymentSuppressionTable paymentSuppressionTable;
 
     public CashflowEnricher(SuppressionConfig suppressionConfig, CacheService cacheService) {
-        this.suppressionConfig = suppressionConfig;
+        this.paymentSuppressionTable = PaymentSuppressionTable.compile(suppressionConfig);
         this.cacheService = cacheService;
     }
 
-    public void validateAndEnrich(CashflowBuilder builder) {
+    /// Replaces the payment suppression configuration. Cashflows being enriched concurrently use either the previous or the new configuration, never a mix of both
+    ///
+    /// @return number of suppressible currencies configured
+    public int reloadSuppressionConfig(SuppressionConfig suppressionConfig) {
+        PaymentSuppressionTable table = PaymentSuppressionTable.compile(suppressionConfig);
+        this.paymentSuppressionTable = table;
+        log.info("Reloaded payment suppression configuration. SuppressibleCurrencies: {}, SuppressInterbookTX: {}", table.numOfCurrencies(), table.suppressInterbookTX());
+        return table.numOfCurrencies();
+    }
+
+    /// Enriches the cashflow using the reference data on the Ignite cluster. [#validateEntityAndCurrCode] is expected to be called before, as it is a local check that is much cheaper
+    public void enrich(CashflowBuilder builder) {
         String currCode = builder.currCode();
         String counterpartyCode = builder.counterpartyCode();
         TradeType tradeType = builder.tradeType();
         String entityCode = builder.entityCode();
 
-        SsiWithCounterpartyData ssiWithCpData = cacheService.getPrimarySsiWithCounterpartyData(counterpartyCode, currCode, tradeType);
-        NostroDetails nostroDetails = cacheService.getNostroDetails(entityCode, currCode, counterpartyCode);
+        // Both lookups are issued together. The results are joined in the same order as the lookups used to run, so that the same failure is reported first
+        CompletableFuture<SsiWithCounterpartyData> ssiWithCpDataFuture = cacheService.getPrimarySsiWithCounterpartyDataAsync(counterpartyCode, currCode, tradeType);
+        CompletableFuture<NostroDetails> nostroDetailsFuture = cacheService.getNostroDetailsAsync(entityCode, currCode, counterpartyCode);
+        SsiWithCounterpartyData ssiWithCpData = join(ssiWithCpDataFuture);
+        NostroDetails nostroDetails = join(nostroDetailsFuture);
 
-        validateEntityAndCurrCode(builder);
         enrichWithSsiID(builder, ssiWithCpData);
         enrichWithNostroID(builder, nostroDetails);
         setInternalValue(builder, ssiWithCpData);
         setPaymentSuppressionValue(builder);
 
-        log.debug("Successfully Validated and Enriched the cashflow. FoCashflowID-Ver: {}-{}", builder.foCashflowID(), builder.foCashflowVersion());
+        log.debug("Successfully Enriched the cashflow. FoCashflowID-Ver: {}-{}", builder.foCashflowID(), builder.foCashflowVersion());
+    }
+
+    /// Rethrows the exception of the lookup as is, so that it maps to the same rejection as when the lookup is called synchronously
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            } else if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
     }
 
-    void validateEntityAndCurrCode(CashflowBuilder builder) {
+    public void validateEntityAndCurrCode(CashflowBuilder builder) {
         String entityCode = builder.entityCode();
         String currCode = builder.currCode();
         boolean entityActive = cacheService.isEntityActive(entityCode);
@@ -71,11 +99,13 @@ public class CashflowEnricher {
             if (overridableNostro != null) {
                 String nostroID = overridableNostro.nostroID();
                 builder.nostroID(nostroID);
-                log.info("Enriched NostroID[{}] by overriding primary nostro with secondary configured in counterparty profile. CounterpartyCode: {}, CurrCode: {}, EntityCode: {}, FoCashflowID-Ver: {}-{}", nostroID, overridableNostro.counterpartyCode(), overridableNostro.currCode(), overridableNostro.entityCode(), builder.foCashflowID(), builder.foCashflowVersion());
+                CashflowTrace.recordNostro(nostroID, true);
+                log.debug("Enriched NostroID[{}] by overriding primary nostro with secondary configured in counterparty profile. CounterpartyCode: {}, CurrCode: {}, EntityCode: {}, FoCashflowID-Ver: {}-{}", nostroID, overridableNostro.counterpartyCode(), overridableNostro.currCode(), overridableNostro.entityCode(), builder.foCashflowID(), builder.foCashflowVersion());
                 return;
             } else if (primaryNostro != null) {
                 String nostroID = primaryNostro.nostroID();
                 builder.nostroID(nostroID);
+                CashflowTrace.recordNostro(nostroID, false);
                 log.debug("Enriched with nostroID: {}. FoCashflowID-Ver: {}-{}", nostroID, builder.foCashflowID(), builder.foCashflowVersion());
                 return;
             }
@@ -102,26 +132,22 @@ public class CashflowEnricher {
 
     /// Suppresses the cashflow if the abs(amount) is less than or equal to the amount in suppression configuration
     void setPaymentSuppressionValue(CashflowBuilder builder) {
-        String cfCurr = builder.currCode();
-        BigDecimal absoluteCfAmt = builder.amount().abs();
+        PaymentSuppressionTable table = paymentSuppressionTable;
 
-        if (suppressionConfig.suppressInterbookTX() && builder.transactionType() == INTER_BOOK) {
+        if (table.suppressInterbookTX() && builder.transactionType() == INTER_BOOK) {
             builder.paymentSuppressionCategory(PaymentSuppressionCategory.INTERBOOK);
-            log.info("Cashflow will be suppressed. SuppressionCategory: {}, FoCashflowID-Ver: {}-{}", PaymentSuppressionCategory.INTERBOOK, builder.foCashflowID(), builder.foCashflowVersion());
+            CashflowTrace.recordPaymentSuppression(PaymentSuppressionCategory.INTERBOOK);
+            log.debug("Cashflow will be suppressed. SuppressionCategory: {}, FoCashflowID-Ver: {}-{}", PaymentSuppressionCategory.INTERBOOK, builder.foCashflowID(), builder.foCashflowVersion());
+            return;
+        } else if (table.amountTooSmall(builder.currCode(), builder.amount())) {
+            builder.paymentSuppressionCategory(PaymentSuppressionCategory.AMOUNT_TOO_SMALL);
+            CashflowTrace.recordPaymentSuppression(PaymentSuppressionCategory.AMOUNT_TOO_SMALL);
+            log.debug("Cashflow will be suppressed. SuppressionCategory: {}, FoCashflowID-Ver: {}-{}", PaymentSuppressionCategory.AMOUNT_TOO_SMALL, builder.foCashflowID(), builder.foCashflowVersion());
             return;
-        } else if (absoluteCfAmt.compareTo(suppressionConfig.highestSuppressibleAmount()) <= 0) {
-            for (Map.Entry<String, BigDecimal> entry : suppressionConfig.suppressibleCurrToAmountMap().entrySet()) {
-                String curr = entry.getKey();
-                BigDecimal amt = entry.getValue();
-                if (curr.equalsIgnoreCase(cfCurr) && absoluteCfAmt.compareTo(amt) <= 0) {
-                    builder.paymentSuppressionCategory(PaymentSuppressionCategory.AMOUNT_TOO_SMALL);
-                    log.info("Cashflow will be suppressed. SuppressionCategory: {}, FoCashflowID-Ver: {}-{}", PaymentSuppressionCategory.AMOUNT_TOO_SMALL, builder.foCashflowID(), builder.foCashflowVersion());
-                    return;
-                }
-            }
         }
 
         builder.paymentSuppressionCategory(PaymentSuppressionCategory.NONE);
+        CashflowTrace.recordPaymentSuppression(PaymentSuppressionCategory.NONE);
         log.trace("Cashflow is NOT suppressible. FoCashflowID-Ver: {}-{}", builder.foCashflowID(), builder.foCashflowVersion());
     }
 
@@ -1,14 +1,15 @@
 package io.alw.css.cashflowconsumer.processor;
 
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
 import io.alw.css.cashflowconsumer.processor.rule.RevisionTypeResolver;
 import io.alw.css.cashflowconsumer.repository.CashflowStore;
+import io.alw.css.cashflowconsumer.repository.SequenceBlockAllocator;
 import io.alw.css.cashflowconsumer.util.CashflowUtil;
 import io.alw.css.dbshared.tx.TXRO;
-import io.alw.css.dbshared.tx.TXRW;
 import io.alw.css.domain.cashflow.*;
 import io.alw.css.domain.exception.CategorizedRuntimeException;
 import io.alw.css.domain.exception.ExceptionSubCategory;
-import io.alw.css.serialization.cashflow.FoCashMessageAvro;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,12 +35,12 @@ public class CashflowVersionManager {
     private static final Logger log = LoggerFactory.getLogger(CashflowVersionManager.class);
 
     private final CashflowStore cashflowStore;
-    private final TXRW txrw;
+    private final SequenceBlockAllocator cashflowIdAllocator;
     private final TXRO txro;
 
-    public CashflowVersionManager(CashflowStore cashflowStore, TXRW txrw, TXRO txro) {
+    public CashflowVersionManager(CashflowStore cashflowStore, SequenceBlockAllocator cashflowIdAllocator, TXRO txro) {
         this.cashflowStore = cashflowStore;
-        this.txrw = txrw;
+        this.cashflowIdAllocator = cashflowIdAllocator;
         this.txro = txro;
     }
 
@@ -52,13 +53,25 @@ public class CashflowVersionManager {
     /// If last processed cashflow is cancelled, then no further amendment is allowed. An exception is thrown in that case.
     /// Once a cashflow is cancelled, a new cashflowID needs to be used by FO for the same trade.
     ///
+    /// If the version preceding the foCashflowVersion is not processed yet, the outcome is [CFProcessedCheckOutcome.PredecessorNotProcessed]
+    ///
     /// @return CFProcessedCheckOutcome
 //    @Transactional(readOnly = true)
     public CFProcessedCheckOutcome checkAgainstLastProcessedCashflow(long foCashflowID, int foCashflowVersion, long tradeID, int tradeVersion) {
 //        final Cashflow lastProcessedCashflow = cashflowStore.getLastProcessedCashflow(foCashflowID);
         final Cashflow lastProcessedCashflow = txro.execute(_ -> cashflowStore.getLastProcessedCashflow(foCashflowID));
+        return checkAgainstLastProcessedCashflow(foCashflowID, foCashflowVersion, tradeID, tradeVersion, lastProcessedCashflow);
+    }
 
+    /// Same as [#checkAgainstLastProcessedCashflow(long, int, long, int)], but checks against a last processed cashflow that is already fetched from the DB.
+    /// Used when the last processed cashflows of a batch of messages are fetched in one query
+    ///
+    /// @param lastProcessedCashflow null if no cashflow is processed yet for the `foCashflowID`
+    public CFProcessedCheckOutcome checkAgainstLastProcessedCashflow(long foCashflowID, int foCashflowVersion, long tradeID, int tradeVersion, Cashflow lastProcessedCashflow) {
         if (lastProcessedCashflow == null) { /* if new cashflow */
+            if (foCashflowVersion > CashflowConstants.FO_CASHFLOW_FIRST_VERSION) {
+                return new CFProcessedCheckOutcome.PredecessorNotProcessed(null);
+            }
             return CFProcessedCheckOutcome.FIRST_VERSION;
         } else { /* if not a new cashflow */
             if (isCashflowAlreadyProcessed(foCashflowID, foCashflowVersion, tradeID, tradeVersion, lastProcessedCashflow)) {
@@ -66,6 +79,8 @@ public class CashflowVersionManager {
             } else {
                 if (isCashflowCancelled(lastProcessedCashflow)) {
                     return new CFProcessedCheckOutcome.LastCashflowIsCancelled();
+                } else if (lastProcessedCashflow.foCashflowVersion() < foCashflowVersion - 1) {
+                    return new CFProcessedCheckOutcome.PredecessorNotProcessed(lastProcessedCashflow);
                 }
                 return new CFProcessedCheckOutcome.NonFirstVersion(lastProcessedCashflow);
             }
@@ -78,10 +93,18 @@ public class CashflowVersionManager {
     /// - cashflowVersion = [CashflowConstants#CSS_CASHFLOW_FIRST_VERSION]
     /// - latest = true
     ///
-    /// @implNote This method calls a dao method that does select on a DB sequence. Hence this method must be called in RW transaction(which is so currently)
+    /// @implNote The new cashflowID is handed out from a block of IDs reserved from the DB sequence. See [SequenceBlockAllocator].
+    /// The allocator reserves the blocks in its own RW transaction
     // TODO: When transaction is readOnly for JpaTransactionManager, does spring cause libs to acquire a RO physical connection or just optimizes JPA dirty checking etc? AskVlad
 //    @Transactional
     public Cashflow createFirstVersionCF(CashflowBuilder cashflowBuilder) {
+        return createFirstVersionCF(cashflowBuilder, null);
+    }
+
+    /// Same as [#createFirstVersionCF(CashflowBuilder)]. The time taken to allocate the cashflowID is added to [CcpsStep#ID_ALLOCATION] of the trace
+    ///
+    /// @param trace null if the message is not traced
+    public Cashflow createFirstVersionCF(CashflowBuilder cashflowBuilder, CashflowTrace trace) {
         int foCashflowVersion = cashflowBuilder.foCashflowVersion();
         RevisionType revisionType = cashflowBuilder.revisionType();
         if (foCashflowVersion != CashflowConstants.FO_CASHFLOW_FIRST_VERSION) {
@@ -90,8 +113,11 @@ public class CashflowVersionManager {
             throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("Incorrect revisionType determination. RevisionType NEW is expected for FoCashflow version 1. Computed RevisionType is: " + revisionType, new ExceptionSubCategory(INCORRECT_REVISION_TYPE_RESOLUTION, null));
         }
 
-//        long cashflowID = cashflowStore.getNewCashflowID();
-        long cashflowID = txrw.execute(_ -> cashflowStore.getNewCashflowID());
+        long idAllocationStartNanos = System.nanoTime();
+        long cashflowID = cashflowIdAllocator.nextId();
+        if (trace != null) {
+            trace.add(CcpsStep.ID_ALLOCATION, idAllocationStartNanos);
+        }
         int cashflowVersion = CashflowConstants.CSS_CASHFLOW_FIRST_VERSION;
         Cashflow cashflow = cashflowBuilder
                 .cashflowID(cashflowID)
@@ -149,9 +175,7 @@ public class CashflowVersionManager {
     /// - [FoCashMessage#tradeEventType],
     /// - [FoCashMessage#tradeEventAction]
     /// - [FoCashMessage#cashflowVersion]
-    public void computeAndSetRevisionType(CashflowBuilder cashflowBuilder, FoCashMessageAvro foMsg) {
-        TradeEventType tradeEventType = FoCashMessageMapper.mapTradeEventType(foMsg);
-        TradeEventAction tradeEventAction = FoCashMessageMapper.mapTradeEventAction(foMsg);
+    public void computeAndSetRevisionType(CashflowBuilder cashflowBuilder, TradeEventType tradeEventType, TradeEventAction tradeEventAction) {
         TradeType tradeType = cashflowBuilder.tradeType();
         boolean firstCashflow = CashflowUtil.isFirstFoCashflowVersion(cashflowBuilder.foCashflowVersion());
 
@@ -159,7 +183,7 @@ public class CashflowVersionManager {
         RevisionType revisionType = RevisionTypeResolver.resolve(firstCashflow, tradeType, tradeEventType, tradeEventAction);
         cashflowBuilder.revisionType(revisionType);
 
-        log.info("Computed revisionType[{}] for FoCashflowID-Ver: {}-{}", revisionType, foMsg.getCashflowID(), foMsg.getCashflowVersion());
+        log.debug("Computed revisionType[{}] for FoCashflowID-Ver: {}-{}", revisionType, cashflowBuilder.foCashflowID(), cashflowBuilder.foCashflowVersion());
     }
 
     /// Creates a CAN cashflow from the previous cashflow which must be live. This offsets the live cashflow.
@@ -1,11 +1,12 @@
 package io.alw.css.cashflowconsumer.processor;
 
+import io.alw.css.cashflowconsumer.model.FieldError;
 import io.alw.css.cashflowconsumer.util.DateUtil;
+import io.alw.css.cashflowconsumer.util.EnumLookup;
 import io.alw.css.domain.cashflow.*;
 import io.alw.css.domain.cashflow.CashflowBuilder;
 import io.alw.css.domain.common.InputBy;
 import io.alw.css.domain.common.PaymentConstants;
-import io.alw.css.domain.exception.*;
 import io.alw.css.serialization.cashflow.FoCashMessageAvro;
 import io.alw.css.serialization.cashflow.TradeLinkAvro;
 import org.slf4j.Logger;
@@ -15,15 +16,24 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType.*;
 
 /// @see #mapToDomain(FoCashMessageAvro)
+///
+/// None of the methods throw for an invalid field. The invalid fields are reported as [FieldError]s, so that all of them can be reported at once
+/// and a rejection does not pay for the stack trace of an exception.
 public final class FoCashMessageMapper {
     private final static Logger log = LoggerFactory.getLogger(FoCashMessageMapper.class);
 
+    private static final EnumLookup<TradeType> tradeTypes = EnumLookup.of(TradeType.class);
+    private static final EnumLookup<TransactionType> transactionTypes = EnumLookup.of(TransactionType.class);
+    private static final EnumLookup<TradeEventType> tradeEventTypes = EnumLookup.of(TradeEventType.class);
+    private static final EnumLookup<TradeEventAction> tradeEventActions = EnumLookup.of(TradeEventAction.class);
+    private static final EnumLookup<PayOrReceive> payOrReceives = EnumLookup.of(PayOrReceive.class);
+
     /// Maps below sections of [FoCashMessage] to CSS [Cashflow]
     /// - Fo Cashflow Version Data
     /// - Trade and Cashflow Data
@@ -33,9 +43,13 @@ public final class FoCashMessageMapper {
     /// - Creates Cashflow Entry Audit
     /// - For [Cashflow#rate], sets the precision to 10
     /// - For [Cashflow#amount], negates the amount to negative if [FoCashMessage#payOrReceive] is PAY and sets the precision to [PaymentConstants#AMOUNT_SCALE]
+    /// - Maps tradeEventType and tradeEventAction, which are needed to compute the RevisionType
     ///
-    /// @return CashflowBuilder
-    public static CashflowBuilder mapToDomain(FoCashMessageAvro foMsg) {
+    /// @return MappingResult having the CashflowBuilder and every invalid field of the message
+    public static MappingResult mapToDomain(FoCashMessageAvro foMsg) {
+        List<FieldError> fieldErrors = new ArrayList<>(0);
+        addIfInvalid(fieldErrors, validateFoCashflowVersion(foMsg));
+
         CashflowBuilder builder = CashflowBuilder.builder();
         builder
                 // Cashflow Entry Audit
@@ -45,25 +59,47 @@ public final class FoCashMessageMapper {
 
                 // Fo Cashflow Version Data
                 .foCashflowID(foMsg.getCashflowID())
-                .foCashflowVersion(doBasicValidationOfFoCashflowVersion(foMsg))
+                .foCashflowVersion(foMsg.getCashflowVersion())
                 .tradeID(foMsg.getTradeID())
                 .tradeVersion(foMsg.getTradeVersion())
                 // Trade and Cashflow Data
-                .tradeType(mapTradeType(foMsg))
+                .tradeType(mapTradeType(foMsg, fieldErrors))
                 .bookCode(foMsg.getBookCode())
-                .counterBookCode(mapTransactionTypeAndGetCounterBookID(builder, foMsg))
-                .rate(formatRate(foMsg))
-                .valueDate(mapValueDate(foMsg))
+                .counterBookCode(mapTransactionTypeAndGetCounterBookID(builder, foMsg, fieldErrors))
+                .rate(formatRate(foMsg, fieldErrors))
+                .valueDate(mapValueDate(foMsg, fieldErrors))
                 .tradeLinks(mapTradeLinks(foMsg))
 
                 // ObligationData
                 .entityCode(foMsg.getEntityCode())
                 .counterpartyCode(foMsg.getCounterpartyCode())
-                .amount(formatAmount(foMsg))
-                .currCode(foMsg.getCurrCode().toUpperCase());
+                .amount(formatAmount(foMsg, fieldErrors))
+                .currCode(mapCurrCode(foMsg, fieldErrors));
+
+        TradeEventType tradeEventType = mapTradeEventType(foMsg, fieldErrors);
+        TradeEventAction tradeEventAction = mapTradeEventAction(foMsg, fieldErrors);
 
-        log.debug("Mapped FoCashMessage values to Cashflow. FoCashflowID-Ver: {}-{}", builder.foCashflowID(), builder.foCashflowVersion());
-        return builder;
+        if (fieldErrors.isEmpty()) {
+            log.debug("Mapped FoCashMessage values to Cashflow. FoCashflowID-Ver: {}-{}", builder.foCashflowID(), builder.foCashflowVersion());
+            return new MappingResult(builder, tradeEventType, tradeEventAction, List.of());
+        } else {
+            log.debug("FoCashMessage has {} invalid fields. FoCashflowID-Ver: {}-{}", fieldErrors.size(), builder.foCashflowID(), builder.foCashflowVersion());
+            return new MappingResult(builder, tradeEventType, tradeEventAction, List.copyOf(fieldErrors));
+        }
+    }
+
+    /// @return null if the foCashflowVersion is valid
+    public static FieldError validateFoCashflowVersion(FoCashMessageAvro foMsg) {
+        if (foMsg.getCashflowVersion() < CashflowConstants.FO_CASHFLOW_FIRST_VERSION) {
+            return new FieldError("foCashflowVersion", INVALID_FO_VERSION, "fields[foCashflowVersion] is invalid");
+        }
+        return null;
+    }
+
+    private static void addIfInvalid(List<FieldError> fieldErrors, FieldError fieldError) {
+        if (fieldError != null) {
+            fieldErrors.add(fieldError);
+        }
     }
 
     private static List<TradeLink> mapTradeLinks(FoCashMessageAvro foMsg) {
@@ -75,92 +111,105 @@ public final class FoCashMessageMapper {
         }
     }
 
-    private static LocalDate mapValueDate(FoCashMessageAvro foMsg) {
-        String valueDate = foMsg.getValueDate();
-        try {
-            return DateUtil.formatValueDate(valueDate);
-        } catch (DateTimeParseException e) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[valueDate] is invalid", new ExceptionSubCategory(INVALID_VALUE_DATE, foMsg));
-        }
-    }
-
-    private static int doBasicValidationOfFoCashflowVersion(FoCashMessageAvro foMsg) {
-        int foCashflowVersion = foMsg.getCashflowVersion();
-        if (foCashflowVersion < CashflowConstants.FO_CASHFLOW_FIRST_VERSION) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[foCashflowVersion] is invalid", new ExceptionSubCategory(INVALID_FO_VERSION, foMsg));
+    private static LocalDate mapValueDate(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
+        LocalDate valueDate = DateUtil.parseValueDate(foMsg.getValueDate());
+        if (valueDate == null) {
+            fieldErrors.add(new FieldError("valueDate", INVALID_VALUE_DATE, "fields[valueDate] is invalid"));
         }
-        return foCashflowVersion;
+        return valueDate;
     }
 
-    private static BigDecimal formatRate(FoCashMessageAvro foMsg) {
+    private static BigDecimal formatRate(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
         BigDecimal rate = foMsg.getRate();
         if (rate != null) {
-            rate = rate.setScale(PaymentConstants.RATE_SCALE, RoundingMode.HALF_DOWN);
-            return rate;
+            return rate.setScale(PaymentConstants.RATE_SCALE, RoundingMode.HALF_DOWN);
         } else {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[rate] is null", new ExceptionSubCategory(INVALID_RATE, foMsg));
+            fieldErrors.add(new FieldError("rate", INVALID_RATE, "fields[rate] is null"));
+            return null;
         }
     }
 
-    private static BigDecimal formatAmount(FoCashMessageAvro foMsg) {
+    private static BigDecimal formatAmount(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
         BigDecimal amount = foMsg.getAmount();
-        if (amount != null) {
-            amount = amount.setScale(PaymentConstants.AMOUNT_SCALE, RoundingMode.HALF_DOWN);
-            return PayOrReceive.valueOf(foMsg.getPayOrReceive().name()) == PayOrReceive.PAY ? amount.negate() : amount;
-        } else {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[amount] is null", new ExceptionSubCategory(INVALID_AMOUNT, foMsg));
+        if (amount == null) {
+            fieldErrors.add(new FieldError("amount", INVALID_AMOUNT, "fields[amount] is null"));
+            return null;
         }
+
+        PayOrReceive payOrReceive = foMsg.getPayOrReceive() == null ? null : payOrReceives.get(foMsg.getPayOrReceive().name());
+        if (payOrReceive == null) {
+            fieldErrors.add(new FieldError("payOrReceive", INVALID_MESSAGE, "fields[payOrReceive] is invalid"));
+            return null;
+        }
+
+        amount = amount.setScale(PaymentConstants.AMOUNT_SCALE, RoundingMode.HALF_DOWN);
+        return payOrReceive == PayOrReceive.PAY ? amount.negate() : amount;
+    }
+
+    private static String mapCurrCode(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
+        String currCode = foMsg.getCurrCode();
+        if (currCode == null) {
+            fieldErrors.add(new FieldError("currCode", INVALID_MESSAGE, "fields[currCode] is null"));
+            return null;
+        }
+        return currCode.toUpperCase();
     }
 
-    private static String mapTransactionTypeAndGetCounterBookID(CashflowBuilder builder, FoCashMessageAvro foMsg) {
+    private static String mapTransactionTypeAndGetCounterBookID(CashflowBuilder builder, FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
         if (foMsg.getTransactionType() == null) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[transactionType] is null", new ExceptionSubCategory(INVALID_MESSAGE, foMsg));
+            fieldErrors.add(new FieldError("transactionType", INVALID_MESSAGE, "fields[transactionType] is null"));
+            return null;
         }
 
-        final TransactionType transactionType;
-        try {
-            transactionType = TransactionType.valueOf(foMsg.getTransactionType());
-            builder.transactionType(transactionType);
-        } catch (IllegalArgumentException e) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[transactionType] is invalid", new ExceptionSubCategory(INVALID_TRANSACTION_TYPE, foMsg));
+        TransactionType transactionType = transactionTypes.get(foMsg.getTransactionType());
+        if (transactionType == null) {
+            fieldErrors.add(new FieldError("transactionType", INVALID_TRANSACTION_TYPE, "fields[transactionType] is invalid"));
+            return null;
         }
 
+        builder.transactionType(transactionType);
         return transactionType == TransactionType.INTER_BOOK ? foMsg.getCounterBookCode() : null;
     }
 
-    private static TradeType mapTradeType(FoCashMessageAvro foMsg) {
+    private static TradeType mapTradeType(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
         String tradeType = foMsg.getTradeType();
         if (tradeType == null) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[tradeType] is null", new ExceptionSubCategory(INVALID_MESSAGE, foMsg));
+            fieldErrors.add(new FieldError("tradeType", INVALID_MESSAGE, "fields[tradeType] is null"));
+            return null;
         }
-        try {
-            return TradeType.valueOf(tradeType);
-        } catch (IllegalArgumentException e) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[tradeType] is invalid", new ExceptionSubCategory(INVALID_TRADE_TYPE, foMsg));
+
+        TradeType mapped = tradeTypes.get(tradeType);
+        if (mapped == null) {
+            fieldErrors.add(new FieldError("tradeType", INVALID_TRADE_TYPE, "fields[tradeType] is invalid"));
         }
+        return mapped;
     }
 
-    public static TradeEventType mapTradeEventType(FoCashMessageAvro foMsg) {
+    private static TradeEventType mapTradeEventType(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
         String tradeEventType = foMsg.getTradeEventType();
         if (tradeEventType == null) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[tradeEventType] is null", new ExceptionSubCategory(INVALID_MESSAGE, foMsg));
+            fieldErrors.add(new FieldError("tradeEventType", INVALID_MESSAGE, "fields[tradeEventType] is null"));
+            return null;
         }
-        try {
-            return TradeEventType.valueOf(tradeEventType);
-        } catch (IllegalArgumentException e) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[tradeEventType] is invalid", new ExceptionSubCategory(INVALID_TRADE_EVENT_TYPE, foMsg));
+
+        TradeEventType mapped = tradeEventTypes.get(tradeEventType);
+        if (mapped == null) {
+            fieldErrors.add(new FieldError("tradeEventType", INVALID_TRADE_EVENT_TYPE, "fields[tradeEventType] is invalid"));
         }
+        return mapped;
     }
 
-    public static TradeEventAction mapTradeEventAction(FoCashMessageAvro foMsg) {
+    private static TradeEventAction mapTradeEventAction(FoCashMessageAvro foMsg, List<FieldError> fieldErrors) {
         io.alw.css.serialization.cashflow.TradeEventAction tradeEventAction = foMsg.getTradeEventAction();
         if (tradeEventAction == null) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[tradeEventAction] is null", new ExceptionSubCategory(INVALID_MESSAGE, foMsg));
+            fieldErrors.add(new FieldError("tradeEventAction", INVALID_MESSAGE, "fields[tradeEventAction] is null"));
+            return null;
         }
-        try {
-            return TradeEventAction.valueOf(tradeEventAction.name());
-        } catch (IllegalArgumentException e) {
-            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("fields[tradeEventAction] is invalid", new ExceptionSubCategory(INVALID_TRADE_EVENT_ACTION, foMsg));
+
+        TradeEventAction mapped = tradeEventActions.get(tradeEventAction.name());
+        if (mapped == null) {
+            fieldErrors.add(new FieldError("tradeEventAction", INVALID_TRADE_EVENT_ACTION, "fields[tradeEventAction] is invalid"));
         }
+        return mapped;
     }
 }
@@ -0,0 +1,25 @@
+package io.alw.css.cashflowconsumer.processor;
+
+import io.alw.css.cashflowconsumer.model.FieldError;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import io.alw.css.domain.cashflow.TradeEventAction;
+import io.alw.css.domain.cashflow.TradeEventType;
+
+import java.util.List;
+
+/// Outcome of [FoCashMessageMapper#mapToDomain(io.alw.css.serialization.cashflow.FoCashMessageAvro)]
+///
+/// @param cashflowBuilder  fields that are invalid are left unset
+/// @param tradeEventType   null if invalid. Not part of the Cashflow, but needed to compute the RevisionType
+/// @param tradeEventAction null if invalid. Not part of the Cashflow, but needed to compute the RevisionType
+/// @param fieldErrors      every invalid field of the message. Empty if the message is valid
+public record MappingResult(
+        CashflowBuilder cashflowBuilder,
+        TradeEventType tradeEventType,
+        TradeEventAction tradeEventAction,
+        List<FieldError> fieldErrors
+) {
+    public boolean valid() {
+        return fieldErrors.isEmpty();
+    }
+}
@@ -0,0 +1,121 @@
+package io.alw.css.cashflowconsumer.processor;
+
+import io.alw.css.cashflowconsumer.model.properties.SuppressionConfig;
+import io.alw.css.domain.common.PaymentConstants;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/// [SuppressionConfig] compiled into a lookup that is done once per cashflow, irrespective of the number of configured currencies.
+///
+/// A currency code of three letters, which is every ISO currency code, is an index into an array of 26^3 slots. Any other code configured is held in a map.
+/// The suppressible amounts are held at [PaymentConstants#AMOUNT_SCALE] as amounts of a cashflow are, and negated for PAY cashflows.
+/// Hence, the comparison of amounts of the same scale is a comparison of their unscaled longs, and neither the lookup nor the comparison allocates.
+final class PaymentSuppressionTable {
+    private static final int NUM_OF_LETTERS = 26;
+    private static final int NUM_OF_SLOTS = NUM_OF_LETTERS * NUM_OF_LETTERS * NUM_OF_LETTERS;
+
+    private final boolean suppressInterbookTX;
+    private final int numOfCurrencies;
+    /// Highest suppressible amount of a RECEIVE cashflow per currency index. null if the currency is not suppressible
+    private final BigDecimal[] highestAmounts;
+    /// Lowest suppressible amount of a PAY cashflow per currency index, ie; the negated highest amount
+    private final BigDecimal[] lowestAmounts;
+    private final Map<String, BigDecimal> otherCodeToHighestAmount;
+
+    private PaymentSuppressionTable(boolean suppressInterbookTX, int numOfCurrencies, BigDecimal[] highestAmounts, BigDecimal[] lowestAmounts, Map<String, BigDecimal> otherCodeToHighestAmount) {
+        this.suppressInterbookTX = suppressInterbookTX;
+        this.numOfCurrencies = numOfCurrencies;
+        this.highestAmounts = highestAmounts;
+        this.lowestAmounts = lowestAmounts;
+        this.otherCodeToHighestAmount = otherCodeToHighestAmount;
+    }
+
+    static PaymentSuppressionTable compile(SuppressionConfig suppressionConfig) {
+        var highestAmounts = new BigDecimal[NUM_OF_SLOTS];
+        var lowestAmounts = new BigDecimal[NUM_OF_SLOTS];
+        var otherCodeToHighestAmount = new HashMap<String, BigDecimal>();
+
+        Map<String, BigDecimal> suppressibleCurrToAmountMap = suppressionConfig.suppressibleCurrToAmountMap();
+        if (suppressibleCurrToAmountMap != null) {
+            suppressibleCurrToAmountMap.forEach((currCode, amount) -> {
+                BigDecimal highestAmount = toAmountScale(amount.abs());
+                int index = index(currCode);
+                if (index >= 0) {
+                    highestAmounts[index] = highestAmount;
+                    lowestAmounts[index] = highestAmount.negate();
+                } else {
+                    otherCodeToHighestAmount.put(currCode.toUpperCase(Locale.ROOT), highestAmount);
+                }
+            });
+        }
+
+        int numOfCurrencies = suppressibleCurrToAmountMap == null ? 0 : suppressibleCurrToAmountMap.size();
+        return new PaymentSuppressionTable(suppressionConfig.suppressInterbookTX(), numOfCurrencies, highestAmounts, lowestAmounts, Map.copyOf(otherCodeToHighestAmount));
+    }
+
+    boolean suppressInterbookTX() {
+        return suppressInterbookTX;
+    }
+
+    int numOfCurrencies() {
+        return numOfCurrencies;
+    }
+
+    /// @param amount signed amount of the cashflow
+    /// @return true if abs(amount) is less than or equal to the suppressible amount of the currency
+    boolean amountTooSmall(String currCode, BigDecimal amount) {
+        int index = index(currCode);
+        if (index < 0) {
+            return amountTooSmallForOtherCode(currCode, amount);
+        }
+
+        if (amount.signum() >= 0) {
+            BigDecimal highestAmount = highestAmounts[index];
+            return highestAmount != null && amount.compareTo(highestAmount) <= 0;
+        } else {
+            BigDecimal lowestAmount = lowestAmounts[index];
+            return lowestAmount != null && amount.compareTo(lowestAmount) >= 0;
+        }
+    }
+
+    private boolean amountTooSmallForOtherCode(String currCode, BigDecimal amount) {
+        if (currCode == null || otherCodeToHighestAmount.isEmpty()) {
+            return false;
+        }
+        BigDecimal highestAmount = otherCodeToHighestAmount.get(currCode.toUpperCase(Locale.ROOT));
+        return highestAmount != null && amount.abs().compareTo(highestAmount) <= 0;
+    }
+
+    /// @return index of a code of three letters, ignoring case. -1 for any other code
+    private static int index(String currCode) {
+        if (currCode == null || currCode.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = letterIndex(currCode.charAt(i));
+            if (letter < 0) {
+                return -1;
+            }
+            index = index * NUM_OF_LETTERS + letter;
+        }
+        return index;
+    }
+
+    private static int letterIndex(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        return -1;
+    }
+
+    /// Scales up without rounding. An amount configured with more decimals than [PaymentConstants#AMOUNT_SCALE] is kept as is and is still compared correctly
+    private static BigDecimal toAmountScale(BigDecimal amount) {
+        return amount.scale() < PaymentConstants.AMOUNT_SCALE ? amount.setScale(PaymentConstants.AMOUNT_SCALE) : amount;
+    }
+}
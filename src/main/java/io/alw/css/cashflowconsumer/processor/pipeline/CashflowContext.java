@@ -0,0 +1,86 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome;
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+
+/// State of a message passed through the stages of a [CashflowPipeline]. Every stage reads what the previous stages have set and sets what it produces
+public final class CashflowContext {
+    private final FoCashMessageAvro foMsg;
+    private final boolean lastProcessedCashflowPrefetched;
+    private final Cashflow prefetchedLastProcessedCashflow;
+    private boolean parkingAllowed;
+    private CashflowTrace trace;
+    private CFProcessedCheckOutcome checkOutcome;
+    private CashflowBuilder cashflowBuilder;
+
+    private CashflowContext(FoCashMessageAvro foMsg, boolean lastProcessedCashflowPrefetched, Cashflow prefetchedLastProcessedCashflow) {
+        this.foMsg = foMsg;
+        this.lastProcessedCashflowPrefetched = lastProcessedCashflowPrefetched;
+        this.prefetchedLastProcessedCashflow = prefetchedLastProcessedCashflow;
+    }
+
+    public static CashflowContext of(FoCashMessageAvro foMsg) {
+        return new CashflowContext(foMsg, false, null);
+    }
+
+    /// @param lastProcessedCashflow already fetched from the DB, null if no cashflow is processed yet for the foCashflowID
+    public static CashflowContext withLastProcessedCashflow(FoCashMessageAvro foMsg, Cashflow lastProcessedCashflow) {
+        return new CashflowContext(foMsg, true, lastProcessedCashflow);
+    }
+
+    /// @return a new context of the same message and trace, that is not allowed to be parked
+    public CashflowContext withoutParking() {
+        return new CashflowContext(foMsg, lastProcessedCashflowPrefetched, prefetchedLastProcessedCashflow).trace(trace);
+    }
+
+    public FoCashMessageAvro foMsg() {
+        return foMsg;
+    }
+
+    public boolean lastProcessedCashflowPrefetched() {
+        return lastProcessedCashflowPrefetched;
+    }
+
+    public Cashflow prefetchedLastProcessedCashflow() {
+        return prefetchedLastProcessedCashflow;
+    }
+
+    /// If false, a message whose preceding version is not processed yet is processed as is, instead of being parked
+    public boolean parkingAllowed() {
+        return parkingAllowed;
+    }
+
+    public CashflowContext parkingAllowed(boolean parkingAllowed) {
+        this.parkingAllowed = parkingAllowed;
+        return this;
+    }
+
+    /// null if the message is not traced
+    public CashflowTrace trace() {
+        return trace;
+    }
+
+    public CashflowContext trace(CashflowTrace trace) {
+        this.trace = trace;
+        return this;
+    }
+
+    public CFProcessedCheckOutcome checkOutcome() {
+        return checkOutcome;
+    }
+
+    public void checkOutcome(CFProcessedCheckOutcome checkOutcome) {
+        this.checkOutcome = checkOutcome;
+    }
+
+    public CashflowBuilder cashflowBuilder() {
+        return cashflowBuilder;
+    }
+
+    public void cashflowBuilder(CashflowBuilder cashflowBuilder) {
+        this.cashflowBuilder = cashflowBuilder;
+    }
+}
@@ -0,0 +1,74 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.processor.CashflowEnricher;
+import io.alw.css.cashflowconsumer.processor.CashflowVersionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/// Runs the stages one after the other, until a stage returns a result other than [StageResult.Continue].
+///
+/// The stages are ordered by their cost, so that a message that is to be skipped or rejected is done so before the costlier stages. See [#standard]
+public final class CashflowPipeline {
+    private final static Logger log = LoggerFactory.getLogger(CashflowPipeline.class);
+
+    private final List<CashflowStage> stages;
+
+    public CashflowPipeline(List<CashflowStage> stages) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("CashflowPipeline must have at least one stage");
+        }
+        this.stages = List.copyOf(stages);
+        log.info("CashflowPipeline stages: {}", this.stages.stream().map(CashflowStage::name).toList());
+    }
+
+    /// The stages in the order of their cost:
+    /// 1. [FoVersionValidationStage]: validation of the fields that identify the message. No I/O
+    /// 2. [DuplicateCheckStage]: check against the last processed cashflow. A lookup in the last processed cashflow cache or the DB
+    /// 3. [MappingStage]: mapping of the message to a cashflow and computation of the RevisionType. No I/O
+    /// 4. [LocalRefDataValidationStage]: validation of the entity and currency against the locally cached reference data. No I/O
+    /// 5. [EnrichmentStage]: enrichment using the reference data on the Ignite cluster and creation of the cashflows
+    public static List<CashflowStage> standard(CashflowVersionManager cashflowVersionManager, CashflowEnricher cashflowEnricher) {
+        return List.of(
+                new FoVersionValidationStage(),
+                new DuplicateCheckStage(cashflowVersionManager),
+                new MappingStage(cashflowVersionManager),
+                new LocalRefDataValidationStage(cashflowEnricher),
+                new EnrichmentStage(cashflowEnricher, cashflowVersionManager));
+    }
+
+    /// The time spent in every stage is added to the [CashflowTrace] of the context, if any, including a stage that throws.
+    /// Time a stage adds to another step itself is not counted twice. Ex: [io.alw.css.cashflowconsumer.monitoring.CcpsStep#ID_ALLOCATION] within [EnrichmentStage].
+    /// The trace is classified by the outcome of the version check and the RevisionType, as far as the stages got
+    ///
+    /// @return a result other than [StageResult.Continue]
+    public StageResult run(CashflowContext ctx) {
+        CashflowTrace trace = ctx.trace();
+        try {
+            for (CashflowStage stage : stages) {
+                long startNanos = System.nanoTime();
+                long tracedNanosAtStart = trace == null ? 0 : trace.tracedNanos();
+                final StageResult result;
+                try {
+                    result = stage.apply(ctx);
+                } finally {
+                    if (trace != null) {
+                        trace.add(stage.step(), startNanos + (trace.tracedNanos() - tracedNanosAtStart));
+                    }
+                }
+                if (!(result instanceof StageResult.Continue)) {
+                    log.trace("Stage {} ended the pipeline with {}. FoCashflowID-Ver: {}-{}", stage.name(), result, ctx.foMsg().getCashflowID(), ctx.foMsg().getCashflowVersion());
+                    return result;
+                }
+            }
+            throw new IllegalStateException("None of the stages of CashflowPipeline prepared, skipped or rejected the message");
+        } finally {
+            if (trace != null) {
+                trace.classify(ctx.checkOutcome() == null ? null : ctx.checkOutcome().getClass().getSimpleName(),
+                        ctx.cashflowBuilder() == null ? null : ctx.cashflowBuilder().revisionType());
+            }
+        }
+    }
+}
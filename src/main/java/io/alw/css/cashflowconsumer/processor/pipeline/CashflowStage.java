@@ -0,0 +1,18 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+
+/// A step of the [CashflowPipeline]
+///
+/// A stage either returns a [StageResult], or throws a [io.alw.css.domain.exception.CategorizedRuntimeException] which results in a rejection of the message
+public interface CashflowStage {
+
+    StageResult apply(CashflowContext ctx);
+
+    /// The CCPS step the time spent in this stage is accounted to
+    CcpsStep step();
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,68 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.model.RejectionReason;
+import io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+import io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome;
+import io.alw.css.cashflowconsumer.processor.CashflowVersionManager;
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.domain.exception.ExceptionCategory;
+import io.alw.css.domain.exception.ExceptionType;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/// Checks the message against the last processed cashflow. See [CashflowVersionManager#checkAgainstLastProcessedCashflow(long, int, long, int)]
+/// - skips a message that is already processed
+/// - rejects a message whose last processed cashflow is cancelled
+/// - parks a message whose preceding version is not processed yet, if parking is allowed. Otherwise, the message is processed as is:
+///   a first version is rejected by [CashflowVersionManager#createFirstVersionCF] and a non-first version offsets the last processed cashflow
+public final class DuplicateCheckStage implements CashflowStage {
+    private final static Logger log = LoggerFactory.getLogger(DuplicateCheckStage.class);
+
+    private final CashflowVersionManager cashflowVersionManager;
+
+    public DuplicateCheckStage(CashflowVersionManager cashflowVersionManager) {
+        this.cashflowVersionManager = cashflowVersionManager;
+    }
+
+    @Override
+    public StageResult apply(CashflowContext ctx) {
+        FoCashMessageAvro foMsg = ctx.foMsg();
+        long foCashflowID = foMsg.getCashflowID();
+        int foCashflowVersion = foMsg.getCashflowVersion();
+        long tradeID = foMsg.getTradeID();
+        int tradeVersion = foMsg.getTradeVersion();
+
+        CFProcessedCheckOutcome outcome = ctx.lastProcessedCashflowPrefetched()
+                ? cashflowVersionManager.checkAgainstLastProcessedCashflow(foCashflowID, foCashflowVersion, tradeID, tradeVersion, ctx.prefetchedLastProcessedCashflow())
+                : cashflowVersionManager.checkAgainstLastProcessedCashflow(foCashflowID, foCashflowVersion, tradeID, tradeVersion);
+        if (outcome instanceof CFProcessedCheckOutcome.PredecessorNotProcessed(var lastProcessedCashflow)) {
+            if (ctx.parkingAllowed()) {
+                log.info("Preceding version is not processed yet. Parking the cashflow[foCfID: {}, foCfVer: {}]", foCashflowID, foCashflowVersion);
+                return new StageResult.Park();
+            }
+            outcome = lastProcessedCashflow == null ? CFProcessedCheckOutcome.FIRST_VERSION : new CFProcessedCheckOutcome.NonFirstVersion(lastProcessedCashflow);
+        }
+        ctx.checkOutcome(outcome);
+
+        return switch (outcome) {
+            case CFProcessedCheckOutcome.FirstVersion _, CFProcessedCheckOutcome.NonFirstVersion _ -> StageResult.CONTINUE;
+            case CFProcessedCheckOutcome.AlreadyProcessed _ -> {
+                log.info("Received duplicate cashflow[foCfID: {}, foCfVer: {}]", foCashflowID, foCashflowVersion);
+                yield new StageResult.Skip("Duplicate cashflow");
+            }
+            case CFProcessedCheckOutcome.PredecessorNotProcessed _ -> throw new IllegalStateException("PredecessorNotProcessed must be resolved before");
+            case CFProcessedCheckOutcome.LastCashflowIsCancelled _ -> {
+                log.info("Last cashflow is cancelled. No further amendment is permitted. FoCashflowID-Ver: {}-{}", foCashflowID, foCashflowVersion);
+                yield new StageResult.Reject(new RejectionReason(ExceptionType.BUSINESS, ExceptionCategory.UNRECOVERABLE, ExceptionSubCategoryType.LAST_CASHFLOW_IS_CANCELLED,
+                        "No further amendment is permitted when last cashflow is cancelled", false, InputBy.CSS_SYS));
+            }
+        };
+    }
+
+    @Override
+    public CcpsStep step() {
+        return CcpsStep.DETERMINE_VERSION;
+    }
+}
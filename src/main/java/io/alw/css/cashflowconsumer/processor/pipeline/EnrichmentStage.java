@@ -0,0 +1,48 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.model.PreparedCashflow;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+import io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome;
+import io.alw.css.cashflowconsumer.processor.CashflowEnricher;
+import io.alw.css.cashflowconsumer.processor.CashflowVersionManager;
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import io.alw.css.domain.cashflow.RevisionType;
+
+import java.util.Map;
+
+/// Enriches the cashflow using the reference data on the Ignite cluster and creates the cashflows to be persisted
+public final class EnrichmentStage implements CashflowStage {
+    private final CashflowEnricher cashflowEnricher;
+    private final CashflowVersionManager cashflowVersionManager;
+
+    public EnrichmentStage(CashflowEnricher cashflowEnricher, CashflowVersionManager cashflowVersionManager) {
+        this.cashflowEnricher = cashflowEnricher;
+        this.cashflowVersionManager = cashflowVersionManager;
+    }
+
+    @Override
+    public StageResult apply(CashflowContext ctx) {
+        CashflowBuilder cashflowBuilder = ctx.cashflowBuilder();
+        cashflowEnricher.enrich(cashflowBuilder);
+
+        PreparedCashflow preparedCashflow = switch (ctx.checkOutcome()) {
+            case CFProcessedCheckOutcome.FirstVersion _ -> {
+                Cashflow cf = cashflowVersionManager.createFirstVersionCF(cashflowBuilder, ctx.trace());
+                yield new PreparedCashflow(ctx.foMsg(), Map.of(RevisionType.NEW, cf), null);
+            }
+            case CFProcessedCheckOutcome.NonFirstVersion(var lastProcessedCashflow) -> {
+                Map<RevisionType, Cashflow> cashflows = cashflowVersionManager.createNonFirstVersionCF(lastProcessedCashflow, cashflowBuilder);
+                yield new PreparedCashflow(ctx.foMsg(), cashflows, lastProcessedCashflow);
+            }
+            case CFProcessedCheckOutcome.AlreadyProcessed _, CFProcessedCheckOutcome.LastCashflowIsCancelled _, CFProcessedCheckOutcome.PredecessorNotProcessed _ ->
+                    throw new IllegalStateException("Cashflow must not be enriched for the outcome: " + ctx.checkOutcome());
+        };
+        return new StageResult.Prepared(preparedCashflow);
+    }
+
+    @Override
+    public CcpsStep step() {
+        return CcpsStep.ENRICH_AND_CREATE;
+    }
+}
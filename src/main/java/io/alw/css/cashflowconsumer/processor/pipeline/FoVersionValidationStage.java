@@ -0,0 +1,23 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.model.FieldError;
+import io.alw.css.cashflowconsumer.model.RejectionReason;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+import io.alw.css.cashflowconsumer.processor.FoCashMessageMapper;
+
+import java.util.List;
+
+/// Validates the foCashflowVersion, which the [DuplicateCheckStage] relies on
+public final class FoVersionValidationStage implements CashflowStage {
+
+    @Override
+    public StageResult apply(CashflowContext ctx) {
+        FieldError fieldError = FoCashMessageMapper.validateFoCashflowVersion(ctx.foMsg());
+        return fieldError == null ? StageResult.CONTINUE : new StageResult.Reject(RejectionReason.ofFieldErrors(List.of(fieldError)));
+    }
+
+    @Override
+    public CcpsStep step() {
+        return CcpsStep.MAP;
+    }
+}
@@ -0,0 +1,24 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+import io.alw.css.cashflowconsumer.processor.CashflowEnricher;
+
+/// Validates the entity and currency against the locally cached reference data, before the remote reference data is looked up
+public final class LocalRefDataValidationStage implements CashflowStage {
+    private final CashflowEnricher cashflowEnricher;
+
+    public LocalRefDataValidationStage(CashflowEnricher cashflowEnricher) {
+        this.cashflowEnricher = cashflowEnricher;
+    }
+
+    @Override
+    public StageResult apply(CashflowContext ctx) {
+        cashflowEnricher.validateEntityAndCurrCode(ctx.cashflowBuilder());
+        return StageResult.CONTINUE;
+    }
+
+    @Override
+    public CcpsStep step() {
+        return CcpsStep.REF_DATA_VALIDATION;
+    }
+}
@@ -0,0 +1,34 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.model.RejectionReason;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+import io.alw.css.cashflowconsumer.processor.CashflowVersionManager;
+import io.alw.css.cashflowconsumer.processor.FoCashMessageMapper;
+import io.alw.css.cashflowconsumer.processor.MappingResult;
+
+/// Maps the message to a [io.alw.css.domain.cashflow.CashflowBuilder] and computes its RevisionType.
+/// Rejects the message with all of its invalid fields if any
+public final class MappingStage implements CashflowStage {
+    private final CashflowVersionManager cashflowVersionManager;
+
+    public MappingStage(CashflowVersionManager cashflowVersionManager) {
+        this.cashflowVersionManager = cashflowVersionManager;
+    }
+
+    @Override
+    public StageResult apply(CashflowContext ctx) {
+        MappingResult mappingResult = FoCashMessageMapper.mapToDomain(ctx.foMsg());
+        if (!mappingResult.valid()) {
+            return new StageResult.Reject(RejectionReason.ofFieldErrors(mappingResult.fieldErrors()));
+        }
+
+        cashflowVersionManager.computeAndSetRevisionType(mappingResult.cashflowBuilder(), mappingResult.tradeEventType(), mappingResult.tradeEventAction());
+        ctx.cashflowBuilder(mappingResult.cashflowBuilder());
+        return StageResult.CONTINUE;
+    }
+
+    @Override
+    public CcpsStep step() {
+        return CcpsStep.MAP;
+    }
+}
@@ -0,0 +1,29 @@
+package io.alw.css.cashflowconsumer.processor.pipeline;
+
+import io.alw.css.cashflowconsumer.model.PreparedCashflow;
+import io.alw.css.cashflowconsumer.model.RejectionReason;
+
+/// Result of a [CashflowStage]. Any result other than [Continue] ends the [CashflowPipeline]
+public sealed interface StageResult {
+    Continue CONTINUE = new Continue();
+
+    /// Continue with the next stage
+    record Continue() implements StageResult {
+    }
+
+    /// The message is processed completely and there is nothing to persist. Ex: a duplicate message
+    record Skip(String reason) implements StageResult {
+    }
+
+    /// The message must be rejected
+    record Reject(RejectionReason reason) implements StageResult {
+    }
+
+    /// The message must wait until the preceding version of the cashflow is processed
+    record Park() implements StageResult {
+    }
+
+    /// The cashflow is ready to be persisted
+    record Prepared(PreparedCashflow preparedCashflow) implements StageResult {
+    }
+}
@@ -8,76 +8,99 @@ import io.alw.css.domain.exception.CategorizedRuntimeException;
 import io.alw.css.domain.exception.ExceptionSubCategory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import static io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType.REVISION_TYPE_RESOLUTION_FAILURE;
 
+/// Resolves the [RevisionType] from a decision table that is compiled from the [RuleDefinition]s when this class is initialized.
+///
+/// The decision table is a dense array indexed by the ordinals of (firstCashflow, [TradeType], [TradeEventType], [TradeEventAction]).
+/// Hence, a resolution is a single array load, without any allocation.
 public final class RevisionTypeResolver {
-    private static final Map<CashflowOrder, List<Rule>> commonRules = groupByCashflowOrder(CommonRules.rules);
-    private static final Map<CashflowOrder, List<Rule>> ndfRules = combineWithCommonRulesAndGroupByCashflowOrder(NdfRules.rules);
-    private static final Map<CashflowOrder, List<Rule>> bondRules = combineWithCommonRulesAndGroupByCashflowOrder(BondRules.rules);
-    private static final Map<CashflowOrder, List<Rule>> repoRules = combineWithCommonRulesAndGroupByCashflowOrder(RepoRules.rules);
-    private static final Map<CashflowOrder, List<Rule>> optionRules = combineWithCommonRulesAndGroupByCashflowOrder(OptionRules.rules);
+    private static final int NUM_OF_TRADE_TYPES = TradeType.values().length;
+    private static final int NUM_OF_TRADE_EVENT_TYPES = TradeEventType.values().length;
+    private static final int NUM_OF_TRADE_EVENT_ACTIONS = TradeEventAction.values().length;
+
+    /// A null entry denotes that no rule matches the combination of inputs
+    private static final RevisionType[] decisionTable = buildDecisionTable();
 
     public static RevisionType resolve(boolean firstCashflow, TradeType tradeType, TradeEventType tradeEventType, TradeEventAction tradeEventAction) {
-        var tradeTypeSpecificRules = getRulesForTradeType(tradeType);
-        Rule matchingRule = findMatchingRule(tradeTypeSpecificRules, firstCashflow, tradeEventType, tradeEventAction);
-        if (matchingRule == null) {
+        RevisionType revisionType = decisionTable[index(firstCashflow, tradeType, tradeEventType, tradeEventAction)];
+        if (revisionType == null) {
             throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("Unable to determine RevisionType from the given combination of inputs", new ExceptionSubCategory(REVISION_TYPE_RESOLUTION_FAILURE, null));
         }
 
-        return matchingRule.result();
+        return revisionType;
     }
 
-    private static Rule findMatchingRule(Map<CashflowOrder, List<Rule>> tradeTypeSpecificRules, boolean firstCashflow, TradeEventType tradeEventType, TradeEventAction tradeEventAction) {
-        List<Rule> rulesForBothCashflowOrder = tradeTypeSpecificRules.get(CashflowOrder.BOTH);
-        Rule matchedRule = findMatchingRule(rulesForBothCashflowOrder, tradeEventType, tradeEventAction);
-        if (matchedRule == null) {
-            CashflowOrder cashflowOrder = firstCashflow ? CashflowOrder.FIRST : CashflowOrder.NON_FIRST;
-            List<Rule> rulesForASpecificCashflowOrder = tradeTypeSpecificRules.get(cashflowOrder);
-            return findMatchingRule(rulesForASpecificCashflowOrder, tradeEventType, tradeEventAction);
-        } else {
-            return matchedRule;
-        }
+    private static int index(boolean firstCashflow, TradeType tradeType, TradeEventType tradeEventType, TradeEventAction tradeEventAction) {
+        int cashflowOrder = firstCashflow ? 1 : 0;
+        return ((cashflowOrder * NUM_OF_TRADE_TYPES + tradeType.ordinal()) * NUM_OF_TRADE_EVENT_TYPES + tradeEventType.ordinal()) * NUM_OF_TRADE_EVENT_ACTIONS + tradeEventAction.ordinal();
     }
 
-    private static Rule findMatchingRule(List<Rule> rules, TradeEventType tradeEventType, TradeEventAction tradeEventAction) {
-        if (rules == null) {
-            return null;
-        }
+    /// Compiles the rules applicable to every [TradeType] into the decision table.
+    /// Rules of [CashflowOrder#BOTH] take precedence over the rules of [CashflowOrder#FIRST] and [CashflowOrder#NON_FIRST], and the trade type specific rules take precedence over the common rules.
+    ///
+    /// Fails the initialization of this class if the rules are:
+    /// - conflicting: two rules resolve the same combination of inputs to different RevisionTypes
+    /// - unreachable: every combination of inputs of a rule is already resolved by rules of higher precedence, for every TradeType the rule applies to
+    private static RevisionType[] buildDecisionTable() {
+        var table = new RevisionType[2 * NUM_OF_TRADE_TYPES * NUM_OF_TRADE_EVENT_TYPES * NUM_OF_TRADE_EVENT_ACTIONS];
+        var resolvingRules = new Rule[table.length];
+        Set<Rule> allRules = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Rule> reachableRules = Collections.newSetFromMap(new IdentityHashMap<>());
 
-        for (Rule rule : rules) {
-            for (TradeEventAndAction tea : rule.tradeEventAndActionRecords()) {
-                if (tea.event() == tradeEventType && tea.action() == tradeEventAction) {
-                    return rule;
+        for (TradeType tradeType : TradeType.values()) {
+            for (Rule rule : getRulesForTradeType(tradeType)) {
+                allRules.add(rule);
+                for (boolean firstCashflow : firstCashflowValues(rule.cashflowOrder())) {
+                    for (TradeEventAndAction tea : rule.tradeEventAndActionRecords()) {
+                        int index = index(firstCashflow, tradeType, tea.event(), tea.action());
+                        if (table[index] == null) {
+                            table[index] = rule.result();
+                            resolvingRules[index] = rule;
+                            reachableRules.add(rule);
+                        } else if (table[index] != rule.result()) {
+                            throw new IllegalStateException("Conflicting RevisionType rules for [firstCashflow: " + firstCashflow + ", tradeType: " + tradeType + ", " + tea + "]. " + resolvingRules[index] + " conflicts with " + rule);
+                        }
+                    }
                 }
             }
         }
 
-        return null;
-    }
+        List<Rule> unreachableRules = allRules.stream().filter(rule -> !reachableRules.contains(rule)).toList();
+        if (!unreachableRules.isEmpty()) {
+            throw new IllegalStateException("Unreachable RevisionType rules: " + unreachableRules);
+        }
 
-    private static Map<CashflowOrder, List<Rule>> getRulesForTradeType(TradeType tradeType) {
-        return switch (tradeType) {
-            case PAYMENT -> commonRules;
-            case FX -> commonRules;
-            case FX_NDF -> ndfRules;
-            case BOND -> bondRules;
-            case REPO -> repoRules;
-            case OPTION -> optionRules;
-        };
+        return table;
     }
 
-    private static Map<CashflowOrder, List<Rule>> combineWithCommonRulesAndGroupByCashflowOrder(List<Rule> rules) {
-        var combined = new ArrayList<Rule>();
-        combined.addAll(rules);
-        combined.addAll(CommonRules.rules);
-        return groupByCashflowOrder(combined);
+    private static boolean[] firstCashflowValues(CashflowOrder cashflowOrder) {
+        return switch (cashflowOrder) {
+            case FIRST -> new boolean[]{true};
+            case NON_FIRST -> new boolean[]{false};
+            case BOTH -> new boolean[]{true, false};
+        };
     }
 
-    private static Map<CashflowOrder, List<Rule>> groupByCashflowOrder(List<Rule> rules) {
-        return rules.stream().collect(Collectors.groupingBy(Rule::cashflowOrder));
+    /// @return the rules in the order of precedence
+    private static List<Rule> getRulesForTradeType(TradeType tradeType) {
+        var rules = new ArrayList<Rule>();
+        switch (tradeType) {
+            case PAYMENT, FX -> {
+            }
+            case FX_NDF -> rules.addAll(NdfRules.rules);
+            case BOND -> rules.addAll(BondRules.rules);
+            case REPO -> rules.addAll(RepoRules.rules);
+            case OPTION -> rules.addAll(OptionRules.rules);
+        }
+        rules.addAll(CommonRules.rules);
+        rules.sort(Comparator.comparing(rule -> rule.cashflowOrder() != CashflowOrder.BOTH)); // stable sort
+        return rules;
     }
 }
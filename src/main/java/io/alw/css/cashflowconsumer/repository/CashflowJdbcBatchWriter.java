@@ -0,0 +1,80 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import io.alw.css.cashflowconsumer.model.jpa.CashflowEntity;
+import io.alw.css.cashflowconsumer.model.jpa.TradeLinkEntity;
+import io.alw.css.cashflowconsumer.repository.mapper.CashflowMapper;
+import io.alw.css.domain.cashflow.Cashflow;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/// Inserts cashflows and their trade links into CSS.CASHFLOW and CSS.TRADE_LINK as JDBC batches: one batch for the cashflows and one batch for all their trade links.
+/// Trade link IDs are handed out by a [SequenceBlockAllocator] instead of a sequence round-trip per trade link.
+///
+/// The columns are the same as mapped by [CashflowEntity] and [TradeLinkEntity], and the values are mapped by [CashflowMapper]. Any change to the entities must be done here as well.
+///
+/// @implNote [JdbcTemplate] uses the JDBC connection of the ongoing JPA transaction. Hence, the inserts are atomic with the update of the last processed cashflow's 'latest' field.
+/// The JPQL update is executed immediately, before these inserts
+public final class CashflowJdbcBatchWriter {
+    private static final String INSERT_CASHFLOW = """
+            insert into CSS.CASHFLOW (CASHFLOW_ID, CASHFLOW_VERSION, LATEST, REVISION_TYPE, FO_CASHFLOW_ID, FO_CASHFLOW_VERSION, TRADE_ID, TRADE_VERSION,
+            TRADE_TYPE, BOOK_CODE, COUNTER_BOOK_CODE, TRANSACTION_TYPE, RATE, VALUE_DATE, ENTITY_CODE, COUNTERPARTY_CODE, AMOUNT, CURR_CODE,
+            INTERNAL, NOSTRO_ID, SSI_ID, PAYMENT_SUPPRESSION_CATEGORY, INPUT_BY, INPUT_BY_USER_ID, INPUT_DATE_TIME)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final int[] CASHFLOW_ARG_TYPES = {
+            Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.INTEGER, Types.BIGINT, Types.INTEGER,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.DATE, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP};
+
+    private static final String INSERT_TRADE_LINK = "insert into CSS.TRADE_LINK (ID, CF_ID, CF_VERSION, LINK_TYPE, RELATED_REFERENCE) values (?, ?, ?, ?, ?)";
+    private static final int[] TRADE_LINK_ARG_TYPES = {Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.VARCHAR};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceBlockAllocator tradeLinkIdAllocator;
+
+    public CashflowJdbcBatchWriter(JdbcTemplate jdbcTemplate, SequenceBlockAllocator tradeLinkIdAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tradeLinkIdAllocator = tradeLinkIdAllocator;
+    }
+
+    /// Must be called within a RW transaction
+    public void insert(Collection<Cashflow> cashflows) {
+        var cashflowArgs = new ArrayList<Object[]>(cashflows.size());
+        var tradeLinkArgs = new ArrayList<Object[]>();
+        for (Cashflow cf : cashflows) {
+            CashflowEntity cfe = CashflowMapper.instance().mapToEntity_excludingTradeLinks(cf);
+            cashflowArgs.add(cashflowArgs(cfe));
+
+            List<TradeLinkEntity> tles = CashflowMapper.mapTradeLinkToTradeLinkEntity(cf, cfe);
+            if (tles != null) {
+                for (TradeLinkEntity tle : tles) {
+                    tradeLinkArgs.add(new Object[]{tradeLinkIdAllocator.nextId(), tle.getCashflowID(), tle.getCashflowVersion(), tle.getLinkType(), tle.getRelatedReference()});
+                }
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_CASHFLOW, cashflowArgs, CASHFLOW_ARG_TYPES);
+        if (!tradeLinkArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TRADE_LINK, tradeLinkArgs, TRADE_LINK_ARG_TYPES);
+        }
+    }
+
+    private static Object[] cashflowArgs(CashflowEntity cfe) {
+        return new Object[]{
+                cfe.getCashflowEntityPK().cashflowID(), cfe.getCashflowEntityPK().cashflowVersion(), name(cfe.getLatest()), name(cfe.getRevisionType()),
+                cfe.getFoCashflowID(), cfe.getFoCashflowVersion(), cfe.getTradeID(), cfe.getTradeVersion(),
+                cfe.getTradeType(), cfe.getBookCode(), cfe.getCounterBookCode(), cfe.getTransactionType(), cfe.getRate(), cfe.getValueDate(),
+                cfe.getEntityCode(), cfe.getCounterpartyCode(), cfe.getAmount(), cfe.getCurrCode(),
+                name(cfe.getInternal()), cfe.getNostroID(), cfe.getSsiID(), name(cfe.getPaymentSuppressionCategory()),
+                name(cfe.getInputBy()), cfe.getInputByUserID(), cfe.getInputDateTime()};
+    }
+
+    /// Same as `@Enumerated(EnumType.STRING)`
+    private static String name(Enum<?> e) {
+        return e == null ? null : e.name();
+    }
+}
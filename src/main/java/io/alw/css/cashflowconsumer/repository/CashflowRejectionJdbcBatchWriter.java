@@ -0,0 +1,56 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import io.alw.css.cashflowconsumer.model.jpa.CashflowRejectionEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/// Inserts rejections into CSS.CASHFLOW_REJECTION as one JDBC batch.
+/// The IDs are handed out by the same [SequenceBlockAllocator] as the trade link IDs of [CashflowJdbcBatchWriter], as both are taken from CSS.css_common_seq.
+///
+/// The columns are the same as mapped by [CashflowRejectionEntity]. Any change to the entity must be done here as well.
+public final class CashflowRejectionJdbcBatchWriter {
+    private static final String INSERT_REJECTION = """
+            insert into CSS.CASHFLOW_REJECTION (ID, FO_CASHFLOW_ID, FO_CASHFLOW_VERSION, TRADE_ID, TRADE_VERSION, TRADE_TYPE, VALUE_DATE, ENTITY_CODE, COUNTERPARTY_CODE,
+            AMOUNT, CURR_CODE, EXCEPTION_TYPE, EXCEPTION_CATEGORY, EXCEPTION_SUB_CATEGORY, MSG, REPLAYABLE, NUM_OF_RETRIES, CREATED_DATE_TIME, INPUT_BY,
+            UPDATED_DATE_TIME, FO_MESSAGE)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final int[] REJECTION_ARG_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.DATE, Types.VARCHAR, Types.VARCHAR,
+            Types.NUMERIC, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.VARCHAR,
+            Types.TIMESTAMP, Types.VARBINARY};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceBlockAllocator rejectionIdAllocator;
+
+    public CashflowRejectionJdbcBatchWriter(JdbcTemplate jdbcTemplate, SequenceBlockAllocator rejectionIdAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rejectionIdAllocator = rejectionIdAllocator;
+    }
+
+    /// Must be called within a RW transaction. Sets the ID of the rejections
+    public void insert(Collection<CashflowRejectionEntity> rejections) {
+        var rejectionArgs = new ArrayList<Object[]>(rejections.size());
+        for (CashflowRejectionEntity cfr : rejections) {
+            cfr.setId(rejectionIdAllocator.nextId());
+            rejectionArgs.add(rejectionArgs(cfr));
+        }
+        jdbcTemplate.batchUpdate(INSERT_REJECTION, rejectionArgs, REJECTION_ARG_TYPES);
+    }
+
+    private static Object[] rejectionArgs(CashflowRejectionEntity cfr) {
+        return new Object[]{
+                cfr.getId(), cfr.getFoCashflowID(), cfr.getFoCashflowVersion(), cfr.getTradeID(), cfr.getTradeVersion(), cfr.getTradeType(), cfr.getValueDate(),
+                cfr.getEntityCode(), cfr.getCounterpartyCode(), cfr.getAmount(), cfr.getCurrCode(),
+                cfr.getExceptionType(), cfr.getExceptionCategory(), cfr.getExceptionSubCategory(), cfr.getMsg(), name(cfr.getReplayable()), cfr.getNumOfRetries(),
+                cfr.getCreatedDateTime(), name(cfr.getInputBy()), cfr.getUpdatedDateTime(), cfr.getFoMessage()};
+    }
+
+    /// Same as `@Enumerated(EnumType.STRING)`
+    private static String name(Enum<?> e) {
+        return e == null ? null : e.name();
+    }
+}
@@ -1,9 +1,43 @@
 package io.alw.css.cashflowconsumer.repository;
 
+import io.alw.css.cashflowconsumer.model.ReplayableRejection;
 import io.alw.css.cashflowconsumer.model.jpa.CashflowRejectionEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CashflowRejectionRepository extends JpaRepository<CashflowRejectionEntity, Long> {
+
+    /// Keyset paging by ID. The next page starts after the ID of the last rejection of the previous page
+    @Query(value = """
+            select new io.alw.css.cashflowconsumer.model.ReplayableRejection(r.id, r.inputBy, r.numOfRetries, r.foMessage)
+            from CashflowRejectionEntity r
+            where r.exceptionSubCategory = :exceptionSubCategory and r.replayable = io.alw.css.domain.common.YesNo.Y and r.foMessage is not null and r.id > :afterID and r.id <= :maxID
+            order by r.id
+            """)
+    List<ReplayableRejection> findReplayableRejections(@Param("exceptionSubCategory") String exceptionSubCategory, @Param("afterID") long afterID, @Param("maxID") long maxID, Limit limit);
+
+    /// @return null if there is no replayable rejection of the sub category
+    @Query(value = """
+            select max(r.id)
+            from CashflowRejectionEntity r
+            where r.exceptionSubCategory = :exceptionSubCategory and r.replayable = io.alw.css.domain.common.YesNo.Y and r.foMessage is not null
+            """)
+    Long findMaxReplayableRejectionID(@Param("exceptionSubCategory") String exceptionSubCategory);
+
+    @Modifying
+    @Query(value = """
+            update CashflowRejectionEntity r
+            set r.numOfRetries = coalesce(r.numOfRetries, 0) + 1, r.replayable = io.alw.css.domain.common.YesNo.N, r.updatedDateTime = :updatedDateTime
+            where r.id in :ids
+            """)
+    int updateToReplayed(@Param("ids") Collection<Long> ids, @Param("updatedDateTime") LocalDateTime updatedDateTime);
 }
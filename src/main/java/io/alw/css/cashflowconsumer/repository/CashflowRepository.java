@@ -9,6 +9,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CashflowRepository extends JpaRepository<CashflowEntity, CashflowEntityPK> {
 
@@ -19,6 +22,13 @@ public interface CashflowRepository extends JpaRepository<CashflowEntity, Cashfl
             """)
     CashflowEntity findLastProcessedCashflow(long foCashflowID);
 
+    @Query(value = """
+            select cf from CashflowEntity cf
+            where cf.foCashflowID in :foCashflowIDs
+            and cf.foCashflowVersion in (select max(cf1.foCashflowVersion) from CashflowEntity cf1 where cf1.foCashflowID=cf.foCashflowID)
+            """)
+    List<CashflowEntity> findLastProcessedCashflows(@Param("foCashflowIDs") Collection<Long> foCashflowIDs);
+
     @Modifying
     @Query(value = """
             update CashflowEntity cf
@@ -1,7 +1,11 @@
 package io.alw.css.cashflowconsumer.repository;
 
+import io.alw.css.cashflowconsumer.model.ReplayableRejection;
 import io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType;
 import io.alw.css.cashflowconsumer.model.jpa.*;
+import io.alw.css.cashflowconsumer.model.properties.PersistenceConfig;
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.monitoring.CashflowWriteEvent;
 import io.alw.css.cashflowconsumer.repository.mapper.CashflowMapper;
 import io.alw.css.domain.cashflow.Cashflow;
 import io.alw.css.domain.cashflow.RevisionType;
@@ -11,21 +15,38 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public final class CashflowStore {
     private final static Logger log = LoggerFactory.getLogger(CashflowStore.class);
+    private final static int MAX_IN_LIST_SIZE = 1000; // Oracle does not permit more than 1000 expressions in an IN list
 
     @PersistenceContext
     private EntityManager em;
     private final CashflowRepository cashflowRepository;
     private final CashflowRejectionRepository cashflowRejectionRepository;
+    private final LastProcessedCashflowCache lastProcessedCashflowCache;
+    private final CashflowJdbcBatchWriter cashflowJdbcBatchWriter;
+    private final CashflowRejectionJdbcBatchWriter cashflowRejectionJdbcBatchWriter;
+    private final PersistenceConfig.Mode persistenceMode;
 
-    public CashflowStore(CashflowRepository cashflowRepository, CashflowRejectionRepository cashflowRejectionRepository) {
+    public CashflowStore(CashflowRepository cashflowRepository, CashflowRejectionRepository cashflowRejectionRepository, LastProcessedCashflowCache lastProcessedCashflowCache,
+                         CashflowJdbcBatchWriter cashflowJdbcBatchWriter, CashflowRejectionJdbcBatchWriter cashflowRejectionJdbcBatchWriter, PersistenceConfig persistenceConfig) {
         this.cashflowRepository = cashflowRepository;
         this.cashflowRejectionRepository = cashflowRejectionRepository;
+        this.lastProcessedCashflowCache = lastProcessedCashflowCache;
+        this.cashflowJdbcBatchWriter = cashflowJdbcBatchWriter;
+        this.cashflowRejectionJdbcBatchWriter = cashflowRejectionJdbcBatchWriter;
+        this.persistenceMode = persistenceConfig.mode();
+        log.info("Cashflow persistence mode: {}", persistenceMode);
     }
 
     /// **TODO**: When switching to Oracle DB, check whether Hibernate still returns Long
@@ -46,38 +67,145 @@ public final class CashflowStore {
     ///
     /// Example: Hibernate 6.X maps Oracle NUMBER type based on its width to java.lang.Integer, Long, BigDecimal etc. instead of the behaviour of old Hibernate versions that used to map oracle NUMBER to BigDecimal. Float types are mapped differently
     public long getNewCashflowID() {
-        return ((BigDecimal) em.createNativeQuery("select CSS.cashflow_seq.nextval from dual").getSingleResult()).longValue();
+        long startNanos = System.nanoTime();
+        try {
+            return ((BigDecimal) em.createNativeQuery("select CSS.cashflow_seq.nextval from dual").getSingleResult()).longValue();
+        } finally {
+            CashflowTrace.recordCall("DB: cashflow_seq", startNanos);
+        }
 //        return (long) em.createNativeQuery("select CSS.cashflow_seq.nextval from dual").getSingleResult();
     }
 
     /// This method returns null if no result. Does not use Optional
+    ///
+    /// The last processed cashflow is returned from [LastProcessedCashflowCache] if cached. Otherwise, fetched from the DB and cached
     public Cashflow getLastProcessedCashflow(long foCashflowID) {
+        Cashflow cachedLpcf = lastProcessedCashflowCache.get(foCashflowID);
+        if (cachedLpcf != null) {
+            return cachedLpcf;
+        }
+
+        long startNanos = System.nanoTime();
         CashflowEntity lpcf = cashflowRepository.findLastProcessedCashflow(foCashflowID);
+        CashflowTrace.recordCall("DB: last processed cashflow", startNanos);
         if (lpcf != null) {
-            return CashflowMapper.instance().mapToDomain_excludingAssociations(lpcf);
+            Cashflow cf = CashflowMapper.instance().mapToDomain_excludingAssociations(lpcf);
+            lastProcessedCashflowCache.put(cf);
+            return cf;
         } else {
             return null;
         }
     }
 
+    /// Fetches the last processed cashflows of all the given foCashflowIDs using one query per 1000 foCashflowIDs.
+    /// Only the foCashflowIDs that are not cached in [LastProcessedCashflowCache] are fetched from the DB
+    ///
+    /// @return map of foCashflowID to last processed cashflow. foCashflowIDs that are not yet processed are absent in the map
+    public Map<Long, Cashflow> getLastProcessedCashflows(Collection<Long> foCashflowIDs) {
+        Map<Long, Cashflow> lastProcessedCashflows = lastProcessedCashflowCache.getAll(foCashflowIDs);
+        var ids = new ArrayList<Long>(foCashflowIDs.size());
+        for (Long foCashflowID : foCashflowIDs) {
+            if (!lastProcessedCashflows.containsKey(foCashflowID)) {
+                ids.add(foCashflowID);
+            }
+        }
+
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size()));
+            for (CashflowEntity lpcf : cashflowRepository.findLastProcessedCashflows(chunk)) {
+                Cashflow cf = CashflowMapper.instance().mapToDomain_excludingAssociations(lpcf);
+                lastProcessedCashflowCache.put(cf);
+                lastProcessedCashflows.put(cf.foCashflowID(), cf);
+            }
+        }
+        return lastProcessedCashflows;
+    }
+
+    /// Inserts the rejection as per [PersistenceConfig#mode()], so that its ID is taken the same way as the IDs of [#saveRejections(Collection)]. Must be called within a RW transaction
     public void saveRejection(CashflowRejectionEntity cfr) {
-        cashflowRejectionRepository.save(cfr);
+        var event = new CashflowWriteEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try {
+            switch (persistenceMode) {
+                case JPA -> cashflowRejectionRepository.save(cfr);
+                case JDBC_BATCH -> cashflowRejectionJdbcBatchWriter.insert(List.of(cfr));
+            }
+        } finally {
+            event.commit("Rejection", cfr.getFoCashflowID() == null ? 0 : cfr.getFoCashflowID(), cfr.getFoCashflowVersion() == null ? 0 : cfr.getFoCashflowVersion(), 1);
+            CashflowTrace.recordCall("DB: insert rejection", startNanos);
+        }
+    }
+
+    /// Inserts the rejections as per [PersistenceConfig#mode()]. Must be called within a RW transaction
+    public void saveRejections(Collection<CashflowRejectionEntity> rejections) {
+        var event = new CashflowWriteEvent();
+        event.begin();
+        try {
+            switch (persistenceMode) {
+                case JPA -> rejections.forEach(cashflowRejectionRepository::save);
+                case JDBC_BATCH -> cashflowRejectionJdbcBatchWriter.insert(rejections);
+            }
+        } finally {
+            event.commit("Rejections", 0, 0, rejections.size());
+        }
+    }
+
+    /// @return up to `limit` replayable rejections of the sub category having an ID greater than `afterID` and at most `maxID`, ordered by ID
+    public List<ReplayableRejection> getReplayableRejections(String exceptionSubCategory, long afterID, long maxID, int limit) {
+        return cashflowRejectionRepository.findReplayableRejections(exceptionSubCategory, afterID, maxID, Limit.of(limit));
+    }
+
+    /// @return the highest ID of the replayable rejections of the sub category, 0 if there is none
+    public long getMaxReplayableRejectionID(String exceptionSubCategory) {
+        Long maxID = cashflowRejectionRepository.findMaxReplayableRejectionID(exceptionSubCategory);
+        return maxID == null ? 0 : maxID;
+    }
+
+    /// Increments the numOfRetries of the rejections and marks them as not replayable, using one statement per 1000 IDs.
+    /// A replayed message that fails again is rejected anew, hence the replayed rejection is not replayed again
+    public void updateRejectionsToReplayed(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            cashflowRejectionRepository.updateToReplayed(ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size())), now);
+        }
     }
 
     public void saveFirstVersionCF(Cashflow cf) {
-        log.trace("Saving Cashflow[{}-{}] to DB. tradeLinks: {}", cf.cashflowID(), cf.cashflowVersion(), cf.tradeLinks() != null);
-        CashflowEntity cfe = CashflowMapper.mapToEntity(cf);
-        cashflowRepository.save(cfe);
+        var event = new CashflowWriteEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try {
+            insertCashflows(List.of(cf));
+        } finally {
+            event.commit("FirstVersion", cf.foCashflowID(), cf.foCashflowVersion(), 1);
+            CashflowTrace.recordCall("DB: insert first version", startNanos);
+        }
+        lastProcessedCashflowCache.putAfterCommit(cf);
     }
 
     /// This method does following actions atomically:
     /// 1. Update last processed cashflow's 'latest' field to 'N'
     /// 2. If exactly ONE row is updated in step 1, continues to step 3. If zero rows updated, throws a [io.alw.css.domain.exception.CategorizedRuntimeException]
     /// 3. inserts the offset and correction cashflows to DB. (Correction cashflow is created with latest='Y')
-    /// 4. return
+    /// 4. caches the new last processed cashflow(COR, or CAN if there is no COR) once the transaction is committed. If zero rows are updated in step 1, the cached last processed cashflow is invalidated as it is stale
+    /// 5. return
     ///
     /// NOTE: Since this method does multiple individual updates, it may be better to use a database procedure instead
     public void saveNonFirstVersionCF(Map<RevisionType, Cashflow> cashflows, Cashflow lastProcessedCashflow) {
+        var event = new CashflowWriteEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        try {
+            updateLastProcessedAndInsertCashflows(cashflows, lastProcessedCashflow);
+        } finally {
+            Cashflow amendCf = cashflows.containsKey(RevisionType.COR) ? cashflows.get(RevisionType.COR) : cashflows.get(RevisionType.CAN);
+            event.commit("NonFirstVersion", amendCf.foCashflowID(), amendCf.foCashflowVersion(), cashflows.size() + 1);
+            CashflowTrace.recordCall("DB: update and insert non-first version", startNanos);
+        }
+    }
+
+    private void updateLastProcessedAndInsertCashflows(Map<RevisionType, Cashflow> cashflows, Cashflow lastProcessedCashflow) {
         long lpcfId = lastProcessedCashflow.cashflowID();
         int lpcfVer = lastProcessedCashflow.cashflowVersion();
 
@@ -86,24 +214,36 @@ public final class CashflowStore {
 
         // Step 2 and 3: If exactly ONE row is updated, persists the cashflows. Otherwise, throws an exception
         if (numOfRowsUpdated == 1) {
-            cashflows.values().stream()
-                    .peek(cf -> log.trace("Saving Cashflow[{}-{}] to DB. tradeLinks: {}", cf.cashflowID(), cf.cashflowVersion(), cf.tradeLinks() != null))
-                    .map(CashflowMapper::mapToEntity)
-                    .forEach(cashflowRepository::save);
+            insertCashflows(cashflows.values());
+            Cashflow newLastProcessedCashflow = cashflows.containsKey(RevisionType.COR) ? cashflows.get(RevisionType.COR) : cashflows.get(RevisionType.CAN);
+            lastProcessedCashflowCache.putAfterCommit(newLastProcessedCashflow);
         } else if (numOfRowsUpdated == 0) {
-            Cashflow amendCf = cashflows.get(RevisionType.COR);
+            lastProcessedCashflowCache.invalidate(lastProcessedCashflow.foCashflowID());
+            Cashflow amendCf = cashflows.containsKey(RevisionType.COR) ? cashflows.get(RevisionType.COR) : cashflows.get(RevisionType.CAN);
             String errMsg = "Unable to persist cashflow amendment[foCfID: " + amendCf.foCashflowID() + ", foCfVer: " + amendCf.foCashflowVersion() + "] to database."
                     + " LastProcessedCashflow[cfID: " + lpcfId + ", cfVer: " + lpcfVer + "] was updated possibly by a concurrent transaction";
             log.error(errMsg);
             throw CategorizedRuntimeException.TECHNICAL_RECOVERABLE(errMsg, new ExceptionSubCategory(ExceptionSubCategoryType.CF_PERSISTENCE_FAILURE, lastProcessedCashflow)
             );
         } else if (numOfRowsUpdated > 1) {
-            Cashflow amendCf = cashflows.get(RevisionType.COR);
+            Cashflow amendCf = cashflows.containsKey(RevisionType.COR) ? cashflows.get(RevisionType.COR) : cashflows.get(RevisionType.CAN);
             String errMsg = "Unable to persist cashflow amendment[foCfID: " + amendCf.foCashflowID() + ", foCfVer: " + amendCf.foCashflowVersion() + "] to database."
                     + ". Multiple cashflows exist in database with latest='Y' for CashflowID " + lpcfId + ". The cashflow is in invalid state and this should NOT happen.";
             log.error(errMsg);
-            throw CategorizedRuntimeException.TECHNICAL_RECOVERABLE(errMsg, new ExceptionSubCategory(ExceptionSubCategoryType.CF_PERSISTENCE_FAILURE, lastProcessedCashflow)
+            // Unrecoverable, so that the invalid state is not retried
+            throw CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE(errMsg, new ExceptionSubCategory(ExceptionSubCategoryType.MULTIPLE_LATEST_CASHFLOWS, lastProcessedCashflow)
             );
         }
     }
+
+    /// Inserts the cashflows and their trade links as per [PersistenceConfig#mode()]
+    private void insertCashflows(Collection<Cashflow> cashflows) {
+        cashflows.forEach(cf -> log.trace("Saving Cashflow[{}-{}] to DB. tradeLinks: {}", cf.cashflowID(), cf.cashflowVersion(), cf.tradeLinks() != null));
+        switch (persistenceMode) {
+            case JPA -> cashflows.stream()
+                    .map(CashflowMapper::mapToEntity)
+                    .forEach(cashflowRepository::save);
+            case JDBC_BATCH -> cashflowJdbcBatchWriter.insert(cashflows);
+        }
+    }
 }
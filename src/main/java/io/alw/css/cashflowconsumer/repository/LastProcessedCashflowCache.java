@@ -0,0 +1,96 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.alw.css.cashflowconsumer.model.properties.LastProcessedCashflowCacheConfig;
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/// Caches the last processed cashflow of a foCashflowID, as returned by [CashflowStore#getLastProcessedCashflow(long)], to avoid a DB read per message.
+///
+/// The cache is kept consistent with the DB as below:
+/// - Write-through: [#putAfterCommit(Cashflow)] caches the new last processed cashflow only once the RW transaction that persists it is committed. A rolled back transaction leaves the previous entry, which is still the last processed cashflow in DB
+/// - Invalidation: [#invalidate(long)] removes an entry that is found to be stale. i.e. when the update of the last processed cashflow's 'latest' field updates zero rows
+/// - Rebalance: [#invalidateAll()] removes every entry when partitions are assigned to this instance, as their cashflows may have been processed by another instance since they were cached.
+///   The partition of a foCashflowID is not known here, hence the entries of the other partitions are removed as well
+/// - Expiry: an entry is evicted after [LastProcessedCashflowCacheConfig#expireAfterWrite()]. This bounds the staleness caused by writes that are not done by this instance. Ex: A CSS user amendment
+///
+/// Cached cashflows do not have trade links, same as the cashflows fetched by [CashflowStore]
+///
+/// @implNote The cache is not populated using a loader function. Caffeine runs the loader within a `ConcurrentHashMap.compute` which holds a monitor, and that pins a virtual thread for the duration of the DB read
+public final class LastProcessedCashflowCache {
+    private final static Logger log = LoggerFactory.getLogger(LastProcessedCashflowCache.class);
+
+    /// null if the cache is disabled
+    private final Cache<Long, Cashflow> cache;
+
+    public LastProcessedCashflowCache(LastProcessedCashflowCacheConfig config) {
+        this.cache = config.enabled()
+                ? Caffeine.newBuilder().maximumSize(config.maximumSize()).expireAfterWrite(config.expireAfterWrite()).build()
+                : null;
+        log.info("LastProcessedCashflowCache enabled: {}, maximumSize: {}, expireAfterWrite: {}", config.enabled(), config.maximumSize(), config.expireAfterWrite());
+    }
+
+    /// @return null if not cached
+    public Cashflow get(long foCashflowID) {
+        return cache == null ? null : cache.getIfPresent(foCashflowID);
+    }
+
+    /// @return map of foCashflowID to last processed cashflow for the foCashflowIDs that are cached
+    public Map<Long, Cashflow> getAll(Collection<Long> foCashflowIDs) {
+        if (cache == null) {
+            return new HashMap<>();
+        }
+        return new HashMap<>(cache.getAllPresent(foCashflowIDs));
+    }
+
+    /// Caches a last processed cashflow that is read from the DB
+    public void put(Cashflow lastProcessedCashflow) {
+        if (cache != null) {
+            cache.put(lastProcessedCashflow.foCashflowID(), withoutTradeLinks(lastProcessedCashflow));
+        }
+    }
+
+    /// Caches the cashflow once the current transaction is committed. Caches immediately if there is no transaction
+    public void putAfterCommit(Cashflow lastProcessedCashflow) {
+        if (cache == null) {
+            return;
+        }
+
+        Cashflow cf = withoutTradeLinks(lastProcessedCashflow);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(cf.foCashflowID(), cf);
+                }
+            });
+        } else {
+            cache.put(cf.foCashflowID(), cf);
+        }
+    }
+
+    public void invalidate(long foCashflowID) {
+        if (cache != null) {
+            cache.invalidate(foCashflowID);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private static Cashflow withoutTradeLinks(Cashflow cf) {
+        return cf.tradeLinks() == null ? cf : CashflowBuilder.builder(cf).tradeLinks(null).build();
+    }
+}
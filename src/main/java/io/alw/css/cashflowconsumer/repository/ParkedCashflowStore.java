@@ -0,0 +1,68 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import io.alw.css.cashflowconsumer.model.ParkedCashflow;
+import io.alw.css.cashflowconsumer.util.FoCashMessageCodec;
+import io.alw.css.dbshared.tx.TXRW;
+import io.alw.css.domain.common.InputBy;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/// Parked messages spilled by [io.alw.css.cashflowconsumer.service.VersionParkingBuffer] to the CSS.PARKED_CASHFLOW table. The message is stored Avro encoded. See [FoCashMessageCodec]
+///
+/// Every statement runs in its own transaction, except that [#save(ParkedCashflow)] runs its delete and insert in one transaction
+public final class ParkedCashflowStore {
+    private static final String INSERT = "insert into CSS.PARKED_CASHFLOW (FO_CASHFLOW_ID, FO_CASHFLOW_VERSION, INPUT_BY, PARKED_DATE_TIME, PAYLOAD) values (?, ?, ?, ?, ?)";
+    private static final int[] INSERT_ARG_TYPES = {Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP, Types.VARBINARY};
+    private static final String DELETE = "delete from CSS.PARKED_CASHFLOW where FO_CASHFLOW_ID = ? and FO_CASHFLOW_VERSION = ?";
+    private static final String SELECT = "select INPUT_BY, PARKED_DATE_TIME, PAYLOAD from CSS.PARKED_CASHFLOW where FO_CASHFLOW_ID = ? and FO_CASHFLOW_VERSION = ?";
+    private static final String SELECT_KEYS = "select FO_CASHFLOW_ID, FO_CASHFLOW_VERSION, INPUT_BY, PARKED_DATE_TIME from CSS.PARKED_CASHFLOW";
+
+    /// A spilled message without its payload
+    public record Key(long foCashflowID, int foCashflowVersion, InputBy inputBy, LocalDateTime parkedDateTime) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TXRW txrw;
+
+    public ParkedCashflowStore(JdbcTemplate jdbcTemplate, TXRW txrw) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.txrw = txrw;
+    }
+
+    /// Replaces the message of the same foCashflowID and foCashflowVersion if already spilled. Hence, the previous message is not lost if the insert fails
+    public void save(ParkedCashflow parkedCashflow) {
+        long foCashflowID = parkedCashflow.foMsg().getCashflowID();
+        int foCashflowVersion = parkedCashflow.foMsg().getCashflowVersion();
+        byte[] payload = FoCashMessageCodec.encode(parkedCashflow.foMsg());
+        txrw.executeWithoutResult(_ -> {
+            delete(foCashflowID, foCashflowVersion);
+            jdbcTemplate.update(INSERT, new Object[]{foCashflowID, foCashflowVersion, parkedCashflow.inputBy().name(), Timestamp.valueOf(parkedCashflow.parkedDateTime()), payload}, INSERT_ARG_TYPES);
+        });
+    }
+
+    /// @return null if not spilled
+    public ParkedCashflow find(long foCashflowID, int foCashflowVersion) {
+        List<ParkedCashflow> parkedCashflows = jdbcTemplate.query(SELECT, (rs, _) -> new ParkedCashflow(
+                FoCashMessageCodec.decode(rs.getBytes("PAYLOAD")),
+                InputBy.valueOf(rs.getString("INPUT_BY")),
+                rs.getTimestamp("PARKED_DATE_TIME").toLocalDateTime(),
+                true), foCashflowID, foCashflowVersion);
+        return parkedCashflows.isEmpty() ? null : parkedCashflows.getFirst();
+    }
+
+    public void delete(long foCashflowID, int foCashflowVersion) {
+        jdbcTemplate.update(DELETE, foCashflowID, foCashflowVersion);
+    }
+
+    public List<Key> findAllKeys() {
+        return jdbcTemplate.query(SELECT_KEYS, (rs, _) -> new Key(
+                rs.getLong("FO_CASHFLOW_ID"),
+                rs.getInt("FO_CASHFLOW_VERSION"),
+                InputBy.valueOf(rs.getString("INPUT_BY")),
+                rs.getTimestamp("PARKED_DATE_TIME").toLocalDateTime()));
+    }
+}
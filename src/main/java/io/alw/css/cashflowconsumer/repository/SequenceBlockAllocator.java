@@ -0,0 +1,149 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import io.alw.css.cashflowconsumer.model.properties.IdAllocationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/// Hands out IDs from blocks reserved from a DB sequence, instead of doing a sequence round-trip(and a transaction) per ID.
+///
+/// - IDs are handed out lock-free from the current block
+/// - When [IdAllocationConfig.BlockConfig#refillThresholdPercent] of the current block is used, the next block is reserved asynchronously. Hence, the next block is usually ready before the current block runs out
+/// - Only when the current block runs out before the next block is ready, the caller waits for the next block
+/// - The next block belongs to the block it follows. It is installed by a CAS on that block, which fails once the block is switched. Hence, a late refill neither reserves a block
+///   nor replaces the next block of another block, and no reserved block is discarded
+///
+/// IDs of a block that is not fully used, for instance when the application stops, are never handed out. This is the same as with any DB sequence with a cache.
+public final class SequenceBlockAllocator implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(SequenceBlockAllocator.class);
+
+    private final String name;
+    private final LongSupplier sequenceNextval;
+    private final IdAllocationConfig.Strategy strategy;
+    private final int blockSize;
+    private final int refillOffset;
+    private final ExecutorService refiller;
+    private final AtomicReference<Block> currentBlock;
+    private final ReentrantLock blockSwitchLock;
+
+    /// @param sequenceNextval returns the nextval of the DB sequence. It must run in its own transaction, as it is also called from the refiller thread
+    public SequenceBlockAllocator(String name, LongSupplier sequenceNextval, IdAllocationConfig.BlockConfig config) {
+        if (config.blockSize() < 1) {
+            throw new IllegalArgumentException("Block size of " + name + " must be at least 1. Configured: " + config.blockSize());
+        }
+        this.name = name;
+        this.sequenceNextval = sequenceNextval;
+        this.strategy = config.strategy();
+        this.blockSize = config.blockSize();
+        this.refillOffset = blockSize == 1 ? -1 : Math.clamp((long) blockSize * config.refillThresholdPercent() / 100, 0, blockSize - 1);
+        this.refiller = Executors.newSingleThreadExecutor(Thread.ofPlatform().name(name + "-id-refiller").daemon().factory());
+        this.currentBlock = new AtomicReference<>(Block.exhausted());
+        this.blockSwitchLock = new ReentrantLock();
+        log.info("Allocating {} IDs in blocks of {} using {} strategy", name, blockSize, strategy);
+    }
+
+    public long nextId() {
+        while (true) {
+            Block block = currentBlock.get();
+            long id = block.next.getAndIncrement();
+            if (id <= block.last) {
+                if (id == block.refillAt) {
+                    refill(block);
+                }
+                return id;
+            }
+            switchToNextBlock(block);
+        }
+    }
+
+    /// Reserves the block following the given block asynchronously, unless the given block is already switched
+    private void refill(Block block) {
+        var refill = new CompletableFuture<Block>();
+        if (!block.nextBlock.compareAndSet(null, refill)) {
+            return;
+        }
+        try {
+            refiller.execute(() -> {
+                try {
+                    refill.complete(reserveBlock());
+                } catch (Throwable e) {
+                    refill.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refill.completeExceptionally(e);
+        }
+    }
+
+    private void switchToNextBlock(Block exhaustedBlock) {
+        blockSwitchLock.lock();
+        try {
+            if (currentBlock.get() != exhaustedBlock) {
+                return; // Already switched by another thread
+            }
+
+            // Claimed, so that a refill of the exhausted block that has not started yet does not reserve a block
+            CompletableFuture<Block> prefetchedBlock = exhaustedBlock.nextBlock.getAndSet(Block.SWITCHED);
+            Block block;
+            if (prefetchedBlock == null) {
+                block = reserveBlock();
+            } else {
+                try {
+                    block = prefetchedBlock.join();
+                } catch (CompletionException e) {
+                    log.warn("Asynchronous reservation of the next block of {} IDs failed. Reserving it synchronously. Msg: {}", name, e.getMessage());
+                    block = reserveBlock();
+                }
+            }
+            currentBlock.set(block);
+        } finally {
+            blockSwitchLock.unlock();
+        }
+    }
+
+    private Block reserveBlock() {
+        long nextval = sequenceNextval.getAsLong();
+        long first = switch (strategy) {
+            case POOLED -> nextval;
+            case HILO -> Math.multiplyExact(nextval, blockSize);
+        };
+        log.debug("Reserved block of {} IDs: {} to {}", name, first, first + blockSize - 1);
+        return new Block(first, first + blockSize - 1, refillOffset < 0 ? -1 : first + refillOffset);
+    }
+
+    @Override
+    public void close() {
+        refiller.shutdownNow();
+    }
+
+    private static final class Block {
+        /// [#nextBlock] of a switched block, to which a refill is not installed
+        static final CompletableFuture<Block> SWITCHED = CompletableFuture.failedFuture(new IllegalStateException("Block is switched"));
+
+        private final AtomicLong next;
+        private final long last;
+        private final long refillAt;
+        /// The reservation of the block following this block. null until the refill of this block starts
+        private final AtomicReference<CompletableFuture<Block>> nextBlock = new AtomicReference<>();
+
+        Block(long first, long last, long refillAt) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+            this.refillAt = refillAt;
+        }
+
+        /// A new instance per allocator, as the next block is installed on it
+        static Block exhausted() {
+            return new Block(1, 0, -1);
+        }
+    }
+}
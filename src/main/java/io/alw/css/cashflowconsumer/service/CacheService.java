@@ -4,6 +4,14 @@ import io.alw.css.cashflowconsumer.model.SsiWithCounterpartyData;
 import io.alw.css.cashflowconsumer.model.NostroDetails;
 import io.alw.css.cashflowconsumer.model.OverridableNostro;
 import io.alw.css.cashflowconsumer.model.PrimaryNostro;
+import io.alw.css.cashflowconsumer.model.properties.RefDataConfig;
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.monitoring.RefDataQueryEvent;
+import io.alw.css.cashflowconsumer.service.refdata.NostroIndex;
+import io.alw.css.cashflowconsumer.service.refdata.RefDataChange;
+import io.alw.css.cashflowconsumer.service.refdata.RefDataChangeSubscriptions;
+import io.alw.css.cashflowconsumer.service.refdata.RefDataSnapshot;
+import io.alw.css.cashflowconsumer.service.refdata.SsiNearCache;
 import io.alw.css.domain.cashflow.TradeType;
 import io.alw.css.domain.exception.CategorizedRuntimeException;
 import io.alw.css.domain.exception.ExceptionSubCategory;
@@ -22,9 +30,13 @@ import org.springframework.stereotype.Service;
 
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType.UNEXPECTED_REFDATA;
@@ -32,16 +44,27 @@ import static io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryTy
 @Service
 public class CacheService {
     private final static Logger log = LoggerFactory.getLogger(CacheService.class);
+    private static final String CURRENCY_SQL = "select currCode, countryCode, pmFlag, cutOffTime, active, entryTime from currency";
+    private static final String ENTITY_SQL = "select entityCode, entityVersion, entityName, currCode, countryCode, countryName, bicCode, active, entryTime from entity";
 
     private final ClientConfiguration clientConfiguration;
+    private final RefDataConfig refDataConfig;
+    private final RefDataSnapshot<Currency> currencyLocalCache;
+    private final RefDataSnapshot<Entity> entityLocalCache;
     private IgniteClient igniteClient;
-    private Map<String, Currency> currencyLocalCache;
-    private Map<String, Entity> entityLocalCache;
+    private SsiNearCache ssiNearCache; // null if disabled
+    private NostroIndex nostroIndex; // null if disabled
+    private ScheduledExecutorService localCacheRefresher; // null if live refresh is disabled
+    private List<RefDataChangeSubscriptions> localCacheSubscriptions;
+    private final ExecutorService asyncLookupExecutor;
 
-    public CacheService(ClientConfiguration clientConfiguration) {
+    public CacheService(ClientConfiguration clientConfiguration, RefDataConfig refDataConfig) {
         this.clientConfiguration = clientConfiguration;
-        this.currencyLocalCache = new HashMap<>();
-        this.entityLocalCache = new HashMap<>();
+        this.refDataConfig = refDataConfig;
+        this.currencyLocalCache = new RefDataSnapshot<>("Currency");
+        this.entityLocalCache = new RefDataSnapshot<>("Entity");
+        this.localCacheSubscriptions = List.of();
+        this.asyncLookupExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("refdata-lookup-", 0).factory());
     }
 
     @PostConstruct
@@ -49,6 +72,15 @@ public class CacheService {
         try {
             igniteClient = Ignition.startClient(clientConfiguration);
             loadLocalCache();
+            if (refDataConfig.localCache().liveRefresh()) {
+                startLocalCacheRefresh();
+            }
+            if (refDataConfig.ssiNearCache().enabled()) {
+                ssiNearCache = new SsiNearCache(igniteClient, refDataConfig.ssiNearCache(), refDataConfig.cacheNames());
+            }
+            if (refDataConfig.nostroIndex().enabled()) {
+                nostroIndex = new NostroIndex(igniteClient, refDataConfig.nostroIndex(), refDataConfig.cacheNames());
+            }
         } catch (Exception e) {
             log.error("Unable to connect to cache or populate local cache. Ignite cache server may not be started or is unavailable. Exception: {}", e.getMessage());
             throw e;
@@ -58,6 +90,17 @@ public class CacheService {
     @PreDestroy
     public void releaseResources() {
         try {
+            if (ssiNearCache != null) {
+                ssiNearCache.close();
+            }
+            if (nostroIndex != null) {
+                nostroIndex.close();
+            }
+            if (localCacheRefresher != null) {
+                localCacheRefresher.shutdownNow();
+            }
+            localCacheSubscriptions.forEach(RefDataChangeSubscriptions::close);
+            asyncLookupExecutor.shutdownNow();
             igniteClient.close();
         } catch (Exception e) {
             e.printStackTrace();
@@ -65,30 +108,89 @@ public class CacheService {
     }
 
     private void loadLocalCache() {
-        var currencyLoadSql = "select currCode, countryCode, pmFlag, cutOffTime, active, entryTime from currency";
-        currencyLocalCache = igniteClient.query(new SqlFieldsQuery(currencyLoadSql)).getAll().stream().map(rs -> {
-            var currCode = (String) rs.get(0);
-            var countryCode = (String) rs.get(1);
-            var pmFlag = (boolean) rs.get(2);
-            var cutOffTime = ((Time) rs.get(3)).toLocalTime();
-            var active = (boolean) rs.get(4);
-            var entryTime = ((Timestamp) rs.get(5)).toLocalDateTime();
-            return new Currency(currCode, countryCode, pmFlag, cutOffTime, active, entryTime);
-        }).collect(Collectors.toMap(Currency::currCode, curr -> curr));
-
-        var entityLoadSql = "select entityCode, entityVersion, entityName, currCode, countryCode, countryName, bicCode, active, entryTime from entity";
-        entityLocalCache = igniteClient.query(new SqlFieldsQuery(entityLoadSql)).getAll().stream().map(rs -> {
-            var entityCode = (String) rs.get(0);
-            var entityVersion = (int) rs.get(1);
-            var entityName = (String) rs.get(2);
-            var currCode = (String) rs.get(3);
-            var countryCode = (String) rs.get(4);
-            var countryName = (String) rs.get(5);
-            var bicCode = (String) rs.get(6);
-            var active = (boolean) rs.get(7);
-            var entryTime = ((Timestamp) rs.get(8)).toLocalDateTime();
-            return new Entity(entityCode, entityVersion, entityName, currCode, countryCode, countryName, bicCode, active, entryTime);
-        }).collect(Collectors.toMap(Entity::entityCode, ent -> ent));
+        loadLocalCache(currencyLocalCache, CURRENCY_SQL, CacheService::mapCurrency, Currency::currCode);
+        loadLocalCache(entityLocalCache, ENTITY_SQL, CacheService::mapEntity, Entity::entityCode);
+    }
+
+    private <V> void loadLocalCache(RefDataSnapshot<V> snapshot, String loadSql, Function<List<?>, V> mapper, Function<V, String> codeOf) {
+        snapshot.replaceAll(igniteClient.query(new SqlFieldsQuery(loadSql)).getAll().stream()
+                .map(mapper)
+                .collect(Collectors.toMap(codeOf, v -> v)));
+    }
+
+    /// Keeps the local currency and entity caches in sync with the Ignite caches, using continuous queries.
+    ///
+    /// A changed currency or entity is fetched again and replaces the previous one in a new snapshot. All the changes and reloads are applied one after the other on one refresher thread.
+    /// When listening to the changes fails, the local cache keeps serving the last snapshot. Listening is attempted again every [RefDataConfig.LocalCacheConfig#resubscribeInterval()],
+    /// and once it succeeds the local cache is reloaded in full, as changes may have been missed. A reload replaces only the cache it is requested for
+    private void startLocalCacheRefresh() {
+        RefDataConfig.CacheNames cacheNames = refDataConfig.cacheNames();
+        localCacheRefresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("refdata-refresher").daemon().factory());
+        localCacheSubscriptions = List.of(
+                localCacheSubscriptions("Currency local cache", cacheNames.currency(), "currCode", currencyLocalCache, CURRENCY_SQL, CacheService::mapCurrency, Currency::currCode),
+                localCacheSubscriptions("Entity local cache", cacheNames.entity(), "entityCode", entityLocalCache, ENTITY_SQL, CacheService::mapEntity, Entity::entityCode));
+
+        long resubscribeIntervalMillis = refDataConfig.localCache().resubscribeInterval().toMillis();
+        // Subscribes on the refresher thread, so that the reload requested before subscribing runs only after subscribing. Hence, no change is missed
+        localCacheRefresher.scheduleWithFixedDelay(() -> localCacheSubscriptions.forEach(RefDataChangeSubscriptions::ensureActive), 0, resubscribeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private <V> RefDataChangeSubscriptions localCacheSubscriptions(String name, String cacheName, String codeField, RefDataSnapshot<V> snapshot, String loadSql,
+                                                                Function<List<?>, V> mapper, Function<V, String> codeOf) {
+        String fetchSql = loadSql + " where " + codeField + " = ?";
+        Runnable reload = () -> localCacheRefresher.execute(() -> {
+            try {
+                loadLocalCache(snapshot, loadSql, mapper, codeOf);
+            } catch (Exception e) {
+                log.warn("Failed to reload {}. Msg: {}", name, e.getMessage());
+            }
+        });
+        return new RefDataChangeSubscriptions(name, igniteClient, List.of(cacheName), change -> localCacheRefresher.execute(() -> {
+            try {
+                if (!applyChange(change, codeField, snapshot, fetchSql, mapper)) {
+                    reload.run();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to apply a change to {}. Reloading it in full. Msg: {}", name, e.getMessage());
+                reload.run();
+            }
+        }), () -> log.warn("{} serves the last snapshot until listening to the changes succeeds again", name), reload, refDataConfig.localCache().resubscribeInterval());
+    }
+
+    /// @return false if the change carries no code and hence, the cache has to be reloaded
+    private <V> boolean applyChange(RefDataChange change, String codeField, RefDataSnapshot<V> snapshot, String fetchSql, Function<List<?>, V> mapper) {
+        List<Object> codes = change.fieldValues(codeField);
+        if (codes.isEmpty()) {
+            return false;
+        }
+        for (Object code : codes) {
+            List<List<?>> rows = igniteClient.query(new SqlFieldsQuery(fetchSql).setArgs(code)).getAll();
+            snapshot.put((String) code, rows.isEmpty() ? null : mapper.apply(rows.getFirst()));
+        }
+        return true;
+    }
+
+    private static Currency mapCurrency(List<?> rs) {
+        var currCode = (String) rs.get(0);
+        var countryCode = (String) rs.get(1);
+        var pmFlag = (boolean) rs.get(2);
+        var cutOffTime = ((Time) rs.get(3)).toLocalTime();
+        var active = (boolean) rs.get(4);
+        var entryTime = ((Timestamp) rs.get(5)).toLocalDateTime();
+        return new Currency(currCode, countryCode, pmFlag, cutOffTime, active, entryTime);
+    }
+
+    private static Entity mapEntity(List<?> rs) {
+        var entityCode = (String) rs.get(0);
+        var entityVersion = (int) rs.get(1);
+        var entityName = (String) rs.get(2);
+        var currCode = (String) rs.get(3);
+        var countryCode = (String) rs.get(4);
+        var countryName = (String) rs.get(5);
+        var bicCode = (String) rs.get(6);
+        var active = (boolean) rs.get(7);
+        var entryTime = ((Timestamp) rs.get(8)).toLocalDateTime();
+        return new Entity(entityCode, entityVersion, entityName, currCode, countryCode, countryName, bicCode, active, entryTime);
     }
 
     public boolean isEntityActive(String entityCode) {
@@ -110,11 +212,30 @@ public class CacheService {
         return cpAndPrimarySsiList.isEmpty() ? null : cpAndPrimarySsiList.get(0);
     }
 
+    /// Same as [#getPrimarySsiWithCounterpartyData], but runs on a virtual thread, so that it can be issued together with other lookups
+    ///
+    /// @return future completed with null if no data in cache matching the criteria, or completed exceptionally with the exception of the lookup
+    public CompletableFuture<SsiWithCounterpartyData> getPrimarySsiWithCounterpartyDataAsync(String counterpartyCode, String currCode, TradeType tradeType) {
+        CashflowTrace trace = CashflowTrace.current();
+        return CompletableFuture.supplyAsync(() -> trace == null
+                ? getPrimarySsiWithCounterpartyData(counterpartyCode, currCode, tradeType)
+                : trace.callAsCurrent(() -> getPrimarySsiWithCounterpartyData(counterpartyCode, currCode, tradeType)), asyncLookupExecutor);
+    }
+
     /// NOTE: Data is fetched only if **both** the Counterparty and SSI records are active
     /// There exists only one active primary SSI for any given counterparty. But there can be multiple secondary SSIs
     ///
+    /// The result is served from [SsiNearCache] if enabled
+    ///
     /// @return empty list no data in cache matching the criteria
     public List<SsiWithCounterpartyData> getSsiWithCounterpartyData(String counterpartyCode, String currCode, TradeType tradeType, boolean primary) {
+        if (ssiNearCache != null) {
+            return ssiNearCache.get(counterpartyCode, currCode, tradeType, primary, () -> querySsiWithCounterpartyData(counterpartyCode, currCode, tradeType, primary));
+        }
+        return querySsiWithCounterpartyData(counterpartyCode, currCode, tradeType, primary);
+    }
+
+    private List<SsiWithCounterpartyData> querySsiWithCounterpartyData(String counterpartyCode, String currCode, TradeType tradeType, boolean primary) {
         // NOTE: The sql JOIN is made on cache-key fields ONLY.
         // This is to make sure that the join will be a **colocated** join. Non-colocated join is very in-efficient.
         var sql = """
@@ -125,6 +246,20 @@ public class CacheService {
                 where a.counterpartyCode = ? and b.currCode = ? and b.product = ? and b.isPrimary is ?
                 and a.active is true and b.active is true
                 """;
+        var event = new RefDataQueryEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        List<SsiWithCounterpartyData> ssiList = List.of();
+        try {
+            ssiList = querySsiWithCounterpartyData(sql, counterpartyCode, currCode, tradeType, primary);
+            return ssiList;
+        } finally {
+            event.commit("SSI", null, currCode, counterpartyCode, ssiList.size());
+            CashflowTrace.recordCall("Ignite: SSI query", startNanos);
+        }
+    }
+
+    private List<SsiWithCounterpartyData> querySsiWithCounterpartyData(String sql, String counterpartyCode, String currCode, TradeType tradeType, boolean primary) {
         return igniteClient.query(new SqlFieldsQuery(sql).setArgs(
                         counterpartyCode, currCode, tradeType.name(), primary
                 ))
@@ -146,7 +281,25 @@ public class CacheService {
                 }).toList();
     }
 
+    /// Same as [#getNostroDetails], but runs on a virtual thread, so that it can be issued together with other lookups
+    ///
+    /// @return future completed exceptionally with the exception of the lookup, if any
+    public CompletableFuture<NostroDetails> getNostroDetailsAsync(String entityCode, String currCode, String counterpartyCode) {
+        CashflowTrace trace = CashflowTrace.current();
+        return CompletableFuture.supplyAsync(() -> trace == null
+                ? getNostroDetails(entityCode, currCode, counterpartyCode)
+                : trace.callAsCurrent(() -> getNostroDetails(entityCode, currCode, counterpartyCode)), asyncLookupExecutor);
+    }
+
+    /// The result is resolved from [NostroIndex] if enabled and up to date. Otherwise, using the join on the Ignite cluster
     public NostroDetails getNostroDetails(String entityCode, String currCode, String counterpartyCode) {
+        if (nostroIndex != null) {
+            return nostroIndex.get(entityCode, currCode, counterpartyCode, () -> queryNostroDetails(entityCode, currCode, counterpartyCode));
+        }
+        return queryNostroDetails(entityCode, currCode, counterpartyCode);
+    }
+
+    private NostroDetails queryNostroDetails(String entityCode, String currCode, String counterpartyCode) {
         // TODO: The sql JOIN has to be made on cache-key fields ONLY so that the join will be **Colocated**
         //  Change the affinity-key of 'CounterpartySlaMapping' cache to a composite key with all the relevant fields used to join ?
 
@@ -164,10 +317,15 @@ public class CacheService {
                     )
                 """;
         SqlFieldsQuery sqlFieldsQuery = new SqlFieldsQuery(sql).setArgs(entityCode, currCode, counterpartyCode);
+        var event = new RefDataQueryEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        int rows = 0;
         try (FieldsQueryCursor<List<?>> qryCur = igniteClient.query(sqlFieldsQuery)) {
             PrimaryNostro primaryNostro = null;
             OverridableNostro overridableNostro = null;
             for (List<?> rs : qryCur) {
+                rows++;
                 var nostroId = (String) rs.get(0);
                 var nostroVersion = (int) rs.get(1);
                 var rs_entityCode = (String) rs.get(2);
@@ -196,6 +354,9 @@ public class CacheService {
             }
 
             return new NostroDetails(primaryNostro, overridableNostro);
+        } finally {
+            event.commit("NOSTRO", entityCode, currCode, counterpartyCode, rows);
+            CashflowTrace.recordCall("Ignite: NOSTRO query", startNanos);
         }
 //                .collect(Collectors.partitioningBy(NostroDetailRaw::primary));// There is only ONE primary nostro, rest are secondary nostros and a secondary nostros overrides the primary nostro
     }
@@ -1,13 +1,19 @@
 package io.alw.css.cashflowconsumer.service;
 
-import io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType;
+import io.alw.css.cashflowconsumer.model.ParkedCashflow;
+import io.alw.css.cashflowconsumer.model.PreparedCashflow;
+import io.alw.css.cashflowconsumer.model.RejectionReason;
 import io.alw.css.cashflowconsumer.model.jpa.CashflowRejectionEntity;
-import io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome;
-import io.alw.css.cashflowconsumer.processor.CashflowEnricher;
-import io.alw.css.cashflowconsumer.processor.CashflowVersionManager;
+import io.alw.css.cashflowconsumer.monitoring.CashflowProcessingObserver;
+import io.alw.css.cashflowconsumer.monitoring.CashflowTrace;
+import io.alw.css.cashflowconsumer.monitoring.CcpsStep;
+import io.alw.css.cashflowconsumer.processor.pipeline.CashflowContext;
+import io.alw.css.cashflowconsumer.processor.pipeline.CashflowPipeline;
+import io.alw.css.cashflowconsumer.processor.pipeline.StageResult;
 import io.alw.css.cashflowconsumer.repository.CashflowStore;
-import io.alw.css.cashflowconsumer.processor.FoCashMessageMapper;
 import io.alw.css.cashflowconsumer.util.DateUtil;
+import io.alw.css.cashflowconsumer.util.FoCashMessageCodec;
+import io.alw.css.dbshared.tx.TXRO;
 import io.alw.css.dbshared.tx.TXRW;
 import io.alw.css.domain.cashflow.*;
 import io.alw.css.domain.common.InputBy;
@@ -18,97 +24,370 @@ import io.alw.css.domain.exception.ExceptionType;
 import io.alw.css.serialization.cashflow.FoCashMessageAvro;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-
-import static io.alw.css.cashflowconsumer.processor.CFProcessedCheckOutcome.*;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Service
 public class CashflowService {
     private static final Logger log = LoggerFactory.getLogger(CashflowService.class);
     private final CashflowStore cashflowStore;
-    private final CashflowVersionManager cashflowVersionManager;
-    private final CashflowEnricher cashflowEnricher;
+    private final CashflowPipeline cashflowPipeline;
     private final TXRW txrw;
+    private final TXRO txro;
+    private final GroupCommitter groupCommitter;
+    private final VersionParkingBuffer versionParkingBuffer;
+    private final RetryPolicy retryPolicy;
+    private final RejectionWriter rejectionWriter;
+    private final CashflowProcessingObserver observer;
 
-    public CashflowService(CashflowStore cashflowStore, CashflowVersionManager cashflowVersionManager, CashflowEnricher cashflowEnricher, TXRW txrw) {
+    public CashflowService(CashflowStore cashflowStore, CashflowPipeline cashflowPipeline, TXRW txrw, TXRO txro, GroupCommitter groupCommitter, VersionParkingBuffer versionParkingBuffer,
+                           RetryPolicy retryPolicy, RejectionWriter rejectionWriter, ObjectProvider<CashflowProcessingObserver> observers) {
         this.cashflowStore = cashflowStore;
-        this.cashflowVersionManager = cashflowVersionManager;
-        this.cashflowEnricher = cashflowEnricher;
+        this.cashflowPipeline = cashflowPipeline;
         this.txrw = txrw;
+        this.txro = txro;
+        this.groupCommitter = groupCommitter;
+        this.versionParkingBuffer = versionParkingBuffer;
+        this.retryPolicy = retryPolicy;
+        this.rejectionWriter = rejectionWriter;
+        this.observer = CashflowProcessingObserver.of(observers.orderedStream().toList());
     }
 
+    /// Persists the cashflow in a transaction shared with other cashflows if [GroupCommitter] is enabled. Otherwise, in its own transaction.
+    /// If the preceding version of the cashflow is not processed yet, the message is parked in [VersionParkingBuffer] and processed once the preceding version is persisted.
+    /// A rejection may be written after this returns. See [RejectionWriter#runWhenWritten(long, Runnable, Runnable)]
     public void process(FoCashMessageAvro foMsg, InputBy inputBy) {
+        process(foMsg, inputBy, System.nanoTime());
+    }
+
+    /// Same as [#process(FoCashMessageAvro, InputBy)]
+    ///
+    /// @param receivedNanos [System#nanoTime()] at which the message was received. The time until the processing starts is accounted to [CcpsStep#CONSUME]
+    public void process(FoCashMessageAvro foMsg, InputBy inputBy, long receivedNanos) {
+        processTraced(foMsg, inputBy, groupCommitter.enabled(), versionParkingBuffer.enabled(), receivedNanos, 0);
+    }
+
+    /// Same as [#process(FoCashMessageAvro, InputBy)], for a message that is rejected before
+    ///
+    /// @param numOfRetries number of times the message is already retried, including this replay. Added to the numOfRetries of the rejection if the message is rejected again
+    public void replay(FoCashMessageAvro foMsg, InputBy inputBy, int numOfRetries) {
+        processTraced(foMsg, inputBy, groupCommitter.enabled(), versionParkingBuffer.enabled(), System.nanoTime(), numOfRetries);
+    }
+
+    /// Processes the parked messages whose timeout has elapsed, as is. A message is rejected if its preceding version is still not processed. See [VersionParkingBuffer#takeExpired()].
+    /// Called by the listener, so that an expired message is processed by the thread(s) that process the messages of its foCashflowID, and not concurrently with them
+    ///
+    /// @param dispatcher runs the processing of an expired message of the given foCashflowID. Ex: [io.alw.css.cashflowconsumer.dispatcher.CashflowDispatcher#dispatch(long, Runnable)]
+    public void processExpired(BiConsumer<Long, Runnable> dispatcher) {
+        if (!versionParkingBuffer.enabled()) {
+            return;
+        }
+        for (ParkedCashflow parkedCashflow : versionParkingBuffer.takeExpired()) {
+            dispatcher.accept(parkedCashflow.foMsg().getCashflowID(), () -> {
+                processTraced(parkedCashflow.foMsg(), parkedCashflow.inputBy(), false, false, System.nanoTime(), 0);
+                versionParkingBuffer.released(parkedCashflow);
+            });
+        }
+    }
+
+    /// Processes the message with a [CashflowTrace] that is handed to the [CashflowProcessingObserver]s once the outcome is decided.
+    /// The trace is the current trace of the thread while processing, so that the Ignite and DB calls are recorded to it. See [CashflowTrace#recordCall(String, long)].
+    /// The parked successor, if any, is released only after that, so that its processing is not accounted to this message
+    private void processTraced(FoCashMessageAvro foMsg, InputBy inputBy, boolean groupCommit, boolean parkingAllowed, long receivedNanos, int priorRetries) {
+        CashflowTrace trace = CashflowTrace.start(foMsg, receivedNanos);
+        final boolean persisted;
+        try {
+            persisted = trace.callAsCurrent(() -> process(foMsg, inputBy, groupCommit, parkingAllowed, priorRetries, trace));
+        } finally {
+            observe(trace);
+        }
+        if (persisted) {
+            releaseParkedSuccessor(foMsg.getCashflowID(), foMsg.getCashflowVersion());
+        }
+    }
+
+    private void observe(CashflowTrace trace) {
+        trace.end();
+        observer.onProcessed(trace);
+    }
+
+    /// A message failing with a retryable exception is processed again from the start, after a backoff. See [RetryPolicy].
+    /// Hence, an amendment conflicting with a concurrent update of the last processed cashflow is created again against the new last processed cashflow.
+    /// The message is rejected once the retries are exhausted
+    ///
+    /// @param groupCommit    false to persist the cashflow in its own transaction. If true and the group fails to commit, the message is processed again with groupCommit=false
+    /// @param parkingAllowed false to process the message as is even if its preceding version is not processed yet
+    /// @param priorRetries   number of times the message is retried before this service received it. See [#replay(FoCashMessageAvro, InputBy, int)]
+    /// @return true if the cashflow is persisted
+    private boolean process(FoCashMessageAvro foMsg, InputBy inputBy, boolean groupCommit, boolean parkingAllowed, int priorRetries, CashflowTrace trace) {
         long foCashflowID = foMsg.getCashflowID();
         int foCashflowVersion = foMsg.getCashflowVersion();
         long tradeID = foMsg.getTradeID();
         int tradeVersion = foMsg.getTradeVersion();
 
-        log.info("Received FoCashMessage[foCashflowID: {}, foCashflowVersion: {}, tradeID: {}, tradeVersion: {}]", foCashflowID, foCashflowVersion, tradeID, tradeVersion);
+        if (log.isDebugEnabled()) { // avoids the varargs array and boxing the arguments
+            log.debug("Received FoCashMessage[foCashflowID: {}, foCashflowVersion: {}, tradeID: {}, tradeVersion: {}]", foCashflowID, foCashflowVersion, tradeID, tradeVersion);
+        }
+        for (int retry = 0; ; retry++) {
+            final PreparedCashflow preparedCashflow;
+            try {
+                preparedCashflow = prepare(CashflowContext.of(foMsg).parkingAllowed(parkingAllowed).trace(trace), inputBy, priorRetries);
+                if (preparedCashflow != null) {
+                    long persistStartNanos = System.nanoTime();
+                    if (groupCommit) {
+                        boolean committed = groupCommitter.commit(() -> trace.runAsCurrent(() -> persist(preparedCashflow)));
+                        trace.add(CcpsStep.PERSIST, persistStartNanos);
+                        if (!committed) {
+                            log.info("Processing again in its own transaction. FoCashflowID-Ver: {}-{}", foCashflowID, foCashflowVersion);
+                            return process(foMsg, inputBy, false, parkingAllowed, priorRetries, trace);
+                        }
+                    } else {
+                        try {
+                            txrw.executeWithoutResult(_ -> persist(preparedCashflow));
+                        } finally {
+                            trace.add(CcpsStep.PERSIST, persistStartNanos);
+                        }
+                    }
+                    logSuccessfulProcessing(preparedCashflow, trace);
+                }
+            } catch (Exception e) {
+                if (retryPolicy.shouldRetry(e, retry + 1)) {
+                    trace.retried();
+                    log.info("Retrying cashflow. Retry: {}, FoCashflowID-Ver: {}-{}. Msg: {}", retry + 1, foCashflowID, foCashflowVersion, e.getMessage());
+                    if (retryPolicy.backoff(retry + 1)) {
+                        continue;
+                    }
+                }
+                rejectFailedCashflow(foMsg, e, inputBy, priorRetries + retry, trace);
+                return false;
+            }
+
+            return preparedCashflow != null;
+        }
+    }
+
+    /// Processes the parked version that follows the version just persisted, on the thread that persisted it. Hence, it is processed before any later message of the same foCashflowID
+    private void releaseParkedSuccessor(long foCashflowID, int foCashflowVersion) {
+        final ParkedCashflow parkedSuccessor;
         try {
-            CashflowBuilder cashflowBuilder = FoCashMessageMapper.mapToDomain(foMsg);
-            cashflowVersionManager.computeAndSetRevisionType(cashflowBuilder, foMsg);
-            CFProcessedCheckOutcome outcome = cashflowVersionManager.checkAgainstLastProcessedCashflow(foCashflowID, foCashflowVersion, tradeID, tradeVersion);
-            evaluateAndProcessFurther(outcome, cashflowBuilder, foMsg);
-        } catch (CategorizedRuntimeException e) {
-            log.info("Failed to process cashflow. FoCashflowID-Ver: {}-{}. Msg: {}", foCashflowID, foCashflowVersion, e.getMessage(), e);
-            rejectCashflow(foMsg, e, inputBy);
+            parkedSuccessor = versionParkingBuffer.takeSuccessor(foCashflowID, foCashflowVersion);
         } catch (Exception e) {
-            log.info("Failed to process cashflow. FoCashflowID-Ver: {}-{}. Msg: {}", foCashflowID, foCashflowVersion, e.getMessage(), e);
-            rejectCashflow(foMsg, CategorizedRuntimeException.UNKNOWN(e.getMessage(), foMsg), inputBy);
+            log.error("Failed to release the parked successor of FoCashflowID-Ver: {}-{}. A spilled successor is released after a restart", foCashflowID, foCashflowVersion, e);
+            return;
+        }
+        if (parkedSuccessor != null) {
+            log.info("Releasing parked cashflow. FoCashflowID-Ver: {}-{}", foCashflowID, parkedSuccessor.foMsg().getCashflowVersion());
+            process(parkedSuccessor.foMsg(), parkedSuccessor.inputBy());
+            versionParkingBuffer.released(parkedSuccessor);
         }
     }
 
-    private void evaluateAndProcessFurther(CFProcessedCheckOutcome outcome, CashflowBuilder cashflowBuilder, FoCashMessageAvro foMsg) {
-        long foCashflowID = foMsg.getCashflowID();
-        int foCashflowVersion = foMsg.getCashflowVersion();
+    /// Processes a batch of messages as a unit. Every message is still mapped, validated and enriched on its own, but:
+    /// - the last processed cashflows of the batch are fetched from the DB in one query
+    /// - the cashflows of the batch are persisted in one transaction
+    ///
+    /// Messages having the same foCashflowID must be processed in the order of their arrival. Hence, the batch is split into rounds such that
+    /// a round has at most one message for any foCashflowID. The rounds are processed one after the other, so that version N+1 of a cashflow sees version N as the last processed cashflow.
+    ///
+    /// If persisting a round fails, for instance when the optimistic update of a last processed cashflow fails, the round is processed again one message at a time.
+    /// Therefore, a failure of one cashflow ends up as a rejection of only that cashflow and the rest of the round is persisted.
+    /// A message of a round failing with a retryable exception before it is persisted is processed again on its own after a backoff,
+    /// with the retries of [#process(FoCashMessageAvro, InputBy)]. See [RetryPolicy]
+    public void process(List<FoCashMessageAvro> foMsgs, InputBy inputBy) {
+        for (List<FoCashMessageAvro> round : splitIntoRounds(foMsgs)) {
+            processRound(round, inputBy);
+        }
+    }
 
-        switch (outcome) {
-            case FirstVersion _ -> {
-                cashflowEnricher.validateAndEnrich(cashflowBuilder);
-                Cashflow cf = cashflowVersionManager.createFirstVersionCF(cashflowBuilder);
-                txrw.executeWithoutResult(_ -> cashflowStore.saveFirstVersionCF(cf));
-                log.info("Successfully processed cashflow. CashflowID-Ver: {}-{}", cf.cashflowID(), cf.cashflowVersion());
+    private void processRound(List<FoCashMessageAvro> round, InputBy inputBy) {
+        Set<Long> foCashflowIDs = new HashSet<>();
+        round.forEach(foMsg -> foCashflowIDs.add(foMsg.getCashflowID()));
+        Map<Long, Cashflow> lastProcessedCashflows = txro.execute(_ -> cashflowStore.getLastProcessedCashflows(foCashflowIDs));
+
+        List<CashflowTrace> traces = new ArrayList<>(round.size());
+        List<PreparedCashflow> preparedCashflows = new ArrayList<>(round.size());
+        List<CashflowTrace> preparedTraces = new ArrayList<>(round.size());
+        List<FoCashMessageAvro> retriedFoMsgs = new ArrayList<>();
+        List<CashflowTrace> retriedTraces = new ArrayList<>();
+        List<Exception> retriedFailures = new ArrayList<>();
+        for (FoCashMessageAvro foMsg : round) {
+            long foCashflowID = foMsg.getCashflowID();
+            int foCashflowVersion = foMsg.getCashflowVersion();
+            long tradeID = foMsg.getTradeID();
+            int tradeVersion = foMsg.getTradeVersion();
+
+            if (log.isDebugEnabled()) { // avoids the varargs array and boxing the arguments
+                log.debug("Received FoCashMessage[foCashflowID: {}, foCashflowVersion: {}, tradeID: {}, tradeVersion: {}]", foCashflowID, foCashflowVersion, tradeID, tradeVersion);
+            }
+            CashflowTrace trace = CashflowTrace.start(foMsg, System.nanoTime());
+            traces.add(trace);
+            trace.runAsCurrent(() -> {
+                try {
+                    PreparedCashflow preparedCashflow = prepare(CashflowContext.withLastProcessedCashflow(foMsg, lastProcessedCashflows.get(foCashflowID)).parkingAllowed(versionParkingBuffer.enabled()).trace(trace), inputBy, 0);
+                    if (preparedCashflow != null) {
+                        preparedCashflows.add(preparedCashflow);
+                        preparedTraces.add(trace);
+                    }
+                } catch (Exception e) {
+                    if (retryPolicy.shouldRetry(e, 1)) {
+                        trace.retried();
+                        log.info("Retrying cashflow on its own. Retry: 1, FoCashflowID-Ver: {}-{}. Msg: {}", foCashflowID, foCashflowVersion, e.getMessage());
+                        retriedFoMsgs.add(foMsg);
+                        retriedTraces.add(trace);
+                        retriedFailures.add(e);
+                    } else {
+                        rejectFailedCashflow(foMsg, e, inputBy, 0, trace);
+                    }
+                }
+            });
+        }
+
+        List<FoCashMessageAvro> persistedFoMsgs = new ArrayList<>(round.size());
+        try {
+            // The foCashflowIDs of a round are distinct. Hence, the retried messages do not need to be ordered with the rest of the round.
+            // One backoff for all of them, as they failed together
+            boolean backedOff = retriedFoMsgs.isEmpty() || retryPolicy.backoff(1);
+            for (int i = 0; i < retriedFoMsgs.size(); i++) {
+                FoCashMessageAvro foMsg = retriedFoMsgs.get(i);
+                CashflowTrace trace = retriedTraces.get(i);
+                if (!backedOff) {
+                    Exception e = retriedFailures.get(i);
+                    trace.runAsCurrent(() -> rejectFailedCashflow(foMsg, e, inputBy, 0, trace));
+                } else if (trace.callAsCurrent(() -> process(foMsg, inputBy, false, versionParkingBuffer.enabled(), 1, trace))) {
+                    persistedFoMsgs.add(foMsg);
+                }
+            }
+            if (!preparedCashflows.isEmpty()) {
+                persistRound(preparedCashflows, preparedTraces, inputBy, persistedFoMsgs);
+            }
+        } finally {
+            traces.forEach(this::observe);
+        }
+        persistedFoMsgs.forEach(foMsg -> releaseParkedSuccessor(foMsg.getCashflowID(), foMsg.getCashflowVersion()));
+    }
+
+    /// @param persistedFoMsgs the messages whose cashflows are persisted are added to it
+    private void persistRound(List<PreparedCashflow> preparedCashflows, List<CashflowTrace> preparedTraces, InputBy inputBy, List<FoCashMessageAvro> persistedFoMsgs) {
+        long persistStartNanos = System.nanoTime();
+        try {
+            txrw.executeWithoutResult(_ -> {
+                for (int i = 0; i < preparedCashflows.size(); i++) {
+                    PreparedCashflow pc = preparedCashflows.get(i);
+                    preparedTraces.get(i).runAsCurrent(() -> persist(pc));
+                }
+            });
+            for (int i = 0; i < preparedCashflows.size(); i++) {
+                CashflowTrace trace = preparedTraces.get(i);
+                trace.add(CcpsStep.PERSIST, persistStartNanos);
+                logSuccessfulProcessing(preparedCashflows.get(i), trace);
+            }
+            preparedCashflows.forEach(pc -> persistedFoMsgs.add(pc.foMsg()));
+        } catch (Exception e) {
+            log.warn("Failed to persist {} cashflows in one transaction. Processing them again one by one. Msg: {}", preparedCashflows.size(), e.getMessage());
+            preparedTraces.forEach(trace -> trace.add(CcpsStep.PERSIST, persistStartNanos));
+            for (int i = 0; i < preparedCashflows.size(); i++) {
+                PreparedCashflow pc = preparedCashflows.get(i);
+                CashflowTrace trace = preparedTraces.get(i);
+                if (trace.callAsCurrent(() -> process(pc.foMsg(), inputBy, false, versionParkingBuffer.enabled(), 0, trace))) {
+                    persistedFoMsgs.add(pc.foMsg());
+                }
             }
-            case NonFirstVersion(var lastProcessedCashflow) -> {
-                cashflowEnricher.validateAndEnrich(cashflowBuilder);
-                Map<RevisionType, Cashflow> cashflows = cashflowVersionManager.createNonFirstVersionCF(lastProcessedCashflow, cashflowBuilder);
-                txrw.executeWithoutResult(_ -> cashflowStore.saveNonFirstVersionCF(cashflows, lastProcessedCashflow));
-                logSuccessfulProcessingOfNonFirstVersion(cashflows);
+        }
+    }
+
+    /// Splits the batch into rounds. The Nth message of a foCashflowID goes to the Nth round. The order of the messages within a round is the order of arrival
+    private static List<List<FoCashMessageAvro>> splitIntoRounds(List<FoCashMessageAvro> foMsgs) {
+        List<List<FoCashMessageAvro>> rounds = new ArrayList<>();
+        Map<Long, Integer> numOfMsgsPerFoCashflowID = new HashMap<>();
+        for (FoCashMessageAvro foMsg : foMsgs) {
+            int roundIndex = numOfMsgsPerFoCashflowID.merge(foMsg.getCashflowID(), 1, Integer::sum) - 1;
+            if (roundIndex == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(roundIndex).add(foMsg);
+        }
+        return rounds;
+    }
+
+    /// Runs the message through the [CashflowPipeline]. A message that is decided to be rejected by a stage is rejected here
+    ///
+    /// @param numOfRetries recorded on the rejection, if rejected
+    /// @return the cashflow to be persisted or null if there is nothing to persist
+    private PreparedCashflow prepare(CashflowContext ctx, InputBy inputBy, int numOfRetries) {
+        return switch (cashflowPipeline.run(ctx)) {
+            case StageResult.Prepared(var preparedCashflow) -> preparedCashflow;
+            case StageResult.Skip _ -> {
+                ctx.trace().outcome(CashflowTrace.Outcome.SKIPPED);
+                yield null;
             }
-            case AlreadyProcessed _ -> {
-                log.info("Received duplicate cashflow[foCfID: {}, foCfVer: {}]", foCashflowID, foCashflowVersion);
+            case StageResult.Park _ -> {
+                if (versionParkingBuffer.park(ctx.foMsg(), inputBy)) {
+                    ctx.trace().outcome(CashflowTrace.Outcome.PARKED);
+                    yield null;
+                }
+                yield prepare(ctx.withoutParking(), inputBy, numOfRetries);
             }
-            case LastCashflowIsCancelled _ -> {
-                ExceptionType exceptionType = ExceptionType.BUSINESS;
-                ExceptionCategory exceptionCategory = ExceptionCategory.UNRECOVERABLE;
-                String exceptionSubCategory = ExceptionSubCategoryType.LAST_CASHFLOW_IS_CANCELLED;
-                String msg = "No further amendment is permitted when last cashflow is cancelled";
-                boolean replayable = false;
-                int numOfRetries = 0;
-                LocalDateTime createdDateTime = LocalDateTime.now();
-                InputBy inputBy = InputBy.CSS_SYS;
-
-                log.info("Last cashflow is cancelled. No further amendment is permitted. FoCashflowID-Ver: {}-{}", foCashflowID, foCashflowVersion);
-                rejectCashflow(foMsg, exceptionType, exceptionCategory, exceptionSubCategory, msg, replayable, numOfRetries, createdDateTime, inputBy);
+            case StageResult.Reject(RejectionReason reason) -> {
+                ctx.trace().rejected(reason.exceptionSubCategory());
+                long rejectStartNanos = System.nanoTime();
+                InputBy rejectedBy = reason.rejectedBy() != null ? reason.rejectedBy() : inputBy;
+                try {
+                    rejectCashflow(ctx.foMsg(), reason.exceptionType(), reason.exceptionCategory(), reason.exceptionSubCategory(), reason.msg(), reason.replayable(), numOfRetries, LocalDateTime.now(), rejectedBy);
+                } finally {
+                    ctx.trace().add(CcpsStep.REJECT, rejectStartNanos);
+                }
+                yield null;
             }
+            case StageResult.Continue _ -> throw new IllegalStateException("CashflowPipeline must not end with " + StageResult.CONTINUE);
+        };
+    }
+
+    /// Must be called within a RW transaction
+    private void persist(PreparedCashflow preparedCashflow) {
+        if (preparedCashflow.firstVersion()) {
+            cashflowStore.saveFirstVersionCF(preparedCashflow.cashflows().get(RevisionType.NEW));
+        } else {
+            cashflowStore.saveNonFirstVersionCF(preparedCashflow.cashflows(), preparedCashflow.lastProcessedCashflow());
         }
     }
 
-    private void logSuccessfulProcessingOfNonFirstVersion(Map<RevisionType, Cashflow> cashflows) {
-        final Cashflow cf = cashflows.get(RevisionType.COR);
-        if (cf != null) {
-            log.info("Successfully processed cashflow. CashflowID-Ver: {}-{}", cf.cashflowID(), cf.cashflowVersion());
+    /// Marks the trace as [CashflowTrace.Outcome#PERSISTED]. The cashflow persisted is audited by [io.alw.css.cashflowconsumer.monitoring.CashflowAuditLog]. Hence, it is logged at debug level only
+    private void logSuccessfulProcessing(PreparedCashflow preparedCashflow, CashflowTrace trace) {
+        Map<RevisionType, Cashflow> cashflows = preparedCashflow.cashflows();
+        final Cashflow cf;
+        if (preparedCashflow.firstVersion()) {
+            cf = cashflows.get(RevisionType.NEW);
         } else {
-            final Cashflow cf1 = cashflows.get(RevisionType.CAN);
-            log.info("Successfully processed cashflow. CashflowID-Ver: {}-{}", cf1.cashflowID(), cf1.cashflowVersion());
+            cf = cashflows.get(RevisionType.COR) != null ? cashflows.get(RevisionType.COR) : cashflows.get(RevisionType.CAN);
+        }
+        trace.persisted(cf.cashflowID(), cf.cashflowVersion());
+        log.debug("Successfully processed cashflow. CashflowID-Ver: {}-{}", cf.cashflowID(), cf.cashflowVersion());
+    }
+
+    /// @param numOfRetries number of times the message is retried, by this service and before
+    private void rejectFailedCashflow(FoCashMessageAvro foMsg, Exception e, InputBy inputBy, int numOfRetries, CashflowTrace trace) {
+        log.warn("Failed to process cashflow. FoCashflowID-Ver: {}-{}. Msg: {}", foMsg.getCashflowID(), foMsg.getCashflowVersion(), e.getMessage(), e);
+        CategorizedRuntimeException cre = e instanceof CategorizedRuntimeException categorized ? categorized : CategorizedRuntimeException.UNKNOWN(e.getMessage(), foMsg);
+        trace.rejected(cre.subCategory().type());
+        long rejectStartNanos = System.nanoTime();
+        try {
+            rejectCashflow(foMsg, cre, inputBy, numOfRetries);
+        } finally {
+            trace.add(CcpsStep.REJECT, rejectStartNanos);
         }
     }
 
-    private void rejectCashflow(FoCashMessageAvro foMsg, CategorizedRuntimeException cre, InputBy inputBy) {
-        rejectCashflow(foMsg, cre.type(), cre.category(), cre.subCategory().type(), cre.getMessage(), cre.replayable(), cre.numOfRetries(), cre.createdTime(), inputBy);
+    private void rejectCashflow(FoCashMessageAvro foMsg, CategorizedRuntimeException cre, InputBy inputBy, int numOfRetries) {
+        rejectCashflow(foMsg, cre.type(), cre.category(), cre.subCategory().type(), cre.getMessage(), cre.replayable(), cre.numOfRetries() + numOfRetries, cre.createdTime(), inputBy);
     }
 
     private void rejectCashflow(FoCashMessageAvro foMsg, ExceptionType exceptionType, ExceptionCategory exceptionCategory, String exceptionSubCategory, String msg, boolean replayable, int numOfRetries, LocalDateTime createdDateTime, InputBy inputBy) {
@@ -122,7 +401,7 @@ public class CashflowService {
                     .setTradeID(foMsg.getTradeID())
                     .setTradeVersion(foMsg.getTradeVersion())
                     .setTradeType(foMsg.getTradeType())
-                    .setValueDate(foMsg.getValueDate() == null ? null : DateUtil.formatValueDate(foMsg.getValueDate()))
+                    .setValueDate(DateUtil.parseValueDate(foMsg.getValueDate()))
                     .setEntityCode(foMsg.getEntityCode())
                     .setCounterpartyCode(foMsg.getCounterpartyCode())
                     .setAmount(foMsg.getAmount())
@@ -136,9 +415,10 @@ public class CashflowService {
                     .setCreatedDateTime(createdDateTime)
                     .setInputBy(inputBy)
                     .setUpdatedDateTime(LocalDateTime.now())
+                    .setFoMessage(FoCashMessageCodec.encode(foMsg))
             ;
 
-            txrw.executeWithoutResult(_ -> cashflowStore.saveRejection(cfr));
+            rejectionWriter.write(cfr);
         } catch (Exception e) {
             log.error("Failed to save cashflow rejection to database. FoCashflowID-Ver: {}-{}", foCashflowID, foCashflowVersion, e);
             throw new RuntimeException(e);
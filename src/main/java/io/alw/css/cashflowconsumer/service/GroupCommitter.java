@@ -0,0 +1,126 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.properties.GroupCommitConfig;
+import io.alw.css.cashflowconsumer.model.properties.ProcessingConfig;
+import io.alw.css.dbshared.tx.TXRW;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/// Persists the cashflows processed concurrently by multiple threads in one RW transaction, to amortise the cost of a commit over a group of cashflows.
+///
+/// A group is committed when it has [GroupCommitConfig#maxGroupSize()] cashflows, or when [GroupCommitConfig#maxWait()] has elapsed since the first cashflow joined the group.
+/// The caller of [#commit(Runnable)] waits until its group is committed or rolled back. Hence, a message is acknowledged only after its cashflow is committed, same as without group commit.
+///
+/// If the group transaction fails, none of the cashflows of the group are persisted and every caller is told so. The caller then persists its cashflow in its own transaction.
+/// Therefore, a failure of one cashflow ends up as a rejection of only that cashflow and the rest of the group is persisted.
+///
+/// Grouping needs multiple cashflows to be processed at the same time. Hence, group commit is disabled for [ProcessingConfig.Mode#SEQUENTIAL]
+public final class GroupCommitter implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final TXRW txrw;
+    private final boolean enabled;
+    private final int maxGroupSize;
+    private final long maxWaitNanos;
+    private final LinkedBlockingQueue<PendingCommit> pendingCommits;
+    private final Thread committer;
+    private volatile boolean running;
+
+    public GroupCommitter(TXRW txrw, GroupCommitConfig config, ProcessingConfig.Mode processingMode) {
+        if (config.enabled() && processingMode == ProcessingConfig.Mode.SEQUENTIAL) {
+            log.warn("Group commit is disabled as it has no effect when cashflows are processed sequentially. Processing mode: {}", processingMode);
+        }
+        this.txrw = txrw;
+        this.enabled = config.enabled() && processingMode != ProcessingConfig.Mode.SEQUENTIAL;
+        this.maxGroupSize = Math.max(1, config.maxGroupSize());
+        this.maxWaitNanos = config.maxWait().toNanos();
+        this.pendingCommits = new LinkedBlockingQueue<>();
+        this.running = enabled;
+        this.committer = enabled ? Thread.ofPlatform().name("cf-group-committer").daemon().start(this::run) : null;
+        log.info("Group commit enabled: {}, maxGroupSize: {}, maxWait: {}", enabled, maxGroupSize, config.maxWait());
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /// Runs the persist action in the transaction of a group and waits until the group is committed or rolled back
+    ///
+    /// @return true if committed. false if the group is rolled back, in which case the caller must persist the cashflow in its own transaction
+    public boolean commit(Runnable persistAction) {
+        var pendingCommit = new PendingCommit(persistAction, new CompletableFuture<>());
+        pendingCommits.add(pendingCommit);
+        if (!running) {
+            failPendingCommits(); // Closed concurrently, the committer may have missed this one
+        }
+        return pendingCommit.committed().join();
+    }
+
+    private void run() {
+        List<PendingCommit> group = new ArrayList<>(maxGroupSize);
+        while (running) {
+            try {
+                group.add(pendingCommits.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (group.size() < maxGroupSize) {
+                    pendingCommits.drainTo(group, maxGroupSize - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (group.size() == maxGroupSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingCommit next = pendingCommits.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                // No caller is left waiting, whatever ended the group. A future that is already completed is not changed
+                group.forEach(pc -> pc.committed().complete(false));
+                group.clear();
+            }
+        }
+        failPendingCommits();
+    }
+
+    private void commitGroup(List<PendingCommit> group) {
+        try {
+            txrw.executeWithoutResult(_ -> group.forEach(pc -> pc.persistAction().run()));
+            log.debug("Committed a group of {} cashflows", group.size());
+            group.forEach(pc -> pc.committed().complete(true));
+        } catch (Throwable e) {
+            // An Error thrown by a persist action, Ex: StackOverflowError, must not end the committer thread, as the callers would wait forever
+            log.warn("Failed to commit a group of {} cashflows. Each cashflow will be persisted in its own transaction. Msg: {}", group.size(), e.getMessage());
+            group.forEach(pc -> pc.committed().complete(false));
+        }
+    }
+
+    private void failPendingCommits() {
+        PendingCommit pc;
+        while ((pc = pendingCommits.poll()) != null) {
+            pc.committed().complete(false);
+        }
+    }
+
+    /// The cashflows waiting for a group at the time of closing are not committed, and are persisted by the callers in their own transaction
+    @Override
+    public void close() {
+        if (committer != null) {
+            running = false;
+            committer.interrupt();
+        }
+    }
+
+    private record PendingCommit(Runnable persistAction, CompletableFuture<Boolean> committed) {
+    }
+}
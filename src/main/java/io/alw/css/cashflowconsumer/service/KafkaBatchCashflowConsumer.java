@@ -0,0 +1,44 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/// Batch listener counterpart of [KafkaCashflowConsumer]. Active only when 'app.kafka.listener.batch-enabled' is true.
+/// The batch is acknowledged when this listener returns. Hence, it waits until the rejections of the batch are written. See [RejectionWriter].
+/// If a rejection of the batch is not written, the listener throws, so that the batch is handled by the error handler of the container
+///
+/// The expired parked messages are processed on the listener thread too, before every batch and when the container is idle. See [CashflowService#processExpired(java.util.function.BiConsumer)]
+@Service
+@ConditionalOnProperty(name = "app.kafka.listener.batch-enabled", havingValue = "true")
+public class KafkaBatchCashflowConsumer {
+    private final CashflowService cashflowService;
+    private final RejectionWriter rejectionWriter;
+
+    public KafkaBatchCashflowConsumer(CashflowService cashflowService, RejectionWriter rejectionWriter) {
+        this.cashflowService = cashflowService;
+        this.rejectionWriter = rejectionWriter;
+    }
+
+    @KafkaListener(topics = "${app.kafka.topic.cashflow-input}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "foCashMessageListenerContainerFactory")
+    public void accept(List<Message<FoCashMessageAvro>> messages) {
+        List<FoCashMessageAvro> foMsgs = messages.stream().map(Message::getPayload).toList();
+        long rejectionPosition = rejectionWriter.position();
+        cashflowService.processExpired((_, task) -> task.run());
+        cashflowService.process(foMsgs, InputBy.CSS_SYS);
+        rejectionWriter.awaitWritten(rejectionPosition);
+    }
+
+    /// Published on the consumer thread when no batch is received for 'idleEventInterval'. See [io.alw.css.cashflowconsumer.config.KafkaConfig]
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        cashflowService.processExpired((_, task) -> task.run());
+    }
+}
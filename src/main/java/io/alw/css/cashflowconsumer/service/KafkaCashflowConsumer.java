@@ -1,21 +1,95 @@
 package io.alw.css.cashflowconsumer.service;
 
+import io.alw.css.cashflowconsumer.dispatcher.CashflowDispatcher;
+import io.alw.css.cashflowconsumer.dispatcher.OffsetTracker;
 import io.alw.css.domain.common.InputBy;
 import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.Message;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+
+/// Dispatches every consumed message to [CashflowDispatcher] and acknowledges it once processed.
+/// The offsets are committed only up to the lowest fully processed offset of the partition. See [OffsetTracker].
+/// A rejected message is acknowledged only once its rejection is written. See [RejectionWriter]
+///
+/// A message that fails to be processed, Ex: its rejection cannot be saved, is not acknowledged. The partition is sought back to it, so that it is consumed again
+///
+/// The expired parked messages are dispatched too, before every message and when the container is idle. See [CashflowService#processExpired(java.util.function.BiConsumer)]
 @Service
-public class KafkaCashflowConsumer {
+@ConditionalOnProperty(name = "app.kafka.listener.batch-enabled", havingValue = "false", matchIfMissing = true)
+public class KafkaCashflowConsumer extends AbstractConsumerSeekAware {
+    private final static Logger log = LoggerFactory.getLogger(KafkaCashflowConsumer.class);
+
     private final CashflowService cashflowService;
+    private final CashflowDispatcher cashflowDispatcher;
+    private final RejectionWriter rejectionWriter;
+    private final OffsetTracker offsetTracker;
 
-    public KafkaCashflowConsumer(CashflowService cashflowService) {
+    public KafkaCashflowConsumer(CashflowService cashflowService, CashflowDispatcher cashflowDispatcher, RejectionWriter rejectionWriter) {
         this.cashflowService = cashflowService;
+        this.cashflowDispatcher = cashflowDispatcher;
+        this.rejectionWriter = rejectionWriter;
+        this.offsetTracker = new OffsetTracker(this::seekBack);
     }
 
     @KafkaListener(topics = "${app.kafka.topic.cashflow-input}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "foCashMessageListenerContainerFactory")
-    public void accept(Message<FoCashMessageAvro> message) {
-        cashflowService.process(message.getPayload(), InputBy.CSS_SYS);
+    public void accept(ConsumerRecord<String, FoCashMessageAvro> record, Acknowledgment ack) {
+        long receivedNanos = System.nanoTime();
+        cashflowService.processExpired(cashflowDispatcher::dispatch);
+        FoCashMessageAvro foMsg = record.value();
+        OffsetTracker.TrackedRecord trackedRecord = offsetTracker.track(record.topic(), record.partition(), record.offset(), ack);
+        if (trackedRecord == null) {
+            return; // Received before the partition is sought back to a failed record. Consumed again after the seek
+        }
+        cashflowDispatcher.dispatch(foMsg.getCashflowID(), () -> {
+            if (trackedRecord.discarded()) {
+                // A record before it failed, or the partition is revoked. Processing it now could process a later version of the cashflow before the failed one
+                log.debug("Skipping the message, as it is consumed again from offset {} of partition {}-{}", record.offset(), record.topic(), record.partition());
+                return;
+            }
+            long rejectionPosition = rejectionWriter.position();
+            try {
+                cashflowService.process(foMsg, InputBy.CSS_SYS, receivedNanos);
+            } catch (Exception e) {
+                log.error("Failed to process the message. It is consumed again from offset {} of partition {}-{}. FoCashflowID-Ver: {}-{}", record.offset(), record.topic(), record.partition(), foMsg.getCashflowID(), foMsg.getCashflowVersion(), e);
+                trackedRecord.failed();
+                return;
+            }
+            rejectionWriter.runWhenWritten(rejectionPosition, trackedRecord::processed, () -> {
+                log.error("A rejection is not written. The message is consumed again from offset {} of partition {}-{}. FoCashflowID-Ver: {}-{}", record.offset(), record.topic(), record.partition(), foMsg.getCashflowID(), foMsg.getCashflowVersion());
+                trackedRecord.failed();
+            });
+        });
+    }
+
+    /// Published on the consumer thread when no record is received for 'idleEventInterval'. See [io.alw.css.cashflowconsumer.config.KafkaConfig]
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        cashflowService.processExpired(cashflowDispatcher::dispatch);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        offsetTracker.revoke(partitions);
+        super.onPartitionsRevoked(partitions);
+    }
+
+    /// A seek requested by a thread other than the consumer thread is done by the consumer thread before its next poll
+    private void seekBack(TopicPartition topicPartition, long offset) {
+        ConsumerSeekAware.ConsumerSeekCallback seekCallback = getSeekCallbackFor(topicPartition);
+        if (seekCallback != null) {
+            seekCallback.seek(topicPartition.topic(), topicPartition.partition(), offset);
+        }
     }
 }
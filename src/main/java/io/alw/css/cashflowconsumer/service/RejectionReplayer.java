@@ -0,0 +1,225 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.dispatcher.VirtualThreadDispatcher;
+import io.alw.css.cashflowconsumer.model.ReplayProgress;
+import io.alw.css.cashflowconsumer.model.ReplayableRejection;
+import io.alw.css.cashflowconsumer.model.properties.ReplayConfig;
+import io.alw.css.cashflowconsumer.repository.CashflowStore;
+import io.alw.css.cashflowconsumer.util.FoCashMessageCodec;
+import io.alw.css.dbshared.tx.TXRO;
+import io.alw.css.dbshared.tx.TXRW;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Replays the replayable rejections of an exception sub category by processing the rejected messages again through [CashflowService#process(FoCashMessageAvro, io.alw.css.domain.common.InputBy)].
+/// Ex: the rejections due to a missing SSI, once the SSI is set up.
+///
+/// - The rejections are read in pages ordered by ID, using keyset paging. Hence, a page is read by an index range scan irrespective of how many pages are already read.
+///   Only the rejections existing when the replay starts are read. A replayed message that fails again is rejected anew with a higher ID, and is left to the next replay
+/// - The messages are processed on virtual threads, at most [ReplayConfig#concurrency()] at a time and at most [ReplayConfig#maxRatePerSecond()] per second, so that the live messages are not starved.
+///   Rejections of the same foCashflowID are processed in the order of their ID
+/// - The replayed rejections are updated in batches: numOfRetries is incremented and the rejection is marked as not replayable. A replayed message that fails again is rejected anew,
+///   with the numOfRetries of the replayed rejection plus one
+///
+/// One replay runs at a time
+public final class RejectionReplayer implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(RejectionReplayer.class);
+
+    private final CashflowService cashflowService;
+    private final RejectionWriter rejectionWriter;
+    private final CashflowStore cashflowStore;
+    private final TXRO txro;
+    private final TXRW txrw;
+    private final ReplayConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Replay currentReplay;
+
+    public RejectionReplayer(CashflowService cashflowService, RejectionWriter rejectionWriter, CashflowStore cashflowStore, TXRO txro, TXRW txrw, ReplayConfig config) {
+        this.cashflowService = cashflowService;
+        this.rejectionWriter = rejectionWriter;
+        this.cashflowStore = cashflowStore;
+        this.txro = txro;
+        this.txrw = txrw;
+        this.config = config;
+    }
+
+    /// Starts replaying the rejections of the sub category in the background
+    ///
+    /// @return null if a replay is already running
+    public ReplayProgress start(String exceptionSubCategory) {
+        lock.lock();
+        try {
+            if (currentReplay != null && currentReplay.state == ReplayProgress.State.RUNNING) {
+                return null;
+            }
+            var replay = new Replay(exceptionSubCategory);
+            currentReplay = replay;
+            Thread.ofPlatform().name("rejection-replayer").daemon().start(() -> run(replay));
+            return replay.progress();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// Stops reading further rejections. The rejections already dispatched are completed
+    ///
+    /// @return null if no replay has been started
+    public ReplayProgress cancel() {
+        Replay replay = currentReplay;
+        if (replay == null) {
+            return null;
+        }
+        replay.cancelled = true;
+        return replay.progress();
+    }
+
+    /// @return null if no replay has been started
+    public ReplayProgress progress() {
+        Replay replay = currentReplay;
+        return replay == null ? null : replay.progress();
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    private void run(Replay replay) {
+        log.info("Started replaying rejections. ExceptionSubCategory: {}", replay.exceptionSubCategory);
+        long intervalNanos = config.maxRatePerSecond() > 0 ? TimeUnit.SECONDS.toNanos(1) / config.maxRatePerSecond() : 0;
+        long nextDispatchNanos = System.nanoTime();
+        long afterID = 0;
+        try (var dispatcher = new VirtualThreadDispatcher(Math.max(1, config.concurrency()))) {
+            long maxID = txro.execute(_ -> cashflowStore.getMaxReplayableRejectionID(replay.exceptionSubCategory));
+            while (!replay.cancelled) {
+                long lastID = afterID;
+                List<ReplayableRejection> page = txro.execute(_ -> cashflowStore.getReplayableRejections(replay.exceptionSubCategory, lastID, maxID, config.pageSize()));
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                for (ReplayableRejection rejection : page) {
+                    if (replay.cancelled) {
+                        break;
+                    }
+                    if (intervalNanos > 0) {
+                        long waitNanos = nextDispatchNanos - System.nanoTime();
+                        if (waitNanos > 0) {
+                            LockSupport.parkNanos(waitNanos);
+                        }
+                        nextDispatchNanos = Math.max(nextDispatchNanos, System.nanoTime() - intervalNanos) + intervalNanos;
+                    }
+                    replay.read.incrementAndGet();
+                    afterID = rejection.id();
+                    dispatch(dispatcher, replay, rejection);
+                    flushIfFull(replay);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to replay rejections. ExceptionSubCategory: {}", replay.exceptionSubCategory, e);
+            replay.end(ReplayProgress.State.FAILED);
+        } finally {
+            try {
+                rejectionWriter.awaitWritten(rejectionWriter.position()); // The rejections given up are counted as failed by their own callback
+            } catch (IllegalStateException e) {
+                log.warn("Rejections of the replay are not written. The rejections they replay are replayed again by the next replay. Msg: {}", e.getMessage());
+                replay.end(ReplayProgress.State.FAILED);
+            }
+            flush(replay);
+        }
+
+        replay.end(replay.cancelled ? ReplayProgress.State.CANCELLED : ReplayProgress.State.COMPLETED);
+        log.info("Ended replaying rejections. {}", replay.progress());
+    }
+
+    private void dispatch(VirtualThreadDispatcher dispatcher, Replay replay, ReplayableRejection rejection) {
+        final FoCashMessageAvro foMsg;
+        try {
+            foMsg = FoCashMessageCodec.decode(rejection.foMessage());
+        } catch (Exception e) {
+            log.error("Failed to decode the message of rejection: {}. The rejection is marked as not replayable", rejection.id(), e);
+            replay.failed.incrementAndGet();
+            replay.replayedIDs.add(rejection.id());
+            return;
+        }
+
+        int numOfRetries = (rejection.numOfRetries() == null ? 0 : rejection.numOfRetries()) + 1;
+        dispatcher.dispatch(foMsg.getCashflowID(), () -> {
+            long rejectionPosition = rejectionWriter.position();
+            try {
+                cashflowService.replay(foMsg, rejection.inputBy(), numOfRetries);
+            } catch (Exception e) {
+                log.error("Failed to replay rejection: {}. It is replayed again by the next replay", rejection.id(), e);
+                replay.failed.incrementAndGet();
+                return;
+            }
+            // Marked as replayed only once the new rejection, if any, is written
+            rejectionWriter.runWhenWritten(rejectionPosition, () -> {
+                replay.replayed.incrementAndGet();
+                replay.replayedIDs.add(rejection.id());
+            }, () -> {
+                log.error("A rejection of the replay of rejection: {} is not written. It is replayed again by the next replay", rejection.id());
+                replay.failed.incrementAndGet();
+            });
+        });
+    }
+
+    private void flushIfFull(Replay replay) {
+        if (replay.replayedIDs.size() >= config.updateBatchSize()) {
+            flush(replay);
+        }
+    }
+
+    private void flush(Replay replay) {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = replay.replayedIDs.poll()) != null) {
+            ids.add(id);
+        }
+        if (!ids.isEmpty()) {
+            try {
+                txrw.executeWithoutResult(_ -> cashflowStore.updateRejectionsToReplayed(ids));
+            } catch (Exception e) {
+                log.error("Failed to update {} replayed rejections. They are replayed again by the next replay, which skips the ones already processed", ids.size(), e);
+            }
+        }
+    }
+
+    private static final class Replay {
+        private final String exceptionSubCategory;
+        private final LocalDateTime startedDateTime = LocalDateTime.now();
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final ConcurrentLinkedQueue<Long> replayedIDs = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
+        private volatile ReplayProgress.State state = ReplayProgress.State.RUNNING;
+        private volatile LocalDateTime endedDateTime;
+
+        Replay(String exceptionSubCategory) {
+            this.exceptionSubCategory = exceptionSubCategory;
+        }
+
+        /// The first state an ended replay is set to is kept
+        void end(ReplayProgress.State endState) {
+            if (state == ReplayProgress.State.RUNNING) {
+                endedDateTime = LocalDateTime.now();
+                state = endState;
+            }
+        }
+
+        ReplayProgress progress() {
+            return new ReplayProgress(exceptionSubCategory, state, read.get(), replayed.get(), failed.get(), startedDateTime, endedDateTime);
+        }
+    }
+}
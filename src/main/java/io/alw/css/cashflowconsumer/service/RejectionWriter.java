@@ -0,0 +1,310 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.jpa.CashflowRejectionEntity;
+import io.alw.css.cashflowconsumer.model.properties.RejectionWriteConfig;
+import io.alw.css.cashflowconsumer.repository.CashflowStore;
+import io.alw.css.dbshared.tx.TXRW;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Write-behind of cashflow rejections. The rejections are queued and inserted in batches by a single writer thread, so that a storm of rejections(Ex: a bad feed) does not cost a commit per rejection.
+///
+/// A batch is written when it has [RejectionWriteConfig#maxBatchSize()] rejections, or when [RejectionWriteConfig#maxWait()] has elapsed since the first rejection joined the batch.
+/// If the batch transaction fails, every rejection of the batch is written in its own transaction. A rejection that fails to be written even then is retried
+/// [RejectionWriteConfig#maxRetries()] times with a backoff, and is given up after that, Ex: it violates a constraint.
+///
+/// Durability: [#write(CashflowRejectionEntity)] returns once the rejection is queued. A message must be acknowledged only once its rejection is written.
+/// Hence, the acknowledgement is handed over to [#runWhenWritten(long, Runnable, Runnable)], which runs it once every rejection queued so far is written or given up.
+/// The rejections are resolved in the order they are queued, so a rejection being retried holds back the callbacks of every rejection queued after it.
+/// A callback is failed instead if any rejection queued after its [#position()] is given up. The rejecting thread does not know which rejection is its own,
+/// hence the position is taken before the message is processed. A message processed concurrently may be failed as well, and is consumed again.
+/// When closed, a callback whose rejections could not be resolved is failed as well
+///
+/// Backpressure: The queue is bounded by [RejectionWriteConfig#queueCapacity()]. A thread rejecting a message blocks when the queue is full, which in turn blocks the listener thread.
+public final class RejectionWriter implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(RejectionWriter.class);
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private final CashflowStore cashflowStore;
+    private final TXRW txrw;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final int maxRetries;
+    private final ArrayBlockingQueue<PendingRejection> pendingRejections;
+    private final PriorityBlockingQueue<WrittenCallback> writtenCallbacks;
+    private final ReentrantLock queueLock = new ReentrantLock();
+    /// Sequence number of the last queued rejection. Incremented only while holding [#queueLock], so that the rejections are queued in the order of their sequence number
+    private final AtomicLong queued = new AtomicLong();
+    /// Sequence number up to which every queued rejection is written or given up. Never moves past a rejection that is being retried
+    private final AtomicLong resolved = new AtomicLong();
+    /// Sequence numbers of the rejections given up. Rare, hence never pruned
+    private final ConcurrentSkipListSet<Long> givenUp = new ConcurrentSkipListSet<>();
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    public RejectionWriter(CashflowStore cashflowStore, TXRW txrw, RejectionWriteConfig config) {
+        this.cashflowStore = cashflowStore;
+        this.txrw = txrw;
+        this.enabled = config.enabled();
+        this.maxBatchSize = Math.max(1, config.maxBatchSize());
+        this.maxWaitNanos = config.maxWait().toNanos();
+        this.maxRetries = Math.max(0, config.maxRetries());
+        this.pendingRejections = new ArrayBlockingQueue<>(Math.max(1, config.queueCapacity()));
+        this.writtenCallbacks = new PriorityBlockingQueue<>();
+        this.running = enabled;
+        this.writer = enabled ? Thread.ofPlatform().name("cf-rejection-writer").daemon().start(this::run) : null;
+        log.info("Rejection write-behind enabled: {}, maxBatchSize: {}, maxWait: {}, queueCapacity: {}, maxRetries: {}", enabled, maxBatchSize, config.maxWait(), config.queueCapacity(), maxRetries);
+    }
+
+    /// Queues the rejection. Blocks while the queue is full. When write-behind is disabled or closed, the rejection is written in its own transaction before returning
+    public void write(CashflowRejectionEntity cfr) {
+        if (!running) {
+            writeOne(cfr, true);
+            return;
+        }
+
+        queueLock.lock();
+        try {
+            long sequence = queued.get() + 1;
+            pendingRejections.put(new PendingRejection(sequence, cfr));
+            queued.set(sequence);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeOne(cfr, true);
+            return;
+        } finally {
+            queueLock.unlock();
+        }
+
+        if (!running) {
+            writeRemaining(); // Closed concurrently, the writer may have missed this one
+        }
+    }
+
+    /// @return position of the last queued rejection. See [#runWhenWritten(long, Runnable, Runnable)]
+    public long position() {
+        return queued.get();
+    }
+
+    /// Runs `onWritten` once every rejection queued so far is written. Runs it immediately if there is nothing to wait for, otherwise on the writer thread
+    ///
+    /// @param since    [#position()] taken before the rejections of the caller could be queued
+    /// @param onFailed run instead of `onWritten` if a rejection queued after `since` is given up, or cannot be written before this writer is closed
+    public void runWhenWritten(long since, Runnable onWritten, Runnable onFailed) {
+        long sequence = queued.get();
+        var callback = new WrittenCallback(since, sequence, onWritten, onFailed);
+        if (resolved.get() >= sequence) {
+            run(callback);
+            return;
+        }
+        writtenCallbacks.add(callback);
+        runWrittenCallbacks(); // The rejections may have been resolved before the callback was added
+        if (closed) {
+            failWrittenCallbacks();
+        }
+    }
+
+    /// Blocks until every rejection queued so far is written or given up
+    ///
+    /// @param since [#position()] taken before the rejections of the caller could be queued
+    /// @throws IllegalStateException if a rejection queued after `since` is given up, or cannot be written before this writer is closed
+    public void awaitWritten(long since) {
+        var allWritten = new CompletableFuture<Void>();
+        runWhenWritten(since, () -> allWritten.complete(null), () -> allWritten.completeExceptionally(new IllegalStateException("Rejections queued since position " + since + " are not written")));
+        try {
+            allWritten.join();
+        } catch (CompletionException e) {
+            throw (IllegalStateException) e.getCause();
+        }
+    }
+
+    private void run() {
+        List<PendingRejection> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !pendingRejections.isEmpty()) {
+                PendingRejection first = pendingRejections.poll(maxWaitNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        pendingRejections.drainTo(batch, maxBatchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() == maxBatchSize || remaining <= 0) {
+                            break;
+                        }
+                        PendingRejection next = pendingRejections.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                runWrittenCallbacks();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeOneByOne(batch);
+        }
+        writeRemaining();
+    }
+
+    private void writeBatch(List<PendingRejection> batch) {
+        try {
+            txrw.executeWithoutResult(_ -> cashflowStore.saveRejections(batch.stream().map(PendingRejection::rejection).toList()));
+            log.debug("Wrote a batch of {} rejections", batch.size());
+            resolved.accumulateAndGet(batch.getLast().sequence(), Math::max);
+        } catch (Exception e) {
+            log.warn("Failed to write a batch of {} rejections. Each rejection will be written in its own transaction. Msg: {}", batch.size(), e.getMessage());
+            writeOneByOne(batch);
+        }
+    }
+
+    /// A rejection failing to be written is retried with a backoff while the writer is running. If it is still not written, it is given up
+    private void writeOneByOne(List<PendingRejection> batch) {
+        for (PendingRejection pr : batch) {
+            boolean savedRejection = false;
+            long backoffMillis = INITIAL_BACKOFF_MILLIS;
+            for (int retry = 0; ; retry++) {
+                if (writeOne(pr.rejection(), false)) {
+                    savedRejection = true;
+                    break;
+                }
+                if (retry == maxRetries || !running || Thread.currentThread().isInterrupted() || !sleep(backoffMillis)) {
+                    break;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+
+            if (!savedRejection) {
+                givenUp.add(pr.sequence());
+                log.error("Gave up writing cashflow rejection. Its message is consumed again. FoCashflowID-Ver: {}-{}", pr.rejection().getFoCashflowID(), pr.rejection().getFoCashflowVersion());
+            }
+            resolved.accumulateAndGet(pr.sequence(), Math::max);
+        }
+    }
+
+    /// @param rethrow true to throw the failure to the caller, which is the thread rejecting the message
+    /// @return true if written
+    private boolean writeOne(CashflowRejectionEntity cfr, boolean rethrow) {
+        try {
+            cfr.setId(null); // Assigned by a failed batch
+            txrw.executeWithoutResult(_ -> cashflowStore.saveRejection(cfr));
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to save cashflow rejection to database. FoCashflowID-Ver: {}-{}", cfr.getFoCashflowID(), cfr.getFoCashflowVersion(), e);
+            if (rethrow) {
+                throw new RuntimeException(e);
+            }
+            return false;
+        }
+    }
+
+    /// @return false if interrupted
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /// Writes the rejections left in the queue one by one, after the writer has stopped
+    private void writeRemaining() {
+        PendingRejection pr;
+        while ((pr = pendingRejections.poll()) != null) {
+            writeOneByOne(List.of(pr));
+        }
+        runWrittenCallbacks();
+    }
+
+    private void runWrittenCallbacks() {
+        WrittenCallback wc;
+        while ((wc = writtenCallbacks.peek()) != null && wc.sequence() <= resolved.get()) {
+            wc = writtenCallbacks.poll();
+            if (wc == null) {
+                return;
+            }
+            if (wc.sequence() > resolved.get()) {
+                writtenCallbacks.add(wc); // Another thread took the callback that was peeked
+                return;
+            }
+            run(wc);
+        }
+    }
+
+    /// Must be called only once the rejections of the callback are resolved
+    private void run(WrittenCallback wc) {
+        Long firstGivenUp = givenUp.higher(wc.since());
+        if (firstGivenUp != null && firstGivenUp <= wc.sequence()) {
+            fail(wc);
+            return;
+        }
+        try {
+            wc.onWritten().run();
+        } catch (Exception e) {
+            log.error("Failed to run the callback of written rejections", e);
+        }
+    }
+
+    private static void fail(WrittenCallback wc) {
+        try {
+            wc.onFailed().run();
+        } catch (Exception e) {
+            log.error("Failed to run the callback of rejections that are not written", e);
+        }
+    }
+
+    private void failWrittenCallbacks() {
+        WrittenCallback wc;
+        while ((wc = writtenCallbacks.poll()) != null) {
+            fail(wc);
+        }
+    }
+
+    /// The rejections queued at the time of closing are written before this returns. The callbacks of the rejections that could not be written are failed
+    @Override
+    public void close() {
+        if (writer != null) {
+            running = false;
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writeRemaining();
+            closed = true;
+            if (!writtenCallbacks.isEmpty()) {
+                log.warn("Rejection writer is closed with {} callbacks of rejections that are not written. Their messages are not acknowledged", writtenCallbacks.size());
+            }
+            failWrittenCallbacks();
+        }
+    }
+
+    private record PendingRejection(long sequence, CashflowRejectionEntity rejection) {
+    }
+
+    private record WrittenCallback(long since, long sequence, Runnable onWritten, Runnable onFailed) implements Comparable<WrittenCallback> {
+        @Override
+        public int compareTo(WrittenCallback other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.properties.RetryConfig;
+import io.alw.css.domain.exception.CategorizedRuntimeException;
+import io.alw.css.domain.exception.ExceptionCategory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/// Decides whether a failed message is processed again instead of being rejected, and waits before it is.
+///
+/// Only a RECOVERABLE [CategorizedRuntimeException] of a retryable sub category is retried. Ex: the last processed cashflow is updated concurrently by a CSS user,
+/// in which case processing the message again reads the new last processed cashflow and creates the amendment against it.
+///
+/// The backoff grows exponentially with the retry, and half of it is random, so that messages conflicting in a burst do not retry at the same time again
+public final class RetryPolicy {
+    private final static Logger log = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private final RetryConfig config;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    public RetryPolicy(RetryConfig config) {
+        this.config = config;
+        this.initialBackoffNanos = Math.max(1, config.initialBackoff().toNanos());
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, config.maxBackoff().toNanos());
+        log.info("Retry maxRetries: {}, initialBackoff: {}, maxBackoff: {}, retryableSubCategories: {}", config.maxRetries(), config.initialBackoff(), config.maxBackoff(), config.retryableSubCategories());
+    }
+
+    /// @param retry the retry that would follow, starting from 1
+    public boolean shouldRetry(Exception e, int retry) {
+        return retry <= config.maxRetries()
+                && e instanceof CategorizedRuntimeException cre
+                && cre.category() == ExceptionCategory.RECOVERABLE
+                && cre.subCategory() != null
+                && config.retryableSubCategories().contains(cre.subCategory().type());
+    }
+
+    /// Waits for a random duration between half and all of the backoff of the retry
+    ///
+    /// @return false if interrupted, in which case the message must not be retried
+    public boolean backoff(int retry) {
+        long backoffNanos = initialBackoffNanos << Math.min(retry - 1, 30);
+        if (backoffNanos <= 0 || backoffNanos > maxBackoffNanos) {
+            backoffNanos = maxBackoffNanos;
+        }
+        long halfBackoffNanos = backoffNanos / 2;
+        long sleepNanos = halfBackoffNanos + ThreadLocalRandom.current().nextLong(backoffNanos - halfBackoffNanos + 1);
+        try {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
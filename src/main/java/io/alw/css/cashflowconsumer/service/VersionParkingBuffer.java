@@ -0,0 +1,337 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.ParkedCashflow;
+import io.alw.css.cashflowconsumer.model.properties.ParkingConfig;
+import io.alw.css.cashflowconsumer.repository.ParkedCashflowStore;
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Holds the messages whose preceding version is not processed yet, keyed by foCashflowID and foCashflowVersion, instead of rejecting them.
+/// Ex: version N+1 is consumed before version N after a partition rebalance or an upstream replay.
+///
+/// - Once a version is persisted, [#takeSuccessor(long, int)] hands out the parked next version, which is then processed. Hence, parked versions are released in order
+/// - A message parked for longer than [ParkingConfig#timeout()] is handed out by [#takeExpired()] and processed as is. It is rejected if the preceding version is still not processed.
+///   This also releases a message whose preceding version is processed by another consumer instance.
+///   The sweeper only queues the expired messages, so that they are processed by the thread(s) processing the messages of their foCashflowID and not concurrently with them
+///
+/// Up to [ParkingConfig#maxInMemory()] messages are held in memory. Any more are spilled to the CSS.PARKED_CASHFLOW table, see [ParkedCashflowStore].
+/// The index of all parked messages is always in memory, so that checking for a parked successor does not go to the DB.
+/// On close, the messages held in memory are spilled, and on start the index of the spilled messages is loaded. Hence, the parked messages survive a restart.
+///
+/// A message is saved to the table outside the lock, so that a slow insert holds up only the message being spilled. Until it is saved, it is held in memory and its key is marked as spilling.
+///
+/// NOTE: A parked message is acknowledged to Kafka once [#park(FoCashMessageAvro, InputBy)] returns. Hence, by default([ParkingConfig#maxInMemory()] is zero), every parked message is spilled before it returns, so that it survives the process dying.
+/// Messages held in memory, if [ParkingConfig#maxInMemory()] is set above zero, are lost if the process dies, in which case the gap remains until the upstream sends the versions again.
+public final class VersionParkingBuffer implements AutoCloseable {
+    private record ExpiredKey(long foCashflowID, int foCashflowVersion, ParkedCashflow parkedCashflow) {
+    }
+
+    private record SpillingKey(long foCashflowID, int foCashflowVersion) {
+    }
+
+    private final static Logger log = LoggerFactory.getLogger(VersionParkingBuffer.class);
+
+    private final ParkingConfig config;
+    private final ParkedCashflowStore parkedCashflowStore;
+    private final ReentrantLock lock = new ReentrantLock();
+    /// foCashflowID -> foCashflowVersion -> parked message. The message is null if spilled
+    private final Map<Long, TreeMap<Integer, ParkedCashflow>> parkedCashflows = new HashMap<>();
+    /// Keys of the messages being saved to the table. A message of the same key cannot be parked until the save completes
+    private final Set<SpillingKey> spilling = new HashSet<>();
+    private final ScheduledExecutorService sweeper;
+    /// Removed from the index by the sweeper, until taken by [#takeExpired()]
+    private final ConcurrentLinkedQueue<ExpiredKey> expired = new ConcurrentLinkedQueue<>();
+    /// Written while holding the lock. Read without it only to skip the lookup when nothing is parked
+    private volatile int numOfParked;
+    private int numInMemory;
+    private boolean closed;
+
+    public VersionParkingBuffer(ParkingConfig config, ParkedCashflowStore parkedCashflowStore) {
+        this.config = config;
+        this.parkedCashflowStore = parkedCashflowStore;
+        if (config.enabled()) {
+            loadSpilledKeys();
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("cf-parking-sweeper").daemon().factory());
+            long sweepIntervalMillis = config.sweepInterval().toMillis();
+            this.sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+        log.info("Version parking enabled: {}, maxInMemory: {}, maxParked: {}, timeout: {}", config.enabled(), config.maxInMemory(), config.maxParked(), config.timeout());
+    }
+
+    public boolean enabled() {
+        return config.enabled();
+    }
+
+    /// Removes the messages whose timeout has elapsed
+    ///
+    /// @return empty if none has expired. Once processed, the caller must call [#released(ParkedCashflow)] for each
+    public List<ParkedCashflow> takeExpired() {
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+
+        List<ParkedCashflow> expiredCashflows = new ArrayList<>();
+        for (ExpiredKey key; (key = expired.poll()) != null; ) {
+            ParkedCashflow expiredCashflow = key.parkedCashflow().spilled() ? parkedCashflowStore.find(key.foCashflowID(), key.foCashflowVersion()) : key.parkedCashflow();
+            if (expiredCashflow == null) {
+                continue; // Released by another consumer instance sharing the table
+            }
+            log.info("Parked cashflow expired. FoCashflowID-Ver: {}-{}, parkedDateTime: {}", key.foCashflowID(), key.foCashflowVersion(), expiredCashflow.parkedDateTime());
+            expiredCashflows.add(expiredCashflow);
+        }
+        return expiredCashflows;
+    }
+
+    /// Parks the message. A message of the same foCashflowID and foCashflowVersion that is already parked is replaced
+    ///
+    /// @return false if the message cannot be parked, in which case the caller must process it as is
+    public boolean park(FoCashMessageAvro foMsg, InputBy inputBy) {
+        if (!config.enabled()) {
+            return false;
+        }
+
+        long foCashflowID = foMsg.getCashflowID();
+        int foCashflowVersion = foMsg.getCashflowVersion();
+        var parkedCashflow = new ParkedCashflow(foMsg, inputBy, LocalDateTime.now(), false);
+        var key = new SpillingKey(foCashflowID, foCashflowVersion);
+        boolean spill;
+        lock.lock();
+        try {
+            if (numOfParked >= config.maxParked() && !isParked(foCashflowID, foCashflowVersion)) {
+                log.warn("Cannot park the cashflow as {} cashflows are already parked. FoCashflowID-Ver: {}-{}", numOfParked, foCashflowID, foCashflowVersion);
+                return false;
+            }
+            if (spilling.contains(key)) {
+                log.warn("Cannot park the cashflow as the same version is being spilled. FoCashflowID-Ver: {}-{}", foCashflowID, foCashflowVersion);
+                return false;
+            }
+            spill = closed || numInMemory >= config.maxInMemory();
+            put(foCashflowID, foCashflowVersion, parkedCashflow);
+            if (spill) {
+                spilling.add(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (spill) {
+            spill(key, parkedCashflow);
+        }
+        log.info("Parked cashflow. FoCashflowID-Ver: {}-{}, spilled: {}", foCashflowID, foCashflowVersion, spill);
+        return true;
+    }
+
+    /// Removes the parked version that follows the persisted version
+    ///
+    /// @return null if the next version is not parked. Once processed, the caller must call [#released(ParkedCashflow)]
+    public ParkedCashflow takeSuccessor(long foCashflowID, int persistedFoCashflowVersion) {
+        if (numOfParked == 0) {
+            return null;
+        }
+
+        int nextFoCashflowVersion = persistedFoCashflowVersion + 1;
+        ParkedCashflow parkedCashflow;
+        lock.lock();
+        try {
+            TreeMap<Integer, ParkedCashflow> versions = parkedCashflows.get(foCashflowID);
+            if (versions == null || !versions.containsKey(nextFoCashflowVersion)) {
+                return null;
+            }
+            parkedCashflow = remove(foCashflowID, versions, nextFoCashflowVersion);
+        } finally {
+            lock.unlock();
+        }
+
+        return parkedCashflow.spilled() ? parkedCashflowStore.find(foCashflowID, nextFoCashflowVersion) : parkedCashflow;
+    }
+
+    /// Deletes the spilled message, once the message handed out by this buffer is processed
+    public void released(ParkedCashflow parkedCashflow) {
+        if (parkedCashflow.spilled()) {
+            parkedCashflowStore.delete(parkedCashflow.foMsg().getCashflowID(), parkedCashflow.foMsg().getCashflowVersion());
+        }
+    }
+
+    /// Spills the messages held in memory, including the expired ones not yet taken, so that they are released after a restart
+    @Override
+    public void close() {
+        if (sweeper == null) {
+            return;
+        }
+        sweeper.shutdownNow();
+
+        List<ParkedCashflow> inMemory = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            parkedCashflows.forEach((foCashflowID, versions) -> versions.forEach((foCashflowVersion, pc) -> {
+                // A message being spilled is replaced by its own spill
+                if (!pc.spilled() && !spilling.contains(new SpillingKey(foCashflowID, foCashflowVersion))) {
+                    inMemory.add(pc);
+                }
+            }));
+            for (ExpiredKey key; (key = expired.poll()) != null; ) {
+                if (!key.parkedCashflow().spilled()) {
+                    inMemory.add(key.parkedCashflow());
+                }
+            }
+            inMemory.forEach(this::spillHoldingLock);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Spilled {} parked cashflows held in memory", inMemory.size());
+    }
+
+    private void sweep() {
+        try {
+            LocalDateTime expiredBefore = LocalDateTime.now().minus(config.timeout());
+            lock.lock();
+            try {
+                for (var iterator = parkedCashflows.entrySet().iterator(); iterator.hasNext(); ) {
+                    var entry = iterator.next();
+                    TreeMap<Integer, ParkedCashflow> versions = entry.getValue();
+                    for (var versionIterator = versions.entrySet().iterator(); versionIterator.hasNext(); ) {
+                        var versionEntry = versionIterator.next();
+                        ParkedCashflow pc = versionEntry.getValue();
+                        if (pc.parkedDateTime().isBefore(expiredBefore)) {
+                            versionIterator.remove();
+                            expired.add(new ExpiredKey(entry.getKey(), versionEntry.getKey(), pc));
+                            decrementCounts(pc);
+                        }
+                    }
+                    if (versions.isEmpty()) {
+                        iterator.remove();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep the expired parked cashflows", e);
+        }
+    }
+
+    private void loadSpilledKeys() {
+        List<ParkedCashflowStore.Key> keys = parkedCashflowStore.findAllKeys();
+        lock.lock();
+        try {
+            for (ParkedCashflowStore.Key key : keys) {
+                put(key.foCashflowID(), key.foCashflowVersion(), new ParkedCashflow(null, key.inputBy(), key.parkedDateTime(), true));
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Loaded {} spilled parked cashflows", keys.size());
+    }
+
+    /// Saves the message, which is in the index and marked as spilling, without holding the lock. Once saved, the message held in memory is replaced by its spilled entry.
+    /// If the message is taken as a successor or expires while it is saved, it is processed from memory. Hence, its row is deleted again
+    ///
+    /// @throws RuntimeException if the save fails, in which case the message is not parked
+    private void spill(SpillingKey key, ParkedCashflow parkedCashflow) {
+        try {
+            parkedCashflowStore.save(parkedCashflow);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                spilling.remove(key);
+                if (!isParkedAs(key, parkedCashflow)) {
+                    log.warn("Failed to spill the parked cashflow, which is already taken. FoCashflowID-Ver: {}-{}. Msg: {}", key.foCashflowID(), key.foCashflowVersion(), e.getMessage());
+                    return;
+                }
+                remove(key.foCashflowID(), parkedCashflows.get(key.foCashflowID()), key.foCashflowVersion());
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            if (isParkedAs(key, parkedCashflow)) {
+                put(key.foCashflowID(), key.foCashflowVersion(), new ParkedCashflow(null, parkedCashflow.inputBy(), parkedCashflow.parkedDateTime(), true));
+                spilling.remove(key);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // The key stays marked as spilling until the row is deleted, so that the row of a message parked again is not deleted
+        try {
+            parkedCashflowStore.delete(key.foCashflowID(), key.foCashflowVersion());
+        } finally {
+            lock.lock();
+            try {
+                spilling.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /// Must be called while holding the lock. Used on close only
+    private void spillHoldingLock(ParkedCashflow parkedCashflow) {
+        parkedCashflowStore.save(parkedCashflow);
+        put(parkedCashflow.foMsg().getCashflowID(), parkedCashflow.foMsg().getCashflowVersion(), new ParkedCashflow(null, parkedCashflow.inputBy(), parkedCashflow.parkedDateTime(), true));
+    }
+
+    /// Must be called while holding the lock
+    private boolean isParkedAs(SpillingKey key, ParkedCashflow parkedCashflow) {
+        TreeMap<Integer, ParkedCashflow> versions = parkedCashflows.get(key.foCashflowID());
+        return versions != null && versions.get(key.foCashflowVersion()) == parkedCashflow;
+    }
+
+    /// Must be called while holding the lock
+    private boolean isParked(long foCashflowID, int foCashflowVersion) {
+        TreeMap<Integer, ParkedCashflow> versions = parkedCashflows.get(foCashflowID);
+        return versions != null && versions.containsKey(foCashflowVersion);
+    }
+
+    /// Must be called while holding the lock
+    private void put(long foCashflowID, int foCashflowVersion, ParkedCashflow parkedCashflow) {
+        ParkedCashflow replaced = parkedCashflows.computeIfAbsent(foCashflowID, _ -> new TreeMap<>()).put(foCashflowVersion, parkedCashflow);
+        if (replaced != null) {
+            decrementCounts(replaced);
+        }
+        numOfParked++;
+        if (!parkedCashflow.spilled()) {
+            numInMemory++;
+        }
+    }
+
+    /// Must be called while holding the lock
+    private ParkedCashflow remove(long foCashflowID, TreeMap<Integer, ParkedCashflow> versions, int foCashflowVersion) {
+        ParkedCashflow removed = versions.remove(foCashflowVersion);
+        if (versions.isEmpty()) {
+            parkedCashflows.remove(foCashflowID);
+        }
+        decrementCounts(removed);
+        return removed;
+    }
+
+    /// Must be called while holding the lock
+    private void decrementCounts(ParkedCashflow parkedCashflow) {
+        numOfParked--;
+        if (!parkedCashflow.spilled()) {
+            numInMemory--;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.alw.css.cashflowconsumer.service.refdata;
+
+import io.alw.css.cashflowconsumer.model.NostroDetails;
+import io.alw.css.cashflowconsumer.model.OverridableNostro;
+import io.alw.css.cashflowconsumer.model.PrimaryNostro;
+import io.alw.css.cashflowconsumer.model.properties.RefDataConfig;
+import io.alw.css.domain.exception.CategorizedRuntimeException;
+import io.alw.css.domain.exception.ExceptionSubCategory;
+import org.apache.ignite.cache.query.SqlFieldsQuery;
+import org.apache.ignite.client.IgniteClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType.UNEXPECTED_REFDATA;
+
+/// In-memory index from (entityCode, currCode, counterpartyCode) to [NostroDetails], so that the nostro resolution does not need the non-colocated NOSTRO/CounterpartySlaMapping join on the Ignite cluster.
+///
+/// The index is built in the background from the NOSTRO and CounterpartySlaMapping caches, with the same semantics as the join in [io.alw.css.cashflowconsumer.service.CacheService#getNostroDetails]:
+/// - primary nostro: an active primary nostro that has no CounterpartySlaMapping for its (entityCode, currCode, secondaryLedgerAccount)
+/// - overridable nostro: an active secondary nostro and an active CounterpartySlaMapping of the counterparty for its (entityCode, currCode, secondaryLedgerAccount)
+/// - more than one primary or secondary nostro for a lookup is a [CategorizedRuntimeException] for that lookup, as before. These are also logged when the index is built
+///
+/// Any change of the NOSTRO or CounterpartySlaMapping caches schedules a rebuild of the index. Until the rebuilt index is swapped in, and whenever listening to the changes fails,
+/// lookups fall back to the join on the Ignite cluster. Hence, a lookup never sees an index that is older than a change that is already notified
+public final class NostroIndex implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(NostroIndex.class);
+
+    private final IgniteClient igniteClient;
+    private final RefDataConfig.CacheNames cacheNames;
+    private final long rebuildDelayMillis;
+    private final RefDataChangeSubscriptions subscriptions;
+    private final ScheduledExecutorService builder;
+    private final AtomicLong changeCount;
+    private final AtomicBoolean rebuildScheduled;
+    private volatile Index index;
+
+    public NostroIndex(IgniteClient igniteClient, RefDataConfig.NostroIndexConfig config, RefDataConfig.CacheNames cacheNames) {
+        this.igniteClient = igniteClient;
+        this.cacheNames = cacheNames;
+        this.rebuildDelayMillis = config.rebuildDelay().toMillis();
+        this.builder = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("nostro-index-builder").daemon().factory());
+        this.changeCount = new AtomicLong();
+        this.rebuildScheduled = new AtomicBoolean();
+        this.index = null;
+        this.subscriptions = new RefDataChangeSubscriptions("Nostro index", igniteClient, List.of(cacheNames.nostro(), cacheNames.counterpartySlaMapping()),
+                _ -> onChange(), changeCount::incrementAndGet, this::onChange, config.resubscribeInterval());
+        subscriptions.ensureActive();
+    }
+
+    /// @param fallback resolves the nostro details using the join on the Ignite cluster, when the index is not up to date
+    public NostroDetails get(String entityCode, String currCode, String counterpartyCode, Supplier<NostroDetails> fallback) {
+        Index idx = index;
+        if (!subscriptions.ensureActive() || idx == null || idx.changeCount() != changeCount.get()) {
+            return fallback.get();
+        }
+
+        List<PrimaryNostro> primaryNostros = idx.primaryNostros().getOrDefault(new NostroKey(entityCode, currCode), List.of());
+        List<OverridableNostro> overridableNostros = idx.overridableNostros().getOrDefault(new OverridableNostroKey(entityCode, currCode, counterpartyCode), List.of());
+        if (primaryNostros.size() > 1) {
+            String exMsg = "More than ONE primary nostro found in IgniteCache for entityCode: " + entityCode + ", currCode: " + currCode;
+            throw CategorizedRuntimeException.TECHNICAL_RECOVERABLE(exMsg, new ExceptionSubCategory(UNEXPECTED_REFDATA, null));
+        } else if (overridableNostros.size() > 1) {
+            String exMsg = "More than ONE secondary nostro found in IgniteCache for entityCode: " + entityCode + ", currCode: " + currCode + ", counterpartyCode: " + counterpartyCode + ", secondaryLedgerAccount: " + overridableNostros.get(1).secondaryLedgerAccount();
+            throw CategorizedRuntimeException.TECHNICAL_RECOVERABLE(exMsg, new ExceptionSubCategory(UNEXPECTED_REFDATA, null));
+        }
+
+        return new NostroDetails(primaryNostros.isEmpty() ? null : primaryNostros.getFirst(), overridableNostros.isEmpty() ? null : overridableNostros.getFirst());
+    }
+
+    /// Marks the index as stale and schedules a rebuild, unless one is already scheduled
+    private void onChange() {
+        changeCount.incrementAndGet();
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            builder.schedule(this::rebuild, rebuildDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild() {
+        rebuildScheduled.set(false);
+        long changeCountAtStart = changeCount.get();
+        try {
+            Index idx = build(changeCountAtStart);
+            index = idx;
+            log.info("Built nostro index. Primary nostros: {}, overridable nostros: {}, up to date: {}", idx.primaryNostros().size(), idx.overridableNostros().size(), changeCountAtStart == changeCount.get());
+        } catch (Exception e) {
+            log.warn("Failed to build nostro index. Nostro lookups fall back to Ignite until the next rebuild. Msg: {}", e.getMessage());
+            if (rebuildScheduled.compareAndSet(false, true)) {
+                builder.schedule(this::rebuild, Math.max(rebuildDelayMillis, 1000), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private Index build(long changeCountAtStart) {
+        var slaMappingSql = "select mappingId, mappingVersion, entityCode, currCode, secondaryLedgerAccount, counterpartyCode, active from CounterpartySlaMapping";
+        Map<SecondaryLedgerAccountKey, List<SlaMapping>> slaMappings = new HashMap<>();
+        for (List<?> rs : igniteClient.query(new SqlFieldsQuery(slaMappingSql)).getAll()) {
+            var mapping = new SlaMapping((Long) rs.get(0), (Integer) rs.get(1), (String) rs.get(5), (Boolean) rs.get(6));
+            slaMappings.computeIfAbsent(new SecondaryLedgerAccountKey((String) rs.get(2), (String) rs.get(3), (String) rs.get(4)), _ -> new ArrayList<>()).add(mapping);
+        }
+
+        var nostroSql = "select nostroId, nostroVersion, entityCode, currCode, secondaryLedgerAccount, isPrimary, active from NOSTRO where active is true";
+        Map<NostroKey, List<PrimaryNostro>> primaryNostros = new HashMap<>();
+        Map<OverridableNostroKey, List<OverridableNostro>> overridableNostros = new HashMap<>();
+        for (List<?> rs : igniteClient.query(new SqlFieldsQuery(nostroSql)).getAll()) {
+            var nostroId = (String) rs.get(0);
+            var nostroVersion = (int) rs.get(1);
+            var entityCode = (String) rs.get(2);
+            var currCode = (String) rs.get(3);
+            var secondaryLedgerAccount = (String) rs.get(4);
+            var isPrimary = (boolean) rs.get(5);
+            var activeNostro = (boolean) rs.get(6);
+            // A NULL never satisfies the join condition
+            List<SlaMapping> mappings = secondaryLedgerAccount == null ? List.of() : slaMappings.getOrDefault(new SecondaryLedgerAccountKey(entityCode, currCode, secondaryLedgerAccount), List.of());
+
+            if (isPrimary) {
+                if (mappings.isEmpty()) {
+                    primaryNostros.computeIfAbsent(new NostroKey(entityCode, currCode), _ -> new ArrayList<>())
+                            .add(new PrimaryNostro(nostroId, nostroVersion, entityCode, currCode, secondaryLedgerAccount, isPrimary, activeNostro));
+                }
+            } else {
+                for (SlaMapping mapping : mappings) {
+                    if (Boolean.TRUE.equals(mapping.active()) && mapping.counterpartyCode() != null) {
+                        overridableNostros.computeIfAbsent(new OverridableNostroKey(entityCode, currCode, mapping.counterpartyCode()), _ -> new ArrayList<>())
+                                .add(new OverridableNostro(mapping.mappingId(), mapping.mappingVersion(), mapping.counterpartyCode(), mapping.active(), nostroId, nostroVersion, entityCode, currCode, secondaryLedgerAccount, isPrimary, activeNostro));
+                    }
+                }
+            }
+        }
+
+        reportDuplicates(primaryNostros, overridableNostros);
+        return new Index(Map.copyOf(primaryNostros), Map.copyOf(overridableNostros), changeCountAtStart);
+    }
+
+    private static void reportDuplicates(Map<NostroKey, List<PrimaryNostro>> primaryNostros, Map<OverridableNostroKey, List<OverridableNostro>> overridableNostros) {
+        primaryNostros.forEach((key, nostros) -> {
+            if (nostros.size() > 1) {
+                log.warn("More than ONE primary nostro found in IgniteCache for entityCode: {}, currCode: {}. NostroIDs: {}", key.entityCode(), key.currCode(), nostros.stream().map(PrimaryNostro::nostroID).toList());
+            }
+        });
+        overridableNostros.forEach((key, nostros) -> {
+            if (nostros.size() > 1) {
+                log.warn("More than ONE secondary nostro found in IgniteCache for entityCode: {}, currCode: {}, counterpartyCode: {}. NostroIDs: {}", key.entityCode(), key.currCode(), key.counterpartyCode(), nostros.stream().map(OverridableNostro::nostroID).toList());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        subscriptions.close();
+        builder.shutdownNow();
+    }
+
+    /// @param changeCount the change count when the build started. The index is up to date only while no further change is notified
+    private record Index(Map<NostroKey, List<PrimaryNostro>> primaryNostros, Map<OverridableNostroKey, List<OverridableNostro>> overridableNostros, long changeCount) {
+    }
+
+    private record NostroKey(String entityCode, String currCode) {
+    }
+
+    private record OverridableNostroKey(String entityCode, String currCode, String counterpartyCode) {
+    }
+
+    private record SecondaryLedgerAccountKey(String entityCode, String currCode, String secondaryLedgerAccount) {
+    }
+
+    private record SlaMapping(Long mappingId, Integer mappingVersion, String counterpartyCode, Boolean active) {
+    }
+}
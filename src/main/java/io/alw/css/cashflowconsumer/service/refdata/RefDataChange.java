@@ -0,0 +1,27 @@
+package io.alw.css.cashflowconsumer.service.refdata;
+
+import org.apache.ignite.binary.BinaryObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/// A change of an entry of a reference data cache. The key and values are in binary form, as the reference data classes are not needed to be on the classpath of cashflow-consumer
+///
+/// @param oldValue null if the entry is created, or if the old value is not available
+/// @param newValue null if the entry is removed
+public record RefDataChange(Object key, Object oldValue, Object newValue) {
+
+    /// @return the distinct non-null values of the field in the new value, old value and the key, in that order. Empty if the field is not found in any of them
+    public List<Object> fieldValues(String fieldName) {
+        var values = new ArrayList<>(3);
+        for (Object obj : new Object[]{newValue, oldValue, key}) {
+            if (obj instanceof BinaryObject bo && bo.hasField(fieldName)) {
+                Object value = bo.field(fieldName);
+                if (value != null && !values.contains(value)) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+}
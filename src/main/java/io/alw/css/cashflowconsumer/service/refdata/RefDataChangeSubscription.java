@@ -0,0 +1,78 @@
+package io.alw.css.cashflowconsumer.service.refdata;
+
+import org.apache.ignite.cache.query.ContinuousQuery;
+import org.apache.ignite.cache.query.QueryCursor;
+import org.apache.ignite.client.ClientCache;
+import org.apache.ignite.client.IgniteClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/// Listens to the changes of an Ignite cache using a continuous query of the thin client.
+///
+/// A thin client continuous query is not restored after the client reconnects. Hence, when the connection is lost or a change cannot be handled, the subscription becomes inactive and `onFailure` is called.
+/// The data derived from the cache must then be considered stale, until [#subscribe()] succeeds again.
+public final class RefDataChangeSubscription implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(RefDataChangeSubscription.class);
+
+    private final IgniteClient igniteClient;
+    private final String cacheName;
+    private final Consumer<RefDataChange> onChange;
+    private final Runnable onFailure;
+    private volatile QueryCursor<?> cursor;
+
+    public RefDataChangeSubscription(IgniteClient igniteClient, String cacheName, Consumer<RefDataChange> onChange, Runnable onFailure) {
+        this.igniteClient = igniteClient;
+        this.cacheName = cacheName;
+        this.onChange = onChange;
+        this.onFailure = onFailure;
+    }
+
+    /// @return true if listening to the changes. false if the continuous query could not be registered
+    public boolean subscribe() {
+        if (cursor != null) {
+            return true;
+        }
+        try {
+            ClientCache<Object, Object> cache = igniteClient.cache(cacheName).withKeepBinary();
+            ContinuousQuery<Object, Object> qry = new ContinuousQuery<>();
+            qry.setLocalListener(events -> {
+                try {
+                    events.forEach(e -> onChange.accept(new RefDataChange(e.getKey(), e.getOldValue(), e.getValue())));
+                } catch (Exception e) {
+                    fail("Failed to handle a change of cache " + cacheName, e);
+                }
+            });
+            cursor = cache.query(qry, reason -> fail("Disconnected from Ignite while listening to cache " + cacheName, reason));
+            log.info("Listening to the changes of cache {}", cacheName);
+            return true;
+        } catch (Exception e) {
+            log.warn("Unable to listen to the changes of cache {}. Msg: {}", cacheName, e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean active() {
+        return cursor != null;
+    }
+
+    private void fail(String msg, Exception e) {
+        log.warn("{}. Data derived from the cache is dropped until listening again. Msg: {}", msg, e == null ? null : e.getMessage());
+        close();
+        onFailure.run();
+    }
+
+    @Override
+    public void close() {
+        QueryCursor<?> c = cursor;
+        cursor = null;
+        if (c != null) {
+            try {
+                c.close();
+            } catch (Exception e) {
+                log.debug("Failed to close continuous query of cache {}. Msg: {}", cacheName, e.getMessage());
+            }
+        }
+    }
+}
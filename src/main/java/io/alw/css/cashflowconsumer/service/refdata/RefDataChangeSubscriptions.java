@@ -0,0 +1,81 @@
+package io.alw.css.cashflowconsumer.service.refdata;
+
+import org.apache.ignite.client.IgniteClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/// Listens to the changes of a group of Ignite caches that some locally held data is derived from. See [RefDataChangeSubscription]
+///
+/// The local data is coherent only while listening to all the caches of the group. [#ensureActive()] subscribes again to the caches that are no longer listened to,
+/// at most once per `resubscribeInterval`, so that a cache cluster that is down is not hammered by every lookup.
+/// While listening, [#ensureActive()] reads a single volatile flag, which is cleared by the failure callback of any subscription. Hence, it can be called on every lookup
+public final class RefDataChangeSubscriptions implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(RefDataChangeSubscriptions.class);
+
+    private final String name;
+    private final List<RefDataChangeSubscription> subscriptions;
+    private final Runnable beforeSubscribe;
+    private final ReentrantLock subscribeLock;
+    private final long resubscribeIntervalNanos;
+    private volatile long nextSubscribeAttemptNanos;
+    /// true while listening to all the caches
+    private volatile boolean active;
+
+    /// @param onFailure       called when listening to any of the caches fails. The data derived from the caches must be dropped or marked stale
+    /// @param beforeSubscribe called before (re)subscribing. Changes are missed while not listening, hence the data derived from the caches must be dropped or reloaded
+    public RefDataChangeSubscriptions(String name, IgniteClient igniteClient, List<String> cacheNames, Consumer<RefDataChange> onChange, Runnable onFailure, Runnable beforeSubscribe, Duration resubscribeInterval) {
+        this.name = name;
+        Runnable deactivate = () -> {
+            active = false;
+            onFailure.run();
+        };
+        this.subscriptions = cacheNames.stream().map(cacheName -> new RefDataChangeSubscription(igniteClient, cacheName, onChange, deactivate)).toList();
+        this.beforeSubscribe = beforeSubscribe;
+        this.subscribeLock = new ReentrantLock();
+        this.resubscribeIntervalNanos = resubscribeInterval.toNanos();
+        this.nextSubscribeAttemptNanos = System.nanoTime();
+    }
+
+    /// @return true if listening to the changes of all the caches
+    public boolean ensureActive() {
+        if (active) {
+            return true;
+        }
+        if (System.nanoTime() - nextSubscribeAttemptNanos < 0 || !subscribeLock.tryLock()) {
+            return false;
+        }
+        try {
+            beforeSubscribe.run();
+            boolean subscribed = true;
+            for (RefDataChangeSubscription subscription : subscriptions) {
+                subscribed &= subscription.subscribe();
+            }
+            if (subscribed) {
+                active = true;
+                // A subscription that failed before the flag was set would otherwise be missed. One failing after this check clears the flag itself
+                if (!subscriptions.stream().allMatch(RefDataChangeSubscription::active)) {
+                    active = false;
+                    subscribed = false;
+                }
+            }
+            if (!subscribed) {
+                nextSubscribeAttemptNanos = System.nanoTime() + resubscribeIntervalNanos;
+                log.warn("{} is bypassed until listening to the reference data changes succeeds", name);
+            }
+            return subscribed;
+        } finally {
+            subscribeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        active = false;
+        subscriptions.forEach(RefDataChangeSubscription::close);
+    }
+}
@@ -0,0 +1,69 @@
+package io.alw.css.cashflowconsumer.service.refdata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/// Reference data keyed by its code, held as an immutable snapshot that is replaced atomically on every change.
+///
+/// Reads are lock-free and see either the previous or the next snapshot, never a partially applied change. Hence, any number of processing threads can read while the data is refreshed.
+/// Changes are copy-on-write, which is cheap for the small and rarely changing reference data held in this way(Ex: currency, entity)
+///
+/// @param <V> reference data type
+public final class RefDataSnapshot<V> {
+    private final static Logger log = LoggerFactory.getLogger(RefDataSnapshot.class);
+
+    private final String name;
+    private final ReentrantLock writeLock;
+    private volatile Snapshot<V> snapshot;
+
+    public RefDataSnapshot(String name) {
+        this.name = name;
+        this.writeLock = new ReentrantLock();
+        this.snapshot = new Snapshot<>(0, Map.of());
+    }
+
+    /// @return null if absent
+    public V get(String code) {
+        return snapshot.values().get(code);
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    public void replaceAll(Map<String, V> values) {
+        update(_ -> values, "Reloaded " + values.size() + " records");
+    }
+
+    /// @param value null to remove
+    public void put(String code, V value) {
+        update(current -> {
+            var values = new HashMap<>(current);
+            if (value == null) {
+                values.remove(code);
+            } else {
+                values.put(code, value);
+            }
+            return values;
+        }, (value == null ? "Removed " : "Updated ") + code);
+    }
+
+    private void update(UnaryOperator<Map<String, V>> change, String description) {
+        writeLock.lock();
+        try {
+            Snapshot<V> current = snapshot;
+            snapshot = new Snapshot<>(current.version() + 1, Map.copyOf(change.apply(current.values())));
+            log.info("{} snapshot version {}: {}", name, current.version() + 1, description);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private record Snapshot<V>(long version, Map<String, V> values) {
+    }
+}
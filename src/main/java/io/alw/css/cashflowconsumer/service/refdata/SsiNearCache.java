@@ -0,0 +1,88 @@
+package io.alw.css.cashflowconsumer.service.refdata;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.alw.css.cashflowconsumer.model.SsiWithCounterpartyData;
+import io.alw.css.cashflowconsumer.model.properties.RefDataConfig;
+import io.alw.css.domain.cashflow.TradeType;
+import org.apache.ignite.client.IgniteClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/// In-process cache of the SSI lookups, keyed by (counterpartyCode, currCode, tradeType, primary), in front of the SQL JOIN on the Ignite cluster.
+///
+/// The cache is kept coherent using continuous queries on the COUNTERPARTY and SSI caches. A change of a counterparty or any of its SSIs invalidates all the cached lookups of that counterparty.
+/// A change whose counterpartyCode cannot be determined invalidates all the cached lookups.
+///
+/// When listening to the changes fails, for instance when the connection to Ignite is lost, the cache is cleared and bypassed until listening succeeds again.
+/// Listening again is attempted at most once per [RefDataConfig.SsiNearCacheConfig#resubscribeInterval()]
+///
+/// @implNote A lookup that is loaded from Ignite while an invalidation happens may be stale. Such a lookup is not cached.
+/// This is detected using a counter that is incremented before every invalidation and is checked before and after caching a loaded lookup
+public final class SsiNearCache implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(SsiNearCache.class);
+    private final static String COUNTERPARTY_CODE_FIELD = "counterpartyCode";
+
+    private final Cache<SsiKey, List<SsiWithCounterpartyData>> cache;
+    private final RefDataChangeSubscriptions subscriptions;
+    private final AtomicLong invalidationCount;
+
+    public SsiNearCache(IgniteClient igniteClient, RefDataConfig.SsiNearCacheConfig config, RefDataConfig.CacheNames cacheNames) {
+        this.cache = Caffeine.newBuilder().maximumSize(config.maximumSize()).expireAfterWrite(config.expireAfterWrite()).build();
+        this.invalidationCount = new AtomicLong();
+        this.subscriptions = new RefDataChangeSubscriptions("SSI near cache", igniteClient, List.of(cacheNames.counterparty(), cacheNames.ssi()),
+                this::onChange, this::invalidateAll, this::invalidateAll, config.resubscribeInterval());
+        subscriptions.ensureActive();
+    }
+
+    /// @param loader loads the lookup from Ignite if it is not cached
+    public List<SsiWithCounterpartyData> get(String counterpartyCode, String currCode, TradeType tradeType, boolean primary, Supplier<List<SsiWithCounterpartyData>> loader) {
+        if (!subscriptions.ensureActive()) {
+            return loader.get();
+        }
+
+        var key = new SsiKey(counterpartyCode, currCode, tradeType, primary);
+        List<SsiWithCounterpartyData> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long invalidationCountBeforeLoad = invalidationCount.get();
+        List<SsiWithCounterpartyData> loaded = loader.get();
+        if (invalidationCount.get() == invalidationCountBeforeLoad) {
+            cache.put(key, loaded);
+            if (invalidationCount.get() != invalidationCountBeforeLoad) {
+                cache.invalidate(key);
+            }
+        }
+        return loaded;
+    }
+
+    private void onChange(RefDataChange change) {
+        List<Object> counterpartyCodes = change.fieldValues(COUNTERPARTY_CODE_FIELD);
+        if (counterpartyCodes.isEmpty()) {
+            invalidateAll();
+        } else {
+            invalidationCount.incrementAndGet();
+            cache.asMap().keySet().removeIf(key -> counterpartyCodes.contains(key.counterpartyCode()));
+            log.debug("Invalidated SSI near cache for counterpartyCodes: {}", counterpartyCodes);
+        }
+    }
+
+    private void invalidateAll() {
+        invalidationCount.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void close() {
+        subscriptions.close();
+    }
+
+    private record SsiKey(String counterpartyCode, String currCode, TradeType tradeType, boolean primary) {
+    }
+}
@@ -1,11 +1,52 @@
 package io.alw.css.cashflowconsumer.util;
 
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public final class DateUtil {
 
     public static LocalDate formatValueDate(String dateString) {
         return LocalDate.parse(dateString, DateTimeFormatter.ISO_DATE);
     }
+
+    /// Same as [#formatValueDate(String)], but returns null instead of throwing when the date is null or invalid.
+    ///
+    /// A date of the form `yyyy-MM-dd`, which is what the upstream sends, is parsed by hand. Any other form is left to the formatter
+    public static LocalDate parseValueDate(String dateString) {
+        if (dateString == null) {
+            return null;
+        }
+
+        if (dateString.length() == 10 && dateString.charAt(4) == '-' && dateString.charAt(7) == '-') {
+            int year = parseDigits(dateString, 0, 4);
+            int month = parseDigits(dateString, 5, 7);
+            int day = parseDigits(dateString, 8, 10);
+            if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+                return null;
+            }
+            return LocalDate.of(year, month, day);
+        }
+
+        try {
+            return formatValueDate(dateString);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /// @return the non-negative number or -1 if any character is not a digit
+    private static int parseDigits(String str, int beginIndex, int endIndex) {
+        int value = 0;
+        for (int i = beginIndex; i < endIndex; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
 }
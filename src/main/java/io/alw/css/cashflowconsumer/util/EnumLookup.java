@@ -0,0 +1,27 @@
+package io.alw.css.cashflowconsumer.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/// Resolves an enum constant from its name through a table built once, instead of [Enum#valueOf(Class, String)] which throws for an unknown name
+public final class EnumLookup<E extends Enum<E>> {
+    private final Map<String, E> byName;
+
+    private EnumLookup(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        Map<String, E> byName = HashMap.newHashMap(constants.length);
+        for (E constant : constants) {
+            byName.put(constant.name(), constant);
+        }
+        this.byName = Map.copyOf(byName);
+    }
+
+    public static <E extends Enum<E>> EnumLookup<E> of(Class<E> type) {
+        return new EnumLookup<>(type);
+    }
+
+    /// @return the constant having the given name or null if the name is null or unknown
+    public E get(String name) {
+        return name == null ? null : byName.get(name);
+    }
+}
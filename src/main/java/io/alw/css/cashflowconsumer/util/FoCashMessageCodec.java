@@ -0,0 +1,30 @@
+package io.alw.css.cashflowconsumer.util;
+
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/// Avro single-object encoding of [FoCashMessageAvro], for storing a message outside Kafka
+public final class FoCashMessageCodec {
+
+    public static byte[] encode(FoCashMessageAvro foMsg) {
+        try {
+            ByteBuffer buffer = foMsg.toByteBuffer();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode FoCashMessage. FoCashflowID-Ver: " + foMsg.getCashflowID() + "-" + foMsg.getCashflowVersion(), e);
+        }
+    }
+
+    public static FoCashMessageAvro decode(byte[] bytes) {
+        try {
+            return FoCashMessageAvro.fromByteBuffer(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode FoCashMessage", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OffsetTrackerTest {
+    private static final String TOPIC = "cashflow-input";
+
+    @Test
+    void testAcknowledgesUpToTheLowestProcessedOffset() {
+        var tracker = new OffsetTracker((_, _) -> fail("Must not seek"));
+        Acknowledgment ack0 = mock(Acknowledgment.class), ack1 = mock(Acknowledgment.class), ack2 = mock(Acknowledgment.class);
+        OffsetTracker.TrackedRecord record0 = tracker.track(TOPIC, 0, 0, ack0);
+        OffsetTracker.TrackedRecord record1 = tracker.track(TOPIC, 0, 1, ack1);
+        OffsetTracker.TrackedRecord record2 = tracker.track(TOPIC, 0, 2, ack2);
+
+        record2.processed();
+        record1.processed();
+        verifyNoInteractions(ack0, ack1, ack2);
+
+        record0.processed();
+        verify(ack2).acknowledge();
+        verifyNoInteractions(ack0, ack1);
+    }
+
+    @Test
+    void testSeeksBackToFailedRecordAndSkipsTheRecordsAfterItUntilConsumedAgain() {
+        List<Long> seeks = new ArrayList<>();
+        var tracker = new OffsetTracker((_, offset) -> seeks.add(offset));
+        Acknowledgment ack0 = mock(Acknowledgment.class), ack1 = mock(Acknowledgment.class), ack2 = mock(Acknowledgment.class);
+        OffsetTracker.TrackedRecord record0 = tracker.track(TOPIC, 0, 0, ack0);
+        OffsetTracker.TrackedRecord record1 = tracker.track(TOPIC, 0, 1, ack1);
+        OffsetTracker.TrackedRecord record2 = tracker.track(TOPIC, 0, 2, ack2);
+
+        record1.failed();
+        assertEquals(List.of(1L), seeks);
+        assertFalse(record0.discarded());
+        assertTrue(record1.discarded());
+        assertTrue(record2.discarded(), "Consumed again after the seek");
+        record2.processed();
+        record0.processed();
+        verify(ack0).acknowledge();
+        verifyNoInteractions(ack1, ack2);
+
+        assertNull(tracker.track(TOPIC, 0, 3, mock(Acknowledgment.class)), "Received before the seek");
+        Acknowledgment ack1Again = mock(Acknowledgment.class);
+        OffsetTracker.TrackedRecord record1Again = tracker.track(TOPIC, 0, 1, ack1Again);
+        assertNotNull(record1Again);
+        record1Again.processed();
+        verify(ack1Again).acknowledge();
+    }
+
+    @Test
+    void testIgnoresRecordsOfRevokedPartition() {
+        var tracker = new OffsetTracker((_, _) -> fail("Must not seek"));
+        Acknowledgment ack = mock(Acknowledgment.class);
+        OffsetTracker.TrackedRecord record = tracker.track(TOPIC, 0, 0, ack);
+
+        tracker.revoke(List.of(new TopicPartition(TOPIC, 0)));
+        assertTrue(record.discarded());
+        record.failed();
+        record.processed();
+        verifyNoInteractions(ack);
+    }
+}
@@ -0,0 +1,43 @@
+package io.alw.css.cashflowconsumer.dispatcher;
+
+import io.alw.css.cashflowconsumer.repository.CashflowStore;
+import io.alw.css.cashflowconsumer.service.CacheService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningCheckTest {
+
+    @Test
+    void testBlockingServicesHaveNoSynchronizedSections() {
+        assertEquals(0, VirtualThreadPinningCheck.findSynchronizedSections(CacheService.class).size());
+        assertEquals(0, VirtualThreadPinningCheck.findSynchronizedSections(CashflowStore.class).size());
+    }
+
+    @Test
+    void testSynchronizedMethodAndBlockAreDetected() {
+        var synchronizedSections = VirtualThreadPinningCheck.findSynchronizedSections(PinningSample.class);
+        assertEquals(2, synchronizedSections.size());
+        assertTrue(synchronizedSections.contains("PinningSample#synchronizedMethod"));
+        assertTrue(synchronizedSections.contains("PinningSample#synchronizedBlock"));
+    }
+
+    static class PinningSample {
+        private final Object lock = new Object();
+        private int counter;
+
+        synchronized void synchronizedMethod() {
+            counter++;
+        }
+
+        void synchronizedBlock() {
+            synchronized (lock) {
+                counter++;
+            }
+        }
+
+        void notSynchronized() {
+            counter++;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.CashflowAuditRecord;
+import io.alw.css.cashflowconsumer.model.properties.AuditConfig;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CashflowAuditLogTest {
+    private static final String LONG_SUB_CATEGORY = "A_SUB_CATEGORY_LONGER_THAN_THE_FIELD_OF_THE_RECORD";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordsAreReadAsWritten() throws IOException {
+        try (var auditLog = auditLog(100, 2)) {
+            CashflowTrace persisted = trace(100, 1);
+            persisted.classify("FirstVersion", RevisionType.NEW);
+            persisted.persisted(5000, 1);
+            persisted.end();
+            auditLog.onProcessed(persisted);
+
+            CashflowTrace rejected = trace(200, 2);
+            rejected.rejected(LONG_SUB_CATEGORY);
+            rejected.end();
+            auditLog.onProcessed(rejected);
+        }
+
+        List<CashflowAuditRecord> records = readAll();
+        assertEquals(2, records.size());
+
+        CashflowAuditRecord first = records.getFirst();
+        assertEquals(100, first.foCashflowID());
+        assertEquals(1, first.foCashflowVersion());
+        assertEquals(TradeType.FX, first.tradeType());
+        assertEquals(CashflowTrace.Outcome.PERSISTED, first.outcome());
+        assertEquals("FirstVersion", first.checkOutcome());
+        assertEquals(RevisionType.NEW, first.revisionType());
+        assertEquals(5000, first.cashflowID());
+        assertNull(first.rejectionSubCategory());
+
+        CashflowAuditRecord second = records.get(1);
+        assertEquals(CashflowTrace.Outcome.REJECTED, second.outcome());
+        assertEquals(LONG_SUB_CATEGORY.substring(0, 36), second.rejectionSubCategory());
+        assertNull(second.revisionType());
+        assertEquals(0, second.cashflowID());
+    }
+
+    @Test
+    void testOldestFilesAreDeletedWhenRolled() throws IOException {
+        try (var auditLog = auditLog(2, 2)) {
+            for (int i = 1; i <= 5; i++) {
+                CashflowTrace trace = trace(i, 1);
+                trace.end();
+                auditLog.onProcessed(trace);
+            }
+        }
+
+        assertEquals(2, CashflowAuditReader.segments(directory).size());
+        assertEquals(List.of(3L, 4L, 5L), readAll().stream().map(CashflowAuditRecord::foCashflowID).toList());
+    }
+
+    @Test
+    void testSegmentOfAnotherFormatVersionIsSkipped() throws IOException {
+        try (var auditLog = auditLog(2, 4)) {
+            for (int i = 1; i <= 5; i++) {
+                CashflowTrace trace = trace(i, 1);
+                trace.end();
+                auditLog.onProcessed(trace);
+            }
+        }
+        List<Path> segments = CashflowAuditReader.segments(directory);
+        assertEquals(3, segments.size());
+        try (FileChannel channel = FileChannel.open(segments.getFirst(), StandardOpenOption.WRITE)) {
+            ByteBuffer version = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, CashflowAuditFormat.FORMAT_VERSION - 1);
+            channel.write(version, 8);
+        }
+
+        List<String> skipped = new ArrayList<>();
+        List<CashflowAuditRecord> records = new ArrayList<>();
+        new CashflowAuditReader(directory, skipped::add).read(_ -> true, records::add);
+        assertEquals(List.of(3L, 4L, 5L), records.stream().map(CashflowAuditRecord::foCashflowID).toList());
+        assertEquals(1, skipped.size());
+        assertTrue(skipped.getFirst().contains("unsupported format version"));
+    }
+
+    @Test
+    void testPartiallyWrittenRecordIsNotRead() {
+        ByteBuffer buffer = ByteBuffer.allocate(CashflowAuditFormat.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        CashflowTrace trace = trace(100, 1);
+        trace.end();
+        CashflowAuditFormat.write(buffer, 0, trace, TradeType.FX, System.currentTimeMillis());
+        assertTrue(CashflowAuditFormat.isWritten(buffer, 0));
+
+        buffer.putLong(16, 0); // foCashflowID not written
+        assertFalse(CashflowAuditFormat.isWritten(buffer, 0));
+    }
+
+    private CashflowAuditLog auditLog(int recordsPerSegment, int maxSegments) {
+        DataSize segmentSize = DataSize.ofBytes(CashflowAuditFormat.HEADER_SIZE + (long) recordsPerSegment * CashflowAuditFormat.RECORD_SIZE);
+        var auditLog = new CashflowAuditLog(new AuditConfig(true, directory.toString(), segmentSize, maxSegments));
+        auditLog.init();
+        return auditLog;
+    }
+
+    private List<CashflowAuditRecord> readAll() throws IOException {
+        List<CashflowAuditRecord> records = new ArrayList<>();
+        new CashflowAuditReader(directory).read(_ -> true, records::add);
+        return records;
+    }
+
+    private static CashflowTrace trace(long foCashflowID, int foCashflowVersion) {
+        FoCashMessageAvro foMsg = mock(FoCashMessageAvro.class);
+        when(foMsg.getCashflowID()).thenReturn(foCashflowID);
+        when(foMsg.getCashflowVersion()).thenReturn(foCashflowVersion);
+        when(foMsg.getTradeType()).thenReturn("FX");
+        return CashflowTrace.start(foMsg, System.nanoTime());
+    }
+}
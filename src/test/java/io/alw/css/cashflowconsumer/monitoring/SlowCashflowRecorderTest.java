@@ -0,0 +1,111 @@
+package io.alw.css.cashflowconsumer.monitoring;
+
+import io.alw.css.cashflowconsumer.model.SlowCashflow;
+import io.alw.css.cashflowconsumer.model.properties.SlowCashflowConfig;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SlowCashflowRecorderTest {
+
+    @Test
+    void testNegativeLimitReturnsNone() {
+        var recorder = new SlowCashflowRecorder(new SlowCashflowConfig(true, 5, Duration.ofDays(1), 1));
+        recorder.onProcessed(trace(100, 10));
+
+        assertTrue(recorder.slowest(-1).isEmpty());
+        assertEquals(1, recorder.slowest(1).size());
+    }
+
+    @Test
+    void testConcurrentInsertsKeepTheTopNSlowest() throws Exception {
+        int numOfThreads = 4;
+        int tracesPerThread = 250;
+        var recorder = new SlowCashflowRecorder(new SlowCashflowConfig(true, 5, Duration.ofDays(1), 1));
+        List<List<CashflowTrace>> tracesPerWorker = new ArrayList<>();
+        for (int t = 0; t < numOfThreads; t++) {
+            List<CashflowTrace> traces = new ArrayList<>();
+            // Interleaved, so that every thread competes for the slowest places
+            for (int i = 0; i < tracesPerThread; i++) {
+                long foCashflowID = (long) i * numOfThreads + t + 1;
+                traces.add(trace(foCashflowID, foCashflowID));
+            }
+            tracesPerWorker.add(traces);
+        }
+
+        var start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(numOfThreads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<CashflowTrace> traces : tracesPerWorker) {
+                futures.add(executor.submit(() -> {
+                    assertTrue(start.await(5, TimeUnit.SECONDS));
+                    traces.forEach(recorder::onProcessed);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+
+        long numOfTraces = (long) numOfThreads * tracesPerThread;
+        List<Long> slowest = recorder.slowest(Integer.MAX_VALUE).stream().map(SlowCashflow::foCashflowID).toList();
+        assertEquals(List.of(numOfTraces, numOfTraces - 1, numOfTraces - 2, numOfTraces - 3, numOfTraces - 4), slowest);
+    }
+
+    @Test
+    void testBucketOutOfTheWindowIsEvicted() throws InterruptedException {
+        var recorder = new SlowCashflowRecorder(new SlowCashflowConfig(true, 5, Duration.ofMillis(40), 2));
+        recorder.onProcessed(trace(100, 1000));
+        assertEquals(List.of(100L), recorder.slowest(5).stream().map(SlowCashflow::foCashflowID).toList());
+
+        Thread.sleep(100);
+        assertTrue(recorder.slowest(5).isEmpty());
+        recorder.onProcessed(trace(200, 1));
+        assertEquals(List.of(200L), recorder.slowest(5).stream().map(SlowCashflow::foCashflowID).toList());
+    }
+
+    @Test
+    void testConcurrentInsertsAcrossBucketRolloverKeepAtMostTopN() throws Exception {
+        var recorder = new SlowCashflowRecorder(new SlowCashflowConfig(true, 3, Duration.ofMillis(4), 2));
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long foCashflowID = t + 1;
+                futures.add(executor.submit(() -> {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+                    for (long totalMillis = 1; System.nanoTime() < deadline; totalMillis++) {
+                        recorder.onProcessed(trace(foCashflowID, totalMillis));
+                        assertTrue(recorder.slowest(Integer.MAX_VALUE).size() <= 3);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static CashflowTrace trace(long foCashflowID, long totalMillis) {
+        FoCashMessageAvro foMsg = mock(FoCashMessageAvro.class);
+        when(foMsg.getCashflowID()).thenReturn(foCashflowID);
+        when(foMsg.getCashflowVersion()).thenReturn(1);
+        when(foMsg.getTradeType()).thenReturn("FX");
+        CashflowTrace trace = CashflowTrace.start(foMsg, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(totalMillis));
+        trace.end();
+        return trace;
+    }
+}
@@ -29,6 +29,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -185,6 +186,27 @@ class CashflowEnricherTest {
         assertEquals(PaymentSuppressionCategory.AMOUNT_TOO_SMALL, builder.paymentSuppressionCategory());
     }
 
+    @Test
+    void testPaymentSuppressionAfterReload() {
+        SuppressionConfig suppressionConfigMock = mock(SuppressionConfig.class);
+        when(suppressionConfigMock.suppressibleCurrToAmountMap()).thenReturn(Map.of("USD", new BigDecimal("5.0")));
+        CashflowEnricher cfEnricher = new CashflowEnricher(suppressionConfigMock, cacheService);
+        CashflowBuilder builder = CashflowBuilder.builder(genericCashflow())
+                .paymentSuppressionCategory(null)
+                .currCode("usd")
+                .amount(new BigDecimal("-4.5"));
+
+        cfEnricher.setPaymentSuppressionValue(builder);
+        assertEquals(PaymentSuppressionCategory.AMOUNT_TOO_SMALL, builder.paymentSuppressionCategory());
+
+        SuppressionConfig reloadedConfigMock = mock(SuppressionConfig.class);
+        when(reloadedConfigMock.suppressibleCurrToAmountMap()).thenReturn(Map.of("USD", new BigDecimal("4.0"), "INR", new BigDecimal("10.0")));
+        assertEquals(2, cfEnricher.reloadSuppressionConfig(reloadedConfigMock));
+
+        cfEnricher.setPaymentSuppressionValue(builder);
+        assertEquals(PaymentSuppressionCategory.NONE, builder.paymentSuppressionCategory());
+    }
+
     private Cashflow genericCashflow() {
         return CashflowBuilder.builder()
                 .cashflowID(16540)
@@ -4,6 +4,7 @@ import io.alw.css.domain.cashflow.RevisionType;
 import io.alw.css.domain.cashflow.TradeEventAction;
 import io.alw.css.domain.cashflow.TradeEventType;
 import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.domain.exception.CategorizedRuntimeException;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,4 +31,29 @@ class RevisionTypeResolverTest {
         revisionType = RevisionTypeResolver.resolve(true, TradeType.FX, TradeEventType.NEW_TRADE, TradeEventAction.ADD);
         assertEquals(RevisionType.NEW, revisionType);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCommonRules_whenNonFirstCashflow_partialTest() {
+        RevisionType revisionType = RevisionTypeResolver.resolve(false, TradeType.FX, TradeEventType.AMEND, TradeEventAction.MODIFY);
+        assertEquals(RevisionType.COR, revisionType);
+
+        revisionType = RevisionTypeResolver.resolve(false, TradeType.BOND, TradeEventType.CANCEL, TradeEventAction.ADD);
+        assertEquals(RevisionType.CAN, revisionType);
+    }
+
+    @Test
+    void testTradeTypeSpecificRules_forBothCashflowOrders() {
+        assertEquals(RevisionType.NEW, RevisionTypeResolver.resolve(true, TradeType.FX_NDF, TradeEventType.FIX, TradeEventAction.ADD));
+        assertEquals(RevisionType.NEW, RevisionTypeResolver.resolve(false, TradeType.FX_NDF, TradeEventType.FIX, TradeEventAction.ADD));
+        assertEquals(RevisionType.CAN, RevisionTypeResolver.resolve(false, TradeType.OPTION, TradeEventType.EXPIRE, TradeEventAction.ADD));
+        assertEquals(RevisionType.COR, RevisionTypeResolver.resolve(false, TradeType.REPO, TradeEventType.ROLL, TradeEventAction.ADD));
+    }
+
+    @Test
+    void testUnresolvableCombinations() {
+        // NEW_TRADE is applicable only to the first cashflow
+        assertThrows(CategorizedRuntimeException.class, () -> RevisionTypeResolver.resolve(false, TradeType.FX, TradeEventType.NEW_TRADE, TradeEventAction.ADD));
+        // FIX is applicable only to FX_NDF
+        assertThrows(CategorizedRuntimeException.class, () -> RevisionTypeResolver.resolve(true, TradeType.FX, TradeEventType.FIX, TradeEventAction.ADD));
+    }
+}
@@ -0,0 +1,134 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import io.alw.css.cashflowconsumer.model.jpa.CashflowEntity;
+import io.alw.css.cashflowconsumer.model.jpa.CashflowEntityPK;
+import io.alw.css.cashflowconsumer.model.jpa.TradeLinkEntity;
+import io.alw.css.cashflowconsumer.model.properties.IdAllocationConfig;
+import io.alw.css.domain.cashflow.Cashflow;
+import io.alw.css.domain.cashflow.CashflowBuilder;
+import io.alw.css.domain.cashflow.RevisionType;
+import io.alw.css.domain.cashflow.TradeLink;
+import io.alw.css.domain.cashflow.TradeType;
+import io.alw.css.domain.cashflow.TransactionType;
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.domain.common.PaymentConstants;
+import io.alw.css.domain.common.PaymentSuppressionCategory;
+import io.alw.css.domain.common.YesNo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// Runs against the H2 database in Oracle mode of 'src/test/resources/application.yml', with the schema created from the entities.
+/// The batch is written and read back in one transaction, as in the application. The transaction is rolled back at the end of the test
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CashflowJdbcBatchWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private CashflowRepository cashflowRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void testBatchIsReadBackThroughJpa() {
+        var tradeLinkIDs = new AtomicLong(9000);
+        try (var tradeLinkIdAllocator = new SequenceBlockAllocator("tradeLinkID", tradeLinkIDs::getAndIncrement,
+                new IdAllocationConfig.BlockConfig(IdAllocationConfig.Strategy.POOLED, 1, 50))) {
+            Cashflow withTradeLinks = cashflow(5000, 100, List.of(new TradeLink("ORIGINAL_TRADE", "T1"), new TradeLink("NOVATION", "T2")));
+            Cashflow withoutTradeLinks = cashflow(5001, 101, null);
+
+            new CashflowJdbcBatchWriter(jdbcTemplate, tradeLinkIdAllocator).insert(List.of(withTradeLinks, withoutTradeLinks));
+            entityManager.clear(); // Read from the DB and not from the persistence context
+
+            CashflowEntity read = cashflowRepository.findById(new CashflowEntityPK(5000, 1)).orElseThrow();
+            assertCashflow(withTradeLinks, read);
+            List<TradeLinkEntity> tradeLinks = read.getTradeLinks();
+            assertEquals(List.of(9000L, 9001L), tradeLinks.stream().map(TradeLinkEntity::getId).sorted().toList());
+            assertEquals(List.of("NOVATION:T2", "ORIGINAL_TRADE:T1"), tradeLinks.stream().map(tl -> tl.getLinkType() + ":" + tl.getRelatedReference()).sorted().toList());
+            for (TradeLinkEntity tradeLink : tradeLinks) {
+                assertEquals(5000L, tradeLink.getCashflowID());
+                assertEquals(1, tradeLink.getCashflowVersion());
+                assertSame(read, tradeLink.getCashflow());
+            }
+
+            CashflowEntity lastProcessed = cashflowRepository.findLastProcessedCashflow(101);
+            assertNotNull(lastProcessed);
+            assertCashflow(withoutTradeLinks, lastProcessed);
+            assertTrue(lastProcessed.getTradeLinks().isEmpty());
+        }
+    }
+
+    private static void assertCashflow(Cashflow expected, CashflowEntity actual) {
+        assertEquals(expected.cashflowID(), actual.getCashflowEntityPK().cashflowID());
+        assertEquals(expected.cashflowVersion(), actual.getCashflowEntityPK().cashflowVersion());
+        assertEquals(YesNo.Y, actual.getLatest());
+        assertEquals(expected.revisionType(), actual.getRevisionType());
+        assertEquals(expected.foCashflowID(), actual.getFoCashflowID());
+        assertEquals(expected.foCashflowVersion(), actual.getFoCashflowVersion());
+        assertEquals(expected.tradeID(), actual.getTradeID());
+        assertEquals(expected.tradeVersion(), actual.getTradeVersion());
+        assertEquals(expected.tradeType().name(), actual.getTradeType());
+        assertEquals(expected.bookCode(), actual.getBookCode());
+        assertNull(actual.getCounterBookCode());
+        assertEquals(expected.transactionType().name(), actual.getTransactionType());
+        assertEquals(0, expected.rate().compareTo(actual.getRate()));
+        assertEquals(expected.valueDate(), actual.getValueDate());
+        assertEquals(expected.entityCode(), actual.getEntityCode());
+        assertEquals(expected.counterpartyCode(), actual.getCounterpartyCode());
+        assertEquals(0, expected.amount().compareTo(actual.getAmount()));
+        assertEquals(expected.currCode(), actual.getCurrCode());
+        assertEquals(YesNo.N, actual.getInternal());
+        assertEquals(expected.nostroID(), actual.getNostroID());
+        assertEquals(expected.ssiID(), actual.getSsiID());
+        assertEquals(expected.paymentSuppressionCategory(), actual.getPaymentSuppressionCategory());
+        assertEquals(expected.inputBy(), actual.getInputBy());
+        assertNull(actual.getInputByUserID());
+        assertEquals(expected.inputDateTime(), actual.getInputDateTime());
+    }
+
+    private static Cashflow cashflow(long cashflowID, long foCashflowID, List<TradeLink> tradeLinks) {
+        return CashflowBuilder.builder()
+                .cashflowID(cashflowID)
+                .cashflowVersion(1)
+                .latest(true)
+                .revisionType(RevisionType.NEW)
+                .foCashflowID(foCashflowID)
+                .foCashflowVersion(1)
+                .tradeID(foCashflowID / 2)
+                .tradeVersion(1)
+                .tradeType(TradeType.values()[0])
+                .bookCode("BOOK1")
+                .counterBookCode(null)
+                .transactionType(TransactionType.MARKET)
+                .rate(new BigDecimal("1.2345").setScale(PaymentConstants.RATE_SCALE, RoundingMode.HALF_DOWN))
+                .valueDate(LocalDate.of(2026, 10, 20))
+                .tradeLinks(tradeLinks)
+                .entityCode("ENT1")
+                .counterpartyCode("CP000001")
+                .amount(new BigDecimal("-1234.56").setScale(PaymentConstants.AMOUNT_SCALE, RoundingMode.HALF_DOWN))
+                .currCode("USD")
+                .internal(false)
+                .nostroID("NOS1")
+                .ssiID("SSI1")
+                .paymentSuppressionCategory(PaymentSuppressionCategory.NONE)
+                .inputBy(InputBy.CSS_SYS)
+                .inputByUserID(null)
+                .inputDateTime(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+                .build();
+    }
+}
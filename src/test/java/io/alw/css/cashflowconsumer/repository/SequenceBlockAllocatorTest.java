@@ -0,0 +1,73 @@
+package io.alw.css.cashflowconsumer.repository;
+
+import io.alw.css.cashflowconsumer.model.properties.IdAllocationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceBlockAllocatorTest {
+
+    @Test
+    void testIdsOfBlocksAreHandedOutInOrder() {
+        var sequence = new AtomicLong(1);
+        try (var allocator = new SequenceBlockAllocator("test", sequence::getAndIncrement, new IdAllocationConfig.BlockConfig(IdAllocationConfig.Strategy.HILO, 3, 50))) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                ids.add(allocator.nextId());
+            }
+            assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 9L), ids);
+        }
+    }
+
+    @Test
+    void testConcurrentlyAllocatedIdsAreUniqueAndNoBlockIsDiscarded() throws Exception {
+        int blockSize = 10;
+        int numOfThreads = 8;
+        int idsPerThread = 5_000;
+        long first = 1000;
+        // POOLED: the DB sequence is incremented by the block size
+        var sequence = new AtomicLong(first);
+        var numOfReservations = new AtomicLong();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        try (var allocator = new SequenceBlockAllocator("test", () -> {
+            numOfReservations.incrementAndGet();
+            return sequence.getAndAdd(blockSize);
+        }, new IdAllocationConfig.BlockConfig(IdAllocationConfig.Strategy.POOLED, blockSize, 50));
+             ExecutorService executor = Executors.newFixedThreadPool(numOfThreads)) {
+            var start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numOfThreads; t++) {
+                futures.add(executor.submit(() -> {
+                    assertTrue(start.await(5, TimeUnit.SECONDS));
+                    for (int i = 0; i < idsPerThread; i++) {
+                        assertTrue(ids.add(allocator.nextId()), "Duplicate ID");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        long numOfIds = (long) numOfThreads * idsPerThread;
+        assertEquals(numOfIds, ids.size());
+        // Every block is used fully and in the order it is reserved. Hence, the IDs are contiguous
+        assertEquals(first, ids.stream().mapToLong(Long::longValue).min().orElseThrow());
+        assertEquals(first + numOfIds - 1, ids.stream().mapToLong(Long::longValue).max().orElseThrow());
+        // Besides the blocks used, at most the prefetched block following the last one
+        assertTrue(numOfReservations.get() <= numOfIds / blockSize + 1, "Blocks reserved: " + numOfReservations.get());
+    }
+}
@@ -0,0 +1,87 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.properties.GroupCommitConfig;
+import io.alw.css.cashflowconsumer.model.properties.ProcessingConfig;
+import io.alw.css.dbshared.tx.TXRW;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GroupCommitterTest {
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TXRW txrw = new TXRW(transactionManager);
+
+    @Test
+    void testFailingActionFailsTheWholeGroupAndCallersFallBack() throws Exception {
+        List<String> persistedInGroup = new CopyOnWriteArrayList<>();
+        List<String> persistedOnItsOwn = new CopyOnWriteArrayList<>();
+        // The group is committed once all the three have joined it
+        try (var groupCommitter = new GroupCommitter(txrw, new GroupCommitConfig(true, 3, Duration.ofSeconds(5)), ProcessingConfig.Mode.KEY_ORDERED_WORKERS);
+             ExecutorService callers = Executors.newFixedThreadPool(3)) {
+            List<CompletableFuture<Boolean>> committed = new ArrayList<>();
+            for (String cashflow : List.of("CF1", "CF2", "FAILING")) {
+                committed.add(CompletableFuture.supplyAsync(() -> {
+                    boolean inGroup = groupCommitter.commit(() -> {
+                        if (cashflow.equals("FAILING")) {
+                            throw new IllegalStateException("Constraint violated");
+                        }
+                        persistedInGroup.add(cashflow);
+                    });
+                    if (!inGroup) {
+                        persistedOnItsOwn.add(cashflow); // Same as CashflowService, which persists it in its own transaction
+                    }
+                    return inGroup;
+                }, callers));
+            }
+
+            for (CompletableFuture<Boolean> c : committed) {
+                assertFalse(c.get(5, TimeUnit.SECONDS));
+            }
+        }
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertEquals(List.of("CF1", "CF2", "FAILING"), persistedOnItsOwn.stream().sorted().toList());
+    }
+
+    @Test
+    void testCommitterSurvivesAnError() {
+        try (var groupCommitter = new GroupCommitter(txrw, new GroupCommitConfig(true, 10, Duration.ofMillis(1)), ProcessingConfig.Mode.KEY_ORDERED_WORKERS)) {
+            assertFalse(groupCommitter.commit(() -> {
+                throw new StackOverflowError();
+            }));
+
+            List<String> persisted = new ArrayList<>();
+            assertTrue(groupCommitter.commit(() -> persisted.add("CF1")));
+            assertEquals(List.of("CF1"), persisted);
+            verify(transactionManager).commit(any());
+        }
+    }
+
+    @Test
+    void testCommitAfterCloseIsNotCommitted() {
+        var groupCommitter = new GroupCommitter(txrw, new GroupCommitConfig(true, 10, Duration.ofMillis(1)), ProcessingConfig.Mode.KEY_ORDERED_WORKERS);
+        groupCommitter.close();
+
+        List<String> persisted = new ArrayList<>();
+        assertFalse(groupCommitter.commit(() -> persisted.add("CF1")));
+        assertTrue(persisted.isEmpty());
+    }
+
+    @Test
+    void testDisabledForSequentialProcessing() {
+        try (var groupCommitter = new GroupCommitter(txrw, new GroupCommitConfig(true, 10, Duration.ofMillis(1)), ProcessingConfig.Mode.SEQUENTIAL)) {
+            assertFalse(groupCommitter.enabled());
+        }
+    }
+}
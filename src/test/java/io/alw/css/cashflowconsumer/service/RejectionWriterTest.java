@@ -0,0 +1,126 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.jpa.CashflowRejectionEntity;
+import io.alw.css.cashflowconsumer.model.properties.RejectionWriteConfig;
+import io.alw.css.cashflowconsumer.repository.CashflowStore;
+import io.alw.css.dbshared.tx.TXRW;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class RejectionWriterTest {
+    private final TXRW txrw = new TXRW(mock(PlatformTransactionManager.class));
+
+    @Test
+    void testCallbacksRunInTheOrderTheRejectionsAreQueued() throws InterruptedException {
+        CashflowStore store = mock(CashflowStore.class);
+        var batchStarted = new CountDownLatch(1);
+        var releaseBatch = new CountDownLatch(1);
+        doAnswer(_ -> {
+            batchStarted.countDown();
+            assertTrue(releaseBatch.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(store).saveRejections(anyCollection());
+
+        List<String> callbacks = new CopyOnWriteArrayList<>();
+        try (var writer = new RejectionWriter(store, txrw, config(0))) {
+            writer.runWhenWritten(writer.position(), () -> callbacks.add("nothing queued"), () -> fail("Must not fail"));
+            assertEquals(List.of("nothing queued"), callbacks);
+
+            long first = writer.position();
+            writer.write(rejection(100));
+            assertTrue(batchStarted.await(5, TimeUnit.SECONDS));
+            writer.runWhenWritten(first, () -> callbacks.add("first"), () -> fail("Must not fail"));
+            long second = writer.position();
+            writer.write(rejection(200));
+            writer.runWhenWritten(second, () -> callbacks.add("second"), () -> fail("Must not fail"));
+            assertEquals(List.of("nothing queued"), callbacks);
+
+            releaseBatch.countDown();
+            writer.awaitWritten(first);
+            assertEquals(List.of("nothing queued", "first", "second"), callbacks);
+        }
+    }
+
+    @Test
+    void testFailedBatchIsWrittenOneByOne() {
+        CashflowStore store = mock(CashflowStore.class);
+        doThrow(new RuntimeException("Batch failed")).when(store).saveRejections(anyCollection());
+
+        try (var writer = new RejectionWriter(store, txrw, config(0))) {
+            long position = writer.position();
+            writer.write(rejection(100));
+            writer.write(rejection(200));
+            writer.awaitWritten(position);
+        }
+        verify(store, times(2)).saveRejection(any());
+    }
+
+    @Test
+    void testGivenUpRejectionFailsOnlyTheCallbacksQueuedBeforeIt() {
+        CashflowStore store = mock(CashflowStore.class);
+        doThrow(new RuntimeException("Batch failed")).when(store).saveRejections(anyCollection());
+        CashflowRejectionEntity unwritable = rejection(100);
+        // Matched by foCashflowID, as a rejection is equal to any other rejection without an ID
+        doThrow(new RuntimeException("Constraint violated")).when(store).saveRejection(argThat(cfr -> cfr.getFoCashflowID() == 100));
+
+        try (var writer = new RejectionWriter(store, txrw, config(2))) {
+            long beforeUnwritable = writer.position();
+            writer.write(unwritable);
+            long afterUnwritable = writer.position();
+            writer.write(rejection(200));
+
+            var failed = new CompletableFuture<Boolean>();
+            writer.runWhenWritten(beforeUnwritable, () -> failed.complete(false), () -> failed.complete(true));
+            assertTrue(failed.join());
+            assertThrows(IllegalStateException.class, () -> writer.awaitWritten(beforeUnwritable));
+            writer.awaitWritten(afterUnwritable);
+        }
+        verify(store, times(3)).saveRejection(argThat(cfr -> cfr.getFoCashflowID() == 100));
+        verify(store).saveRejection(argThat(cfr -> cfr.getFoCashflowID() == 200));
+    }
+
+    @Test
+    void testAwaitWrittenThrowsWhenClosedBeforeTheRejectionIsWritten() throws InterruptedException {
+        CashflowStore store = mock(CashflowStore.class);
+        doThrow(new RuntimeException("DB down")).when(store).saveRejections(anyCollection());
+        doThrow(new RuntimeException("DB down")).when(store).saveRejection(any());
+
+        var writer = new RejectionWriter(store, txrw, config(Integer.MAX_VALUE));
+        long position = writer.position();
+        writer.write(rejection(100));
+        var awaited = new CompletableFuture<Throwable>();
+        Thread awaiting = Thread.ofPlatform().start(() -> {
+            try {
+                writer.awaitWritten(position);
+                awaited.complete(null);
+            } catch (Throwable e) {
+                awaited.complete(e);
+            }
+        });
+
+        writer.close();
+        awaiting.join(TimeUnit.SECONDS.toMillis(5));
+        assertInstanceOf(IllegalStateException.class, awaited.getNow(null));
+    }
+
+    private static RejectionWriteConfig config(int maxRetries) {
+        return new RejectionWriteConfig(true, 10, Duration.ofMillis(1), 100, maxRetries);
+    }
+
+    private static CashflowRejectionEntity rejection(long foCashflowID) {
+        return new CashflowRejectionEntity().setFoCashflowID(foCashflowID).setFoCashflowVersion(1);
+    }
+}
@@ -0,0 +1,64 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.constants.ExceptionSubCategoryType;
+import io.alw.css.cashflowconsumer.model.properties.RetryConfig;
+import io.alw.css.domain.exception.CategorizedRuntimeException;
+import io.alw.css.domain.exception.ExceptionSubCategory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+    private final RetryPolicy retryPolicy = new RetryPolicy(new RetryConfig(2, Duration.ofMillis(20), Duration.ofMillis(40), Set.of(ExceptionSubCategoryType.CF_PERSISTENCE_FAILURE)));
+
+    @Test
+    void testRecoverableExceptionOfRetryableSubCategoryIsRetriedUntilMaxRetries() {
+        var e = CategorizedRuntimeException.TECHNICAL_RECOVERABLE("Conflict", new ExceptionSubCategory(ExceptionSubCategoryType.CF_PERSISTENCE_FAILURE, null));
+        assertTrue(retryPolicy.shouldRetry(e, 1));
+        assertTrue(retryPolicy.shouldRetry(e, 2));
+        assertFalse(retryPolicy.shouldRetry(e, 3));
+    }
+
+    @Test
+    void testUnrecoverableExceptionIsNotRetried() {
+        var e = CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("Invalid state", new ExceptionSubCategory(ExceptionSubCategoryType.CF_PERSISTENCE_FAILURE, null));
+        assertFalse(retryPolicy.shouldRetry(e, 1));
+        var multipleLatest = CategorizedRuntimeException.TECHNICAL_UNRECOVERABLE("Invalid state", new ExceptionSubCategory(ExceptionSubCategoryType.MULTIPLE_LATEST_CASHFLOWS, null));
+        assertFalse(retryPolicy.shouldRetry(multipleLatest, 1));
+    }
+
+    @Test
+    void testRecoverableExceptionOfOtherSubCategoryIsNotRetried() {
+        var e = CategorizedRuntimeException.BUSINESS_RECOVERABLE("Entity is inactive", new ExceptionSubCategory(ExceptionSubCategoryType.INACTIVE_ENTITY, null));
+        assertFalse(retryPolicy.shouldRetry(e, 1));
+        assertFalse(retryPolicy.shouldRetry(new IllegalStateException("Uncategorized"), 1));
+    }
+
+    @Test
+    void testBackoffWaitsAtLeastHalfOfTheBackoff() {
+        long startNanos = System.nanoTime();
+        assertTrue(retryPolicy.backoff(1));
+        assertTrue(System.nanoTime() - startNanos >= Duration.ofMillis(10).toNanos());
+
+        // The backoff of a late retry is bounded by the max backoff
+        startNanos = System.nanoTime();
+        assertTrue(retryPolicy.backoff(40));
+        long elapsedNanos = System.nanoTime() - startNanos;
+        assertTrue(elapsedNanos >= Duration.ofMillis(20).toNanos());
+        assertTrue(elapsedNanos < Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    void testInterruptedBackoffReturnsFalse() {
+        Thread.currentThread().interrupt();
+        try {
+            assertFalse(retryPolicy.backoff(1));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
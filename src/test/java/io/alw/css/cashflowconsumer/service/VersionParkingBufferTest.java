@@ -0,0 +1,140 @@
+package io.alw.css.cashflowconsumer.service;
+
+import io.alw.css.cashflowconsumer.model.ParkedCashflow;
+import io.alw.css.cashflowconsumer.model.properties.ParkingConfig;
+import io.alw.css.cashflowconsumer.repository.ParkedCashflowStore;
+import io.alw.css.domain.common.InputBy;
+import io.alw.css.serialization.cashflow.FoCashMessageAvro;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class VersionParkingBufferTest {
+
+    @Test
+    void testParkedVersionsAreReleasedInOrder() {
+        ParkedCashflowStore store = mock(ParkedCashflowStore.class);
+        when(store.findAllKeys()).thenReturn(List.of());
+        try (var buffer = new VersionParkingBuffer(config(10), store)) {
+            FoCashMessageAvro v3 = foMsg(100, 3);
+            FoCashMessageAvro v4 = foMsg(100, 4);
+            assertTrue(buffer.park(v4, InputBy.CSS_SYS));
+            assertTrue(buffer.park(v3, InputBy.CSS_SYS));
+
+            assertNull(buffer.takeSuccessor(100, 1));
+            assertSame(v3, buffer.takeSuccessor(100, 2).foMsg());
+            assertNull(buffer.takeSuccessor(100, 2));
+            assertSame(v4, buffer.takeSuccessor(100, 3).foMsg());
+            assertNull(buffer.takeSuccessor(200, 3));
+            verify(store, never()).save(any());
+        }
+    }
+
+    @Test
+    void testSpillsWhenMaxInMemoryIsReached() {
+        ParkedCashflowStore store = mock(ParkedCashflowStore.class);
+        when(store.findAllKeys()).thenReturn(List.of());
+        try (var buffer = new VersionParkingBuffer(config(0), store)) {
+            FoCashMessageAvro v3 = foMsg(100, 3);
+            assertTrue(buffer.park(v3, InputBy.CSS_SYS));
+            verify(store).save(any());
+
+            var spilled = new ParkedCashflow(v3, InputBy.CSS_SYS, null, true);
+            when(store.find(100, 3)).thenReturn(spilled);
+            ParkedCashflow released = buffer.takeSuccessor(100, 2);
+            assertSame(spilled, released);
+
+            buffer.released(released);
+            verify(store).delete(100, 3);
+        }
+    }
+
+    @Test
+    void testExpiredCashflowIsHandedOutByTakeExpired() throws InterruptedException {
+        ParkedCashflowStore store = mock(ParkedCashflowStore.class);
+        when(store.findAllKeys()).thenReturn(List.of());
+        var config = new ParkingConfig(true, 10, 100, Duration.ZERO, Duration.ofMillis(10));
+        try (var buffer = new VersionParkingBuffer(config, store)) {
+            FoCashMessageAvro v3 = foMsg(100, 3);
+            assertTrue(buffer.park(v3, InputBy.CSS_SYS));
+
+            List<ParkedCashflow> expired = buffer.takeExpired();
+            for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); expired.isEmpty() && System.nanoTime() < deadline; expired = buffer.takeExpired()) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, expired.size());
+            assertSame(v3, expired.getFirst().foMsg());
+            assertTrue(buffer.takeExpired().isEmpty());
+            assertNull(buffer.takeSuccessor(100, 2));
+            verify(store, never()).delete(anyLong(), anyInt());
+        }
+    }
+
+    @Test
+    void testSpilledKeysAreLoadedOnRestart() {
+        ParkedCashflowStore store = mock(ParkedCashflowStore.class);
+        when(store.findAllKeys()).thenReturn(List.of(new ParkedCashflowStore.Key(100, 3, InputBy.CSS_SYS, LocalDateTime.now())));
+        try (var buffer = new VersionParkingBuffer(config(0), store)) {
+            var spilled = new ParkedCashflow(foMsg(100, 3), InputBy.CSS_SYS, LocalDateTime.now(), true);
+            when(store.find(100, 3)).thenReturn(spilled);
+
+            assertNull(buffer.takeSuccessor(100, 1));
+            assertSame(spilled, buffer.takeSuccessor(100, 2));
+            assertNull(buffer.takeSuccessor(100, 2));
+            verify(store, never()).save(any());
+        }
+    }
+
+    @Test
+    void testSpillDoesNotBlockOtherKeysAndSuccessorTakenWhileSpillingIsDeletedAgain() throws Exception {
+        ParkedCashflowStore store = mock(ParkedCashflowStore.class);
+        when(store.findAllKeys()).thenReturn(List.of());
+        var saveStarted = new CountDownLatch(1);
+        var releaseSave = new CountDownLatch(1);
+        doAnswer(_ -> {
+            saveStarted.countDown();
+            assertTrue(releaseSave.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(store).save(argThat(pc -> pc.foMsg().getCashflowID() == 100));
+
+        try (var buffer = new VersionParkingBuffer(config(0), store)) {
+            FoCashMessageAvro v3 = foMsg(100, 3);
+            var parked = CompletableFuture.supplyAsync(() -> buffer.park(v3, InputBy.CSS_SYS));
+            assertTrue(saveStarted.await(5, TimeUnit.SECONDS));
+
+            assertTrue(buffer.park(foMsg(200, 3), InputBy.CSS_SYS));
+            assertFalse(buffer.park(v3, InputBy.CSS_SYS));
+            ParkedCashflow successor = buffer.takeSuccessor(100, 2);
+            assertSame(v3, successor.foMsg());
+            assertFalse(successor.spilled());
+
+            releaseSave.countDown();
+            assertTrue(parked.get(5, TimeUnit.SECONDS));
+            verify(store).delete(100, 3);
+            verify(store, never()).find(anyLong(), anyInt());
+        }
+    }
+
+    private static ParkingConfig config(int maxInMemory) {
+        return new ParkingConfig(true, maxInMemory, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+    }
+
+    private static FoCashMessageAvro foMsg(long foCashflowID, int foCashflowVersion) {
+        FoCashMessageAvro foMsg = mock(FoCashMessageAvro.class);
+        when(foMsg.getCashflowID()).thenReturn(foCashflowID);
+        when(foMsg.getCashflowVersion()).thenReturn(foCashflowVersion);
+        return foMsg;
+    }
+}
@@ -0,0 +1,28 @@
+package io.alw.css.cashflowconsumer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateUtilTest {
+
+    @Test
+    void parseValueDate_whenValid() {
+        assertEquals(LocalDate.of(2025, 1, 31), DateUtil.parseValueDate("2025-01-31"));
+        assertEquals(LocalDate.of(2024, 2, 29), DateUtil.parseValueDate("2024-02-29"));
+        assertEquals(DateUtil.formatValueDate("2025-01-31+01:00"), DateUtil.parseValueDate("2025-01-31+01:00"));
+    }
+
+    @Test
+    void parseValueDate_whenInvalid() {
+        assertNull(DateUtil.parseValueDate(null));
+        assertNull(DateUtil.parseValueDate(""));
+        assertNull(DateUtil.parseValueDate("2025-02-29"));
+        assertNull(DateUtil.parseValueDate("2025-13-01"));
+        assertNull(DateUtil.parseValueDate("2025-00-10"));
+        assertNull(DateUtil.parseValueDate("2025-1a-10"));
+        assertNull(DateUtil.parseValueDate("31/01/2025"));
+    }
+}